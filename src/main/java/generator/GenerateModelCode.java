@@ -1,23 +1,36 @@
 package generator;
 
 import java.nio.file.Paths;
+import java.util.Arrays;
 
 /**
- * Runner class to generate code for the main DomainEntity record
+ * Runner class to generate code for the main DomainEntity and FeatureVector records.
+ * Pass {@code --lambda-free} to generate Lens classes without lambdas or method references,
+ * and {@code --path-depth=N} to limit the flattened withers of DomainEntityPaths to N components.
  */
 public class GenerateModelCode {
     
     public static void main(String[] args) {
         try {
+            boolean lambdaFree = Arrays.asList(args).contains("--lambda-free");
+            int pathDepth = RecordCodeGenerator.DEFAULT_PATH_DEPTH;
+            for (String arg : args) {
+                if (arg.startsWith("--path-depth=")) {
+                    pathDepth = Integer.parseInt(arg.substring("--path-depth=".length()));
+                }
+            }
             RecordCodeGenerator generator = new RecordCodeGenerator(
                 "model", 
-                Paths.get("target/generated-sources/model")
+                Paths.get("target/generated-sources/model"),
+                lambdaFree,
+                pathDepth
             );
             
-            // Generate for the main DomainEntity record only
+            // Generate for the main records
             // This will automatically discover and generate all nested records
             Class<?> domainEntityClass = Class.forName("model.DomainEntity");
             generator.generateForMainRecord(domainEntityClass);
+            generator.generateForMainRecord(Class.forName("model.FeatureVector"));
             
             System.out.println("Code generation completed successfully!");
             
@@ -11,18 +11,45 @@ import java.nio.file.Paths;
 import java.util.*;
 
 /**
- * Generic code generator for Withers and Lens classes from ANY Java record.
+ * Generic code generator for Withers, Lens and Codec classes from ANY Java record.
  * Uses reflection to analyze records and generates immutable update utilities.
  * Highly refactored to avoid code repetition.
+ *
+ * <p>In lambda-free mode the Lens classes use no lambdas or method references: every accessor,
+ * wither and lens constructor is passed as the singleton of a small nested class instead, so
+ * loading the model links ordinary classes, which an AppCDS archive can hold, rather than
+ * bootstrapping one {@code LambdaMetafactory} call site per reference.
+ *
+ * <p>For the main record a {@code Paths} class is generated as well, with one flattened wither
+ * per nested leaf path up to {@code pathDepth} components deep.
  */
 public class RecordCodeGenerator {
     
     private final String targetPackage;
     private final Path outputDirectory;
+    private final boolean lambdaFree;
+    private final int pathDepth;
+    private int codecVariableCounter;
+    // Nested classes to emit at the end of the Lens class in lambda-free mode, by class name
+    private final Map<String, Accessor> accessors = new LinkedHashMap<>();
+    private final Map<String, LensFactory> lensFactories = new LinkedHashMap<>();
+    private final Set<String> pairWithers = new LinkedHashSet<>();
+    
+    public static final int DEFAULT_PATH_DEPTH = 4;
     
     public RecordCodeGenerator(String targetPackage, Path outputDirectory) {
+        this(targetPackage, outputDirectory, false);
+    }
+    
+    public RecordCodeGenerator(String targetPackage, Path outputDirectory, boolean lambdaFree) {
+        this(targetPackage, outputDirectory, lambdaFree, DEFAULT_PATH_DEPTH);
+    }
+    
+    public RecordCodeGenerator(String targetPackage, Path outputDirectory, boolean lambdaFree, int pathDepth) {
         this.targetPackage = targetPackage;
         this.outputDirectory = outputDirectory;
+        this.lambdaFree = lambdaFree;
+        this.pathDepth = pathDepth;
     }
     
     /**
@@ -37,6 +64,7 @@ public class RecordCodeGenerator {
             Files.createDirectories(outputDirectory);
             generateWithers(recordClass);
             generateLens(recordClass);
+            generateCodec(recordClass);
         } catch (IOException e) {
             throw new RuntimeException("Failed to generate code for " + recordClass.getSimpleName(), e);
         }
@@ -56,12 +84,14 @@ public class RecordCodeGenerator {
             // Generate for the main record
             System.out.println("Generating code for main record: " + mainRecordClass.getSimpleName());
             generateForRecord(mainRecordClass);
+            generatePaths(mainRecordClass);
             
             // Discover and generate withers for all nested record types
             Set<Class<?>> nestedRecordTypes = discoverNestedRecordTypes(mainRecordClass);
             for (Class<?> nestedType : nestedRecordTypes) {
-                System.out.println("Generating withers for nested record: " + nestedType.getSimpleName());
+                System.out.println("Generating withers and codec for nested record: " + nestedType.getSimpleName());
                 generateWithers(nestedType);
+                generateCodec(nestedType);
             }
             
         } catch (Exception e) {
@@ -86,6 +116,7 @@ public class RecordCodeGenerator {
                 for (RecordComponent component : components) {
                     generateWitherMethod(codeWriter, recordClass, component, components);
                 }
+                generatePairWitherMethod(codeWriter, recordClass, components);
             });
         }
     }
@@ -109,10 +140,108 @@ public class RecordCodeGenerator {
                 
                 // Generate inner lens classes for nested records
                 generateAllInnerLensClasses(codeWriter, recordClass, components);
+                
+                if (lambdaFree) {
+                    generateAccessorClasses(codeWriter);
+                }
+            });
+        }
+    }
+    
+    /**
+     * Flattened withers for every path through nested record components, e.g.
+     * {@code withNestedMoreNestedMoreNestedValue(entity, value)}. A path ends at the first
+     * component that is not a record, or at {@code pathDepth} components. Each method reads the
+     * records along the path once and rebuilds them innermost first with their canonical
+     * constructors, so it creates no lens objects or closures and inlines completely.
+     * Single-component paths are left to the Withers classes.
+     */
+    private void generatePaths(Class<?> recordClass) throws IOException {
+        String className = recordClass.getSimpleName() + "Paths";
+        Path filePath = outputDirectory.resolve(className + ".java");
+        List<List<RecordComponent>> paths = new ArrayList<>();
+        collectLeafPaths(recordClass, new ArrayList<>(), paths);
+        if (paths.isEmpty()) {
+            return;
+        }
+        
+        Set<String> imports = new HashSet<>();
+        imports.add("lib.Interner");
+        for (List<RecordComponent> path : paths) {
+            for (RecordComponent component : path) {
+                addImportsForType(imports, component.getGenericType());
+            }
+        }
+        
+        try (PrintWriter writer = new PrintWriter(Files.newBufferedWriter(filePath))) {
+            JavaCodeWriter codeWriter = new JavaCodeWriter(writer);
+            
+            codeWriter.writePackage(targetPackage);
+            codeWriter.writeImports(imports);
+            codeWriter.writeClassDeclaration("public final class " + className, () -> {
+                codeWriter.writePrivateConstructor(className);
+                codeWriter.writeBlankLine();
+                
+                for (List<RecordComponent> path : paths) {
+                    generatePathWitherMethod(codeWriter, recordClass, path);
+                }
             });
         }
     }
     
+    private void collectLeafPaths(Class<?> recordClass, List<RecordComponent> prefix, List<List<RecordComponent>> paths) {
+        for (RecordComponent component : recordClass.getRecordComponents()) {
+            prefix.add(component);
+            if (isRecordType(component.getGenericType()) && prefix.size() < pathDepth) {
+                collectLeafPaths(component.getType(), prefix, paths);
+            } else if (prefix.size() > 1) {
+                paths.add(List.copyOf(prefix));
+            }
+            prefix.remove(prefix.size() - 1);
+        }
+    }
+    
+    private void generatePathWitherMethod(JavaCodeWriter writer, Class<?> recordClass, List<RecordComponent> path) {
+        StringBuilder methodName = new StringBuilder("with");
+        for (RecordComponent component : path) {
+            methodName.append(capitalize(component.getName()));
+        }
+        String recordName = recordClass.getSimpleName();
+        String valueType = getTypeString(path.get(path.size() - 1).getGenericType());
+        
+        writer.writeMethod("public static " + recordName + " " + methodName +
+                          "(" + recordName + " entity, " + valueType + " value)", () -> {
+            // The records along the path, each read once from its parent
+            String[] owners = new String[path.size()];
+            owners[0] = "entity";
+            for (int i = 1; i < path.size(); i++) {
+                RecordComponent component = path.get(i - 1);
+                owners[i] = component.getName() + i;
+                writer.writeLine(getTypeString(component.getGenericType()) + " " + owners[i] + " = " + owners[i - 1] + "." + component.getName() + "();");
+            }
+            String value = "value";
+            for (int i = path.size() - 1; i >= 0; i--) {
+                RecordComponent target = path.get(i);
+                Class<?> owner = target.getDeclaringRecord();
+                StringBuilder arguments = new StringBuilder();
+                for (RecordComponent component : owner.getRecordComponents()) {
+                    if (arguments.length() > 0) {
+                        arguments.append(", ");
+                    }
+                    arguments.append(component.getName().equals(target.getName()) ? value : owners[i] + "." + component.getName() + "()");
+                }
+                value = "Interner.intern(new " + owner.getSimpleName() + "(" + arguments + "))";
+                if (i > 0) {
+                    String rebuilt = path.get(i - 1).getName() + i + "Updated";
+                    writer.writeLine(owner.getSimpleName() + " " + rebuilt + " = " + value + ";");
+                    value = rebuilt;
+                }
+            }
+            writer.writeLine("return " + value + ";");
+        });
+        writer.writeBlankLine();
+    }
+    
     private void generateWitherMethod(JavaCodeWriter writer, Class<?> recordClass, 
                                      RecordComponent component, RecordComponent[] allComponents) {
         String methodName = "with" + capitalize(component.getName());
@@ -122,7 +251,7 @@ public class RecordCodeGenerator {
         
         writer.writeMethod("public static " + recordName + " " + methodName + 
                           "(" + recordName + " entity, " + paramType + " " + paramName + ")", () -> {
-            writer.writeLine("return new " + recordName + "(");
+            writer.writeLine("return Interner.intern(new " + recordName + "(");
             writer.increaseIndent();
             for (int i = 0; i < allComponents.length; i++) {
                 RecordComponent comp = allComponents[i];
@@ -131,7 +260,32 @@ public class RecordCodeGenerator {
                 writer.writeLine(value + suffix);
             }
             writer.decreaseIndent();
-            writer.writeLine(");");
+            writer.writeLine("));");
+        });
+        writer.writeBlankLine();
+    }
+    
+    /**
+     * withComponents(entity, first, firstValue, second, secondValue): the Lens.PairWither that
+     * fused zips of two component lenses call, replacing both components with one constructor call.
+     */
+    private void generatePairWitherMethod(JavaCodeWriter writer, Class<?> recordClass, RecordComponent[] allComponents) {
+        String recordName = recordClass.getSimpleName();
+        
+        writer.writeLine("@SuppressWarnings(\"unchecked\")");
+        writer.writeMethod("public static " + recordName + " withComponents(" + recordName
+                + " entity, int first, Object firstValue, int second, Object secondValue)", () -> {
+            writer.writeLine("return Interner.intern(new " + recordName + "(");
+            writer.increaseIndent();
+            for (int i = 0; i < allComponents.length; i++) {
+                RecordComponent comp = allComponents[i];
+                String type = getTypeString(comp.getGenericType());
+                String suffix = (i == allComponents.length - 1) ? "" : ",";
+                writer.writeLine("first == " + i + " ? (" + type + ") firstValue : second == " + i + " ? (" + type
+                        + ") secondValue : entity." + comp.getName() + "()" + suffix);
+            }
+            writer.decreaseIndent();
+            writer.writeLine("));");
         });
         writer.writeBlankLine();
     }
@@ -178,21 +332,21 @@ public class RecordCodeGenerator {
             // Direct record type
             String lensClassName = getTypeString(type) + "Lens";
             writer.writeMethod("public static " + lensClassName + " " + methodName + "()", () -> {
-                writer.writeLine("return new " + lensClassName + "(" + recordName + "::" + methodName + ", " + withersName + "::with" + capitalize(methodName) + ");");
+                writer.writeLine("return new " + lensClassName + "(" + componentLens(recordClass, component) + ");");
             });
         } else if (isOptionalType(type) && isRecordType(getOptionalElementType(type))) {
             // Optional record type
             String elementType = getTypeString(getOptionalElementType(type));
             String lensClassName = "Optional" + elementType + "Lens";
             writer.writeMethod("public static " + lensClassName + " " + methodName + "()", () -> {
-                writer.writeLine("return new " + lensClassName + "(" + recordName + "::" + methodName + ", " + withersName + "::with" + capitalize(methodName) + ", " + elementType + "Lens::new);");
+                writer.writeLine("return new " + lensClassName + "(" + getterReference(recordClass, component) + ", " + witherReference(recordClass, component) + ", " + lensFactoryReference(recordName, elementType) + ");");
             });
         } else if (isListType(type) && isRecordType(getListElementType(type))) {
             // List of records
             String elementType = getTypeString(getListElementType(type));
             String lensClassName = elementType + "Lens";
             writer.writeMethod("public static ObjectListLensWrapper<" + recordName + ", " + elementType + ", " + lensClassName + "> " + methodName + "()", () -> {
-                writer.writeLine("return new ObjectListLensWrapper<>(" + recordName + "::" + methodName + ", " + withersName + "::with" + capitalize(methodName) + ", " + lensClassName + "::new);");
+                writer.writeLine("return new ObjectListLensWrapper<>(" + componentLens(recordClass, component) + ", " + elementLensFactoryReference(recordName, elementType) + ");");
             });
         } else if (isMapType(type) && isRecordType(getMapValueType(type))) {
             // Map with record values
@@ -200,25 +354,38 @@ public class RecordCodeGenerator {
             String valueType = getTypeString(getMapValueType(type));
             String lensClassName = valueType + "Lens";
             writer.writeMethod("public static ObjectMapLensWrapper<" + recordName + ", " + keyType + ", " + valueType + ", " + lensClassName + "> " + methodName + "()", () -> {
-                writer.writeLine("return new ObjectMapLensWrapper<>(" + recordName + "::" + methodName + ", " + withersName + "::with" + capitalize(methodName) + ", " + lensClassName + "::new);");
+                writer.writeLine("return new ObjectMapLensWrapper<>(" + componentLens(recordClass, component) + ", " + elementLensFactoryReference(recordName, valueType) + ");");
             });
         } else if (isListType(type)) {
             // List of primitives
             String elementType = getTypeString(getListElementType(type));
             writer.writeMethod("public static ListLensWrapper<" + recordName + ", " + elementType + "> " + methodName + "()", () -> {
-                writer.writeLine("return new ListLensWrapper<>(" + recordName + "::" + methodName + ", " + withersName + "::with" + capitalize(methodName) + ");");
+                writer.writeLine("return new ListLensWrapper<>(" + componentLens(recordClass, component) + ");");
             });
         } else if (isMapType(type)) {
             // Map of primitives
             String keyType = getTypeString(getMapKeyType(type));
             String valueType = getTypeString(getMapValueType(type));
             writer.writeMethod("public static MapLensWrapper<" + recordName + ", " + keyType + ", " + valueType + "> " + methodName + "()", () -> {
-                writer.writeLine("return new MapLensWrapper<>(" + recordName + "::" + methodName + ", " + withersName + "::with" + capitalize(methodName) + ");");
+                writer.writeLine("return new MapLensWrapper<>(" + componentLens(recordClass, component) + ");");
+            });
+        } else if (isSortedMapType(type)) {
+            // Sorted map, with range lenses over key intervals
+            String keyType = getTypeString(getMapKeyType(type));
+            String valueType = getTypeString(getMapValueType(type));
+            writer.writeMethod("public static SortedMapLensWrapper<" + recordName + ", " + keyType + ", " + valueType + "> " + methodName + "()", () -> {
+                writer.writeLine("return new SortedMapLensWrapper<>(" + componentLens(recordClass, component) + ");");
+            });
+        } else if (primitiveArrayLens(type) != null) {
+            // Primitive array, updated copy-on-write without boxing
+            String lensClassName = primitiveArrayLens(type);
+            writer.writeMethod("public static " + lensClassName + "<" + recordName + "> " + methodName + "()", () -> {
+                writer.writeLine("return new " + lensClassName + "<>(" + componentLens(recordClass, component) + ");");
             });
         } else {
             // Primitive or simple types
             writer.writeMethod("public static Lens<" + recordName + ", " + fieldType + "> " + methodName + "()", () -> {
-                writer.writeLine("return Lens.of(" + recordName + "::" + methodName + ", " + withersName + "::with" + capitalize(methodName) + ");");
+                writer.writeLine("return " + componentLens(recordClass, component) + ";");
             });
         }
         writer.writeBlankLine();
@@ -273,28 +440,33 @@ public class RecordCodeGenerator {
             // Field lens methods for nested record
             RecordComponent[] nestedComponents = nestedRecordClass.getRecordComponents();
             for (RecordComponent component : nestedComponents) {
-                generateNestedFieldLensMethod(writer, recordName, nestedName, nestedWithersName, component);
+                generateNestedFieldLensMethod(writer, recordName, nestedRecordClass, nestedWithersName, component);
             }
         });
         writer.writeBlankLine();
     }
     
-    private void generateNestedFieldLensMethod(JavaCodeWriter writer, String recordName, String nestedName, 
+    private void generateNestedFieldLensMethod(JavaCodeWriter writer, String recordName, Class<?> nestedRecordClass, 
                                              String nestedWithersName, RecordComponent component) {
         String methodName = component.getName();
+        String nestedName = nestedRecordClass.getSimpleName();
         String fieldType = getTypeString(component.getGenericType());
         Type type = component.getGenericType();
         
         if (isRecordType(type)) {
             String nestedLensClass = getTypeString(type) + "Lens";
             writer.writeMethod("public " + nestedLensClass + " " + methodName + "()", () -> {
-                writer.writeLine("return new " + nestedLensClass + "(entity -> lens.get(entity)." + methodName + "(), (entity, new" + capitalize(methodName) + ") -> lens.set(entity, " + nestedWithersName + ".with" + capitalize(methodName) + "(lens.get(entity), new" + capitalize(methodName) + ")));");
+                writer.writeLine("return new " + nestedLensClass + "(this.lens.andThen(" + componentLens(nestedRecordClass, component) + "));");
             });
         } else if (isOptionalType(type) && isRecordType(getOptionalElementType(type))) {
             // Handle Optional<RecordType> fields (including self-referencing ones)
             String optionalElementType = getTypeString(getOptionalElementType(type));
             String nestedLensClass = optionalElementType + "Lens";
             writer.writeMethod("public " + nestedLensClass + " " + methodName + "()", () -> {
+                if (lambdaFree) {
+                    writer.writeLine("return new " + nestedLensClass + "(this.lens.andThen(" + componentLens(nestedRecordClass, component) + ").andThen(Lens.orNull()));");
+                    return;
+                }
                 writer.writeLine("return new " + nestedLensClass + "(");
                 writer.increaseIndent();
                 writer.writeLine("entity -> lens.get(entity)." + methodName + "().orElse(null),");
@@ -302,9 +474,20 @@ public class RecordCodeGenerator {
                 writer.decreaseIndent();
                 writer.writeLine(");");
             });
+        } else if (isSortedMapType(type)) {
+            String keyType = getTypeString(getMapKeyType(type));
+            String valueType = getTypeString(getMapValueType(type));
+            writer.writeMethod("public SortedMapLensWrapper<" + recordName + ", " + keyType + ", " + valueType + "> " + methodName + "()", () -> {
+                writer.writeLine("return new SortedMapLensWrapper<>(this.lens.andThen(" + componentLens(nestedRecordClass, component) + "));");
+            });
+        } else if (primitiveArrayLens(type) != null) {
+            String lensClassName = primitiveArrayLens(type);
+            writer.writeMethod("public " + lensClassName + "<" + recordName + "> " + methodName + "()", () -> {
+                writer.writeLine("return new " + lensClassName + "<>(this.lens.andThen(" + componentLens(nestedRecordClass, component) + "));");
+            });
         } else {
             writer.writeMethod("public Lens<" + recordName + ", " + fieldType + "> " + methodName + "()", () -> {
-                writer.writeLine("return this.lens.andThen(Lens.of(" + nestedName + "::" + methodName + ", " + nestedWithersName + "::with" + capitalize(methodName) + "));");
+                writer.writeLine("return this.lens.andThen(" + componentLens(nestedRecordClass, component) + ");");
             });
         }
         writer.writeBlankLine();
@@ -349,17 +532,304 @@ public class RecordCodeGenerator {
         if (isRecordType(type)) {
             String nestedLensClass = getTypeString(type) + "Lens";
             writer.writeMethod("public " + nestedLensClass + " " + methodName + "()", () -> {
-                writer.writeLine("return this.<" + nestedLensClass + ", " + getTypeString(type) + ">createNestedLens(" + nestedName + "::" + methodName + ", " + nestedWithersName + "::with" + capitalize(methodName) + ", " + nestedLensClass + "::new);");
+                writer.writeLine("return this.<" + nestedLensClass + ", " + getTypeString(type) + ">createNestedLens(" + getterReference(component.getDeclaringRecord(), component) + ", " + witherReference(component.getDeclaringRecord(), component) + ", " + lensFactoryReference(recordName, getTypeString(type)) + ");");
             });
         } else {
             String defaultValue = getDefaultValue(type);
             writer.writeMethod("public Lens<" + recordName + ", " + fieldType + "> " + methodName + "()", () -> {
-                writer.writeLine("return createPropertyLens(" + nestedName + "::" + methodName + ", " + nestedWithersName + "::with" + capitalize(methodName) + ", " + defaultValue + ");");
+                writer.writeLine("return createPropertyLens(" + getterReference(component.getDeclaringRecord(), component) + ", " + witherReference(component.getDeclaringRecord(), component) + ", " + defaultValue + ");");
             });
         }
         writer.writeBlankLine();
     }
     
+    /**
+     * Generate a reflection-free binary codec. Records, lists and maps nested in a value are
+     * prefixed with their encoded size as a fixed int, so a reader can skip them without decoding.
+     */
+    private void generateCodec(Class<?> recordClass) throws IOException {
+        String recordName = recordClass.getSimpleName();
+        String className = recordName + "Codec";
+        Path filePath = outputDirectory.resolve(className + ".java");
+        codecVariableCounter = 0;
+        
+        try (PrintWriter writer = new PrintWriter(Files.newBufferedWriter(filePath))) {
+            JavaCodeWriter codeWriter = new JavaCodeWriter(writer);
+            
+            codeWriter.writePackage(targetPackage);
+            codeWriter.writeImports(getCodecImports(recordClass));
+            codeWriter.writeClassDeclaration("public final class " + className + " implements RecordCodec<" + recordName + ">", () -> {
+                codeWriter.writeLine("public static final " + className + " INSTANCE = new " + className + "();");
+                codeWriter.writeBlankLine();
+                
+                RecordComponent[] components = recordClass.getRecordComponents();
+                for (int i = 0; i < components.length; i++) {
+                    Type type = components[i].getGenericType();
+                    codeWriter.writeLine("private static final EncodedLens<" + recordName + ", " + getBoxedTypeString(type) + "> "
+                            + constantName(components[i].getName()) + " = EncodedLens.of(INSTANCE, " + i + ", " + componentCodec(type) + ");");
+                }
+                codeWriter.writeBlankLine();
+                codeWriter.writePrivateConstructor(className);
+                codeWriter.writeBlankLine();
+                
+                for (RecordComponent component : components) {
+                    codeWriter.writeMethod("public static EncodedLens<" + recordName + ", " + getBoxedTypeString(component.getGenericType()) + "> " + component.getName() + "()", () -> {
+                        codeWriter.writeLine("return " + constantName(component.getName()) + ";");
+                    });
+                    codeWriter.writeBlankLine();
+                }
+                
+                codeWriter.writeLine("@Override");
+                codeWriter.writeMethod("public void locate(ByteBuffer buffer, int index)", () -> {
+                    for (int i = 0; i < components.length - 1; i++) {
+                        codeWriter.writeMethod("if (index == " + i + ")", () -> codeWriter.writeLine("return;"));
+                        writeCodecSkip(codeWriter, components[i].getGenericType());
+                    }
+                });
+                codeWriter.writeBlankLine();
+                
+                codeWriter.writeLine("@Override");
+                codeWriter.writeMethod("public void skip(ByteBuffer buffer)", () -> {
+                    for (RecordComponent component : components) {
+                        writeCodecSkip(codeWriter, component.getGenericType());
+                    }
+                });
+                codeWriter.writeBlankLine();
+                
+                codeWriter.writeLine("@Override");
+                codeWriter.writeMethod("public void write(ByteBuffer buffer, " + recordName + " value)", () -> {
+                    for (RecordComponent component : components) {
+                        writeCodecWrite(codeWriter, component.getGenericType(), "value." + component.getName() + "()");
+                    }
+                });
+                codeWriter.writeBlankLine();
+                
+                codeWriter.writeLine("@Override");
+                codeWriter.writeMethod("public " + recordName + " read(ByteBuffer buffer)", () -> {
+                    List<String> values = new ArrayList<>();
+                    for (RecordComponent component : components) {
+                        values.add(writeCodecRead(codeWriter, component.getGenericType()));
+                    }
+                    codeWriter.writeLine("return new " + recordName + "(" + String.join(", ", values) + ");");
+                });
+            });
+        }
+    }
+    
+    private void writeCodecWrite(JavaCodeWriter writer, Type type, String value) {
+        if (type == String.class) {
+            writer.writeLine("Codecs.writeString(buffer, " + value + ");");
+        } else if (type == int.class || type == Integer.class) {
+            writer.writeLine("Codecs.writeInt(buffer, " + value + ");");
+        } else if (type == long.class || type == Long.class) {
+            writer.writeLine("Codecs.writeLong(buffer, " + value + ");");
+        } else if (type == boolean.class || type == Boolean.class) {
+            writer.writeLine("buffer.put((byte) (" + value + " ? 1 : 0));");
+        } else if (type == double.class || type == Double.class) {
+            writer.writeLine("buffer.putDouble(" + value + ");");
+        } else if (isRecordType(type)) {
+            writeSizePrefixed(writer, () -> writer.writeLine(getTypeString(type) + "Codec.INSTANCE.write(buffer, " + value + ");"));
+        } else if (primitiveArrayCodec(type) != null) {
+            writeSizePrefixed(writer, () -> writer.writeLine(primitiveArrayCodec(type) + ".write(buffer, " + value + ");"));
+        } else if (isOptionalType(type)) {
+            Type elementType = getOptionalElementType(type);
+            String optional = nextCodecVariable("optional");
+            writer.writeLine(getTypeString(type) + " " + optional + " = " + value + ";");
+            writeIfElse(writer, optional + ".isPresent()", () -> {
+                writer.writeLine("buffer.put((byte) 1);");
+                writeCodecWrite(writer, elementType, optional + ".get()");
+            }, () -> writer.writeLine("buffer.put((byte) 0);"));
+        } else if (isListType(type)) {
+            Type elementType = getListElementType(type);
+            String list = nextCodecVariable("list");
+            String element = nextCodecVariable("element");
+            writer.writeLine(getTypeString(type) + " " + list + " = " + value + ";");
+            writeSizePrefixed(writer, () -> {
+                writer.writeLine("Codecs.writeVarInt(buffer, " + list + ".size());");
+                writer.writeMethod("for (" + getTypeString(elementType) + " " + element + " : " + list + ")", () ->
+                    writeCodecWrite(writer, elementType, element));
+            });
+        } else if (isMapType(type) || isSortedMapType(type)) {
+            Type keyType = getMapKeyType(type);
+            Type valueType = getMapValueType(type);
+            String map = nextCodecVariable("map");
+            String entry = nextCodecVariable("entry");
+            writer.writeLine(getTypeString(type) + " " + map + " = " + value + ";");
+            writeSizePrefixed(writer, () -> {
+                writer.writeLine("Codecs.writeVarInt(buffer, " + map + ".size());");
+                writer.writeMethod("for (Map.Entry<" + getTypeString(keyType) + ", " + getTypeString(valueType) + "> " + entry + " : " + map + ".entrySet())", () -> {
+                    writeCodecWrite(writer, keyType, entry + ".getKey()");
+                    writeCodecWrite(writer, valueType, entry + ".getValue()");
+                });
+            });
+        } else {
+            throw new IllegalArgumentException("No codec for component type " + type.getTypeName());
+        }
+    }
+    
+    private void writeCodecSkip(JavaCodeWriter writer, Type type) {
+        if (type == String.class) {
+            writer.writeLine("Codecs.skipString(buffer);");
+        } else if (type == int.class || type == Integer.class || type == long.class || type == Long.class) {
+            writer.writeLine("Codecs.readVarLong(buffer);");
+        } else if (type == boolean.class || type == Boolean.class) {
+            writer.writeLine("buffer.position(buffer.position() + 1);");
+        } else if (type == double.class || type == Double.class) {
+            writer.writeLine("buffer.position(buffer.position() + Double.BYTES);");
+        } else if (isRecordType(type) || isListType(type) || isMapType(type) || isSortedMapType(type) || primitiveArrayCodec(type) != null) {
+            writer.writeLine("Codecs.skipSized(buffer);");
+        } else if (isOptionalType(type)) {
+            writer.writeMethod("if (buffer.get() != 0)", () -> writeCodecSkip(writer, getOptionalElementType(type)));
+        } else {
+            throw new IllegalArgumentException("No codec for component type " + type.getTypeName());
+        }
+    }
+    
+    /**
+     * Codec expression matching the inline encoding of a component, used by encoded lenses.
+     */
+    private String componentCodec(Type type) {
+        if (type == String.class) {
+            return "Codecs.STRING";
+        } else if (type == int.class || type == Integer.class) {
+            return "Codecs.INT";
+        } else if (type == long.class || type == Long.class) {
+            return "Codecs.LONG";
+        } else if (type == boolean.class || type == Boolean.class) {
+            return "Codecs.BOOLEAN";
+        } else if (type == double.class || type == Double.class) {
+            return "Codecs.DOUBLE";
+        } else if (isRecordType(type)) {
+            return "Codecs.sized(" + getTypeString(type) + "Codec.INSTANCE)";
+        } else if (primitiveArrayCodec(type) != null) {
+            return "Codecs.sized(" + primitiveArrayCodec(type) + ")";
+        } else if (isOptionalType(type)) {
+            return "Codecs.optional(" + componentCodec(getOptionalElementType(type)) + ")";
+        } else if (isListType(type)) {
+            return "Codecs.sized(Codecs.list(" + componentCodec(getListElementType(type)) + "))";
+        } else if (isMapType(type)) {
+            return "Codecs.sized(Codecs.map(" + componentCodec(getMapKeyType(type)) + ", " + componentCodec(getMapValueType(type)) + "))";
+        } else if (isSortedMapType(type)) {
+            return "Codecs.sized(Codecs.sortedMap(" + componentCodec(getMapKeyType(type)) + ", " + componentCodec(getMapValueType(type)) + "))";
+        }
+        throw new IllegalArgumentException("No codec for component type " + type.getTypeName());
+    }
+    
+    private String getBoxedTypeString(Type type) {
+        if (type == int.class) {
+            return "Integer";
+        } else if (type == long.class) {
+            return "Long";
+        } else if (type == boolean.class) {
+            return "Boolean";
+        } else if (type == double.class) {
+            return "Double";
+        }
+        return getTypeString(type);
+    }
+    
+    private String constantName(String componentName) {
+        return componentName.replaceAll("([a-z0-9])([A-Z])", "$1_$2").toUpperCase();
+    }
+    
+    private void writeIfElse(JavaCodeWriter writer, String condition, JavaCodeWriter.CodeBlock then, JavaCodeWriter.CodeBlock otherwise) {
+        writer.writeLine("if (" + condition + ") {");
+        writer.increaseIndent();
+        then.write();
+        writer.decreaseIndent();
+        writer.writeLine("} else {");
+        writer.increaseIndent();
+        otherwise.write();
+        writer.decreaseIndent();
+        writer.writeLine("}");
+    }
+    
+    private void writeSizePrefixed(JavaCodeWriter writer, JavaCodeWriter.CodeBlock body) {
+        String start = nextCodecVariable("start");
+        writer.writeLine("int " + start + " = buffer.position();");
+        writer.writeLine("buffer.position(" + start + " + Integer.BYTES);");
+        body.write();
+        writer.writeLine("buffer.putInt(" + start + ", buffer.position() - " + start + " - Integer.BYTES);");
+    }
+    
+    /**
+     * Emit the statements reading a value of the given type and return the expression holding it.
+     */
+    private String writeCodecRead(JavaCodeWriter writer, Type type) {
+        String typeString = getTypeString(type);
+        String value = nextCodecVariable("value");
+        if (type == String.class) {
+            writer.writeLine(typeString + " " + value + " = Codecs.readString(buffer);");
+        } else if (type == int.class || type == Integer.class) {
+            writer.writeLine(typeString + " " + value + " = Codecs.readInt(buffer);");
+        } else if (type == long.class || type == Long.class) {
+            writer.writeLine(typeString + " " + value + " = Codecs.readLong(buffer);");
+        } else if (type == boolean.class || type == Boolean.class) {
+            writer.writeLine(typeString + " " + value + " = buffer.get() != 0;");
+        } else if (type == double.class || type == Double.class) {
+            writer.writeLine(typeString + " " + value + " = buffer.getDouble();");
+        } else if (isRecordType(type)) {
+            writer.writeLine("buffer.position(buffer.position() + Integer.BYTES);");
+            writer.writeLine(typeString + " " + value + " = " + typeString + "Codec.INSTANCE.read(buffer);");
+        } else if (primitiveArrayCodec(type) != null) {
+            writer.writeLine("buffer.position(buffer.position() + Integer.BYTES);");
+            writer.writeLine(typeString + " " + value + " = " + primitiveArrayCodec(type) + ".read(buffer);");
+        } else if (isOptionalType(type)) {
+            writer.writeLine(typeString + " " + value + ";");
+            writeIfElse(writer, "buffer.get() != 0",
+                () -> writer.writeLine(value + " = Optional.of(" + writeCodecRead(writer, getOptionalElementType(type)) + ");"),
+                () -> writer.writeLine(value + " = Optional.empty();"));
+        } else if (isListType(type)) {
+            Type elementType = getListElementType(type);
+            String count = nextCodecVariable("count");
+            String list = nextCodecVariable("list");
+            String index = nextCodecVariable("i");
+            writer.writeLine("buffer.position(buffer.position() + Integer.BYTES);");
+            writer.writeLine("int " + count + " = Codecs.readVarInt(buffer);");
+            writer.writeLine("ArrayList<" + getTypeString(elementType) + "> " + list + " = new ArrayList<>(" + count + ");");
+            writer.writeMethod("for (int " + index + " = 0; " + index + " < " + count + "; " + index + "++)", () ->
+                writer.writeLine(list + ".add(" + writeCodecRead(writer, elementType) + ");"));
+            writer.writeLine(typeString + " " + value + " = List.copyOf(" + list + ");");
+        } else if (isMapType(type)) {
+            Type keyType = getMapKeyType(type);
+            Type valueType = getMapValueType(type);
+            String count = nextCodecVariable("count");
+            String map = nextCodecVariable("map");
+            String index = nextCodecVariable("i");
+            writer.writeLine("buffer.position(buffer.position() + Integer.BYTES);");
+            writer.writeLine("int " + count + " = Codecs.readVarInt(buffer);");
+            writer.writeLine("HashMap<" + getTypeString(keyType) + ", " + getTypeString(valueType) + "> " + map + " = HashMap.newHashMap(" + count + ");");
+            writer.writeMethod("for (int " + index + " = 0; " + index + " < " + count + "; " + index + "++)", () -> {
+                String key = writeCodecRead(writer, keyType);
+                String mapValue = writeCodecRead(writer, valueType);
+                writer.writeLine(map + ".put(" + key + ", " + mapValue + ");");
+            });
+            writer.writeLine(typeString + " " + value + " = Map.copyOf(" + map + ");");
+        } else if (isSortedMapType(type)) {
+            Type keyType = getMapKeyType(type);
+            Type valueType = getMapValueType(type);
+            String count = nextCodecVariable("count");
+            String map = nextCodecVariable("map");
+            String index = nextCodecVariable("i");
+            writer.writeLine("buffer.position(buffer.position() + Integer.BYTES);");
+            writer.writeLine("int " + count + " = Codecs.readVarInt(buffer);");
+            writer.writeLine("TreeMap<" + getTypeString(keyType) + ", " + getTypeString(valueType) + "> " + map + " = new TreeMap<>();");
+            writer.writeMethod("for (int " + index + " = 0; " + index + " < " + count + "; " + index + "++)", () -> {
+                String key = writeCodecRead(writer, keyType);
+                String mapValue = writeCodecRead(writer, valueType);
+                writer.writeLine(map + ".put(" + key + ", " + mapValue + ");");
+            });
+            writer.writeLine(typeString + " " + value + " = Collections.unmodifiableNavigableMap(" + map + ");");
+        } else {
+            throw new IllegalArgumentException("No codec for component type " + type.getTypeName());
+        }
+        return value;
+    }
+    
+    private String nextCodecVariable(String prefix) {
+        return prefix + codecVariableCounter++;
+    }
+    
     private String getDefaultValue(Type type) {
         if (type == String.class) {
             return "\"\"";
@@ -373,10 +843,163 @@ public class RecordCodeGenerator {
     
     
     
+    /**
+     * Lens.ofComponent expression for a record component, tagged with its index and erased
+     * type and given the record's pair wither, so that sibling lenses can be zipped into a
+     * single constructor call.
+     */
+    private String componentLens(Class<?> recordClass, RecordComponent component) {
+        String recordName = recordClass.getSimpleName();
+        return "Lens.ofComponent(" + recordName + ".class, " + componentIndex(recordClass, component) + ", "
+                + component.getType().getCanonicalName() + ".class, "
+                + getterReference(recordClass, component) + ", " + witherReference(recordClass, component) + ", "
+                + pairWitherReference(recordClass) + ")";
+    }
+    
+    private String pairWitherReference(Class<?> recordClass) {
+        String recordName = recordClass.getSimpleName();
+        if (lambdaFree) {
+            pairWithers.add(recordName);
+            return recordName + "PairWither.INSTANCE";
+        }
+        return recordName + "Withers::withComponents";
+    }
+    
+    private String getterReference(Class<?> recordClass, RecordComponent component) {
+        if (lambdaFree) {
+            return accessor(recordClass, component).className() + "Getter.INSTANCE";
+        }
+        return recordClass.getSimpleName() + "::" + component.getName();
+    }
+    
+    private String witherReference(Class<?> recordClass, RecordComponent component) {
+        if (lambdaFree) {
+            return accessor(recordClass, component).className() + "Wither.INSTANCE";
+        }
+        return recordClass.getSimpleName() + "Withers::with" + capitalize(component.getName());
+    }
+    
+    private String lensFactoryReference(String rootName, String valueName) {
+        String lensClassName = valueName + "Lens";
+        if (lambdaFree) {
+            LensFactory factory = new LensFactory(lensClassName + "Factory", lensClassName, rootName, valueName, false);
+            lensFactories.putIfAbsent(factory.className(), factory);
+            return factory.className() + ".INSTANCE";
+        }
+        return lensClassName + "::new";
+    }
+    
+    /**
+     * Reference to the (getter, setter) constructor of a lens class, as list and map wrappers take.
+     */
+    private String elementLensFactoryReference(String rootName, String valueName) {
+        String lensClassName = valueName + "Lens";
+        if (lambdaFree) {
+            LensFactory factory = new LensFactory(lensClassName + "ElementFactory", lensClassName, rootName, valueName, true);
+            lensFactories.putIfAbsent(factory.className(), factory);
+            return factory.className() + ".INSTANCE";
+        }
+        return lensClassName + "::new";
+    }
+    
+    private Accessor accessor(Class<?> recordClass, RecordComponent component) {
+        String recordName = recordClass.getSimpleName();
+        Accessor accessor = new Accessor(recordName + capitalize(component.getName()), recordName,
+                component.getName(), getBoxedTypeString(component.getGenericType()));
+        accessors.putIfAbsent(accessor.className(), accessor);
+        return accessor;
+    }
+    
+    /**
+     * A getter and a wither class per referenced component, a pair wither class per referenced
+     * record and a factory class per lens class, each with a singleton instance.
+     */
+    private void generateAccessorClasses(JavaCodeWriter writer) {
+        for (Accessor accessor : accessors.values()) {
+            String record = accessor.recordName();
+            String value = accessor.typeString();
+            String getter = accessor.className() + "Getter";
+            String wither = accessor.className() + "Wither";
+            writer.writeClassDeclaration("private static final class " + getter + " implements Function<" + record + ", " + value + ">", () -> {
+                writer.writeLine("static final " + getter + " INSTANCE = new " + getter + "();");
+                writer.writeBlankLine();
+                writer.writeLine("@Override");
+                writer.writeMethod("public " + value + " apply(" + record + " record)", () -> {
+                    writer.writeLine("return record." + accessor.componentName() + "();");
+                });
+            });
+            writer.writeBlankLine();
+            writer.writeClassDeclaration("private static final class " + wither + " implements BiFunction<" + record + ", " + value + ", " + record + ">", () -> {
+                writer.writeLine("static final " + wither + " INSTANCE = new " + wither + "();");
+                writer.writeBlankLine();
+                writer.writeLine("@Override");
+                writer.writeMethod("public " + record + " apply(" + record + " record, " + value + " value)", () -> {
+                    writer.writeLine("return " + record + "Withers.with" + capitalize(accessor.componentName()) + "(record, value);");
+                });
+            });
+            writer.writeBlankLine();
+        }
+        for (String record : pairWithers) {
+            String pairWither = record + "PairWither";
+            writer.writeClassDeclaration("private static final class " + pairWither + " implements Lens.PairWither<" + record + ">", () -> {
+                writer.writeLine("static final " + pairWither + " INSTANCE = new " + pairWither + "();");
+                writer.writeBlankLine();
+                writer.writeLine("@Override");
+                writer.writeMethod("public " + record + " with(" + record + " record, int first, Object firstValue, int second, Object secondValue)", () -> {
+                    writer.writeLine("return " + record + "Withers.withComponents(record, first, firstValue, second, secondValue);");
+                });
+            });
+            writer.writeBlankLine();
+        }
+        for (LensFactory factory : lensFactories.values()) {
+            String root = factory.rootName();
+            String value = factory.valueName();
+            String lensClass = factory.lensClassName();
+            String getterType = "Function<" + root + ", " + value + ">";
+            String setterType = "BiFunction<" + root + ", " + value + ", " + root + ">";
+            String implemented = factory.fromAccessors()
+                    ? "BiFunction<" + getterType + ", " + setterType + ", " + lensClass + ">"
+                    : "Function<Lens<" + root + ", " + value + ">, " + lensClass + ">";
+            writer.writeClassDeclaration("private static final class " + factory.className() + " implements " + implemented, () -> {
+                writer.writeLine("static final " + factory.className() + " INSTANCE = new " + factory.className() + "();");
+                writer.writeBlankLine();
+                writer.writeLine("@Override");
+                if (factory.fromAccessors()) {
+                    writer.writeMethod("public " + lensClass + " apply(" + getterType + " getter, " + setterType + " setter)", () -> {
+                        writer.writeLine("return new " + lensClass + "(getter, setter);");
+                    });
+                } else {
+                    writer.writeMethod("public " + lensClass + " apply(Lens<" + root + ", " + value + "> lens)", () -> {
+                        writer.writeLine("return new " + lensClass + "(lens);");
+                    });
+                }
+            });
+            writer.writeBlankLine();
+        }
+        accessors.clear();
+        pairWithers.clear();
+        lensFactories.clear();
+    }
+    
+    private record Accessor(String className, String recordName, String componentName, String typeString) {}
+    
+    private record LensFactory(String className, String lensClassName, String rootName, String valueName, boolean fromAccessors) {}
+    
+    private int componentIndex(Class<?> recordClass, RecordComponent component) {
+        RecordComponent[] components = recordClass.getRecordComponents();
+        for (int i = 0; i < components.length; i++) {
+            if (components[i].getName().equals(component.getName())) {
+                return i;
+            }
+        }
+        throw new IllegalArgumentException("No component " + component.getName() + " in " + recordClass.getName());
+    }
+    
     // Utility methods
     
     private Set<String> getWithersImports(Class<?> recordClass) {
         Set<String> imports = new HashSet<>();
+        imports.add("lib.Interner");
         for (RecordComponent component : recordClass.getRecordComponents()) {
             addImportsForType(imports, component.getGenericType());
         }
@@ -401,6 +1024,36 @@ public class RecordCodeGenerator {
         return imports;
     }
     
+    private Set<String> getCodecImports(Class<?> recordClass) {
+        Set<String> imports = new HashSet<>();
+        imports.add("java.nio.ByteBuffer");
+        imports.add("lib.Codecs");
+        imports.add("lib.EncodedLens");
+        imports.add("lib.RecordCodec");
+        for (RecordComponent component : recordClass.getRecordComponents()) {
+            addCodecImportsForType(imports, component.getGenericType());
+        }
+        return imports;
+    }
+    
+    private void addCodecImportsForType(Set<String> imports, Type type) {
+        addImportsForType(imports, type);
+        if (isListType(type)) {
+            imports.add("java.util.ArrayList");
+        } else if (isMapType(type)) {
+            imports.add("java.util.HashMap");
+        } else if (isSortedMapType(type)) {
+            imports.add("java.util.Collections");
+            imports.add("java.util.Map");
+            imports.add("java.util.TreeMap");
+        }
+        if (type instanceof ParameterizedType paramType) {
+            for (Type argType : paramType.getActualTypeArguments()) {
+                addCodecImportsForType(imports, argType);
+            }
+        }
+    }
+    
     private void addImportsForType(Set<String> imports, Type type) {
         if (type instanceof ParameterizedType paramType) {
             Class<?> rawType = (Class<?>) paramType.getRawType();
@@ -410,6 +1063,8 @@ public class RecordCodeGenerator {
                 imports.add("java.util.List");
             } else if (rawType == Map.class) {
                 imports.add("java.util.Map");
+            } else if (rawType == NavigableMap.class) {
+                imports.add("java.util.NavigableMap");
             }
             
             for (Type argType : paramType.getActualTypeArguments()) {
@@ -462,7 +1117,7 @@ public class RecordCodeGenerator {
                 nestedRecordType = (Class<?>) getOptionalElementType(type);
             } else if (isListType(type) && isRecordType(getListElementType(type))) {
                 nestedRecordType = (Class<?>) getListElementType(type);
-            } else if (isMapType(type) && isRecordType(getMapValueType(type))) {
+            } else if ((isMapType(type) || isSortedMapType(type)) && isRecordType(getMapValueType(type))) {
                 nestedRecordType = (Class<?>) getMapValueType(type);
             }
             
@@ -491,6 +1146,8 @@ public class RecordCodeGenerator {
                 return "List<" + getTypeString(args[0]) + ">";
             } else if (rawType == Map.class) {
                 return "Map<" + getTypeString(args[0]) + ", " + getTypeString(args[1]) + ">";
+            } else if (rawType == NavigableMap.class) {
+                return "NavigableMap<" + getTypeString(args[0]) + ", " + getTypeString(args[1]) + ">";
             }
         }
         
@@ -516,6 +1173,36 @@ public class RecordCodeGenerator {
                paramType.getRawType() == Map.class;
     }
     
+    /**
+     * Lens class for an int, long or double array component, or null for any other type.
+     */
+    private String primitiveArrayLens(Type type) {
+        if (type == int[].class) {
+            return "IntArrayLens";
+        } else if (type == long[].class) {
+            return "LongArrayLens";
+        } else if (type == double[].class) {
+            return "DoubleArrayLens";
+        }
+        return null;
+    }
+    
+    private String primitiveArrayCodec(Type type) {
+        if (type == int[].class) {
+            return "Codecs.INT_ARRAY";
+        } else if (type == long[].class) {
+            return "Codecs.LONG_ARRAY";
+        } else if (type == double[].class) {
+            return "Codecs.DOUBLE_ARRAY";
+        }
+        return null;
+    }
+    
+    private boolean isSortedMapType(Type type) {
+        return type instanceof ParameterizedType paramType && 
+               paramType.getRawType() == NavigableMap.class;
+    }
+    
     private boolean isRecordType(Type type) {
         return type instanceof Class<?> clazz && clazz.isRecord();
     }
@@ -535,14 +1222,16 @@ public class RecordCodeGenerator {
     }
     
     private Type getMapKeyType(Type type) {
-        if (type instanceof ParameterizedType paramType && paramType.getRawType() == Map.class) {
+        if (isMapType(type) || isSortedMapType(type)) {
+            ParameterizedType paramType = (ParameterizedType) type;
             return paramType.getActualTypeArguments()[0];
         }
         throw new IllegalArgumentException("Not a Map type: " + type);
     }
     
     private Type getMapValueType(Type type) {
-        if (type instanceof ParameterizedType paramType && paramType.getRawType() == Map.class) {
+        if (isMapType(type) || isSortedMapType(type)) {
+            ParameterizedType paramType = (ParameterizedType) type;
             return paramType.getActualTypeArguments()[1];
         }
         throw new IllegalArgumentException("Not a Map type: " + type);
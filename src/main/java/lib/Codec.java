@@ -0,0 +1,25 @@
+package lib;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Binary encoding of values of one type into a {@link ByteBuffer}.
+ * Implementations write at the buffer's position and advance it; see {@link Codecs}
+ * for the primitive encodings and the helpers shared by generated record codecs.
+ *
+ * @param <T> the encoded type
+ */
+public interface Codec<T> {
+
+    void write(ByteBuffer buffer, T value);
+
+    T read(ByteBuffer buffer);
+
+    /**
+     * Advance past one encoded value. Codecs whose encoding carries its own size override this
+     * to skip without decoding.
+     */
+    default void skip(ByteBuffer buffer) {
+        read(buffer);
+    }
+}
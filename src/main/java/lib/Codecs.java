@@ -0,0 +1,444 @@
+package lib;
+
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.function.BiConsumer;
+
+/**
+ * Compact binary encodings: unsigned LEB128 varints for lengths and counts, zig-zag varints
+ * for signed integers and varint-length-prefixed UTF-8 for strings.
+ */
+public final class Codecs {
+
+    private static final int INITIAL_BUFFER_SIZE = 256;
+
+    public static final Codec<String> STRING = new Codec<>() {
+        @Override
+        public void write(ByteBuffer buffer, String value) {
+            writeString(buffer, value);
+        }
+
+        @Override
+        public String read(ByteBuffer buffer) {
+            return readString(buffer);
+        }
+
+        @Override
+        public void skip(ByteBuffer buffer) {
+            skipString(buffer);
+        }
+    };
+
+    public static final Codec<Integer> INT = new Codec<>() {
+        @Override
+        public void write(ByteBuffer buffer, Integer value) {
+            writeInt(buffer, value);
+        }
+
+        @Override
+        public Integer read(ByteBuffer buffer) {
+            return readInt(buffer);
+        }
+    };
+
+    public static final Codec<Long> LONG = new Codec<>() {
+        @Override
+        public void write(ByteBuffer buffer, Long value) {
+            writeLong(buffer, value);
+        }
+
+        @Override
+        public Long read(ByteBuffer buffer) {
+            return readLong(buffer);
+        }
+    };
+
+    public static final Codec<Boolean> BOOLEAN = new Codec<>() {
+        @Override
+        public void write(ByteBuffer buffer, Boolean value) {
+            buffer.put((byte) (value ? 1 : 0));
+        }
+
+        @Override
+        public Boolean read(ByteBuffer buffer) {
+            return buffer.get() != 0;
+        }
+    };
+
+    public static final Codec<Double> DOUBLE = new Codec<>() {
+        @Override
+        public void write(ByteBuffer buffer, Double value) {
+            buffer.putDouble(value);
+        }
+
+        @Override
+        public Double read(ByteBuffer buffer) {
+            return buffer.getDouble();
+        }
+    };
+
+    public static final Codec<int[]> INT_ARRAY = new Codec<>() {
+        @Override
+        public void write(ByteBuffer buffer, int[] value) {
+            writeVarInt(buffer, value.length);
+            for (int element : value) {
+                writeInt(buffer, element);
+            }
+        }
+
+        @Override
+        public int[] read(ByteBuffer buffer) {
+            int[] array = new int[readVarInt(buffer)];
+            for (int i = 0; i < array.length; i++) {
+                array[i] = readInt(buffer);
+            }
+            return array;
+        }
+    };
+
+    public static final Codec<long[]> LONG_ARRAY = new Codec<>() {
+        @Override
+        public void write(ByteBuffer buffer, long[] value) {
+            writeVarInt(buffer, value.length);
+            for (long element : value) {
+                writeLong(buffer, element);
+            }
+        }
+
+        @Override
+        public long[] read(ByteBuffer buffer) {
+            long[] array = new long[readVarInt(buffer)];
+            for (int i = 0; i < array.length; i++) {
+                array[i] = readLong(buffer);
+            }
+            return array;
+        }
+    };
+
+    /**
+     * Count followed by the raw doubles, copied in bulk through a double view of the buffer.
+     */
+    public static final Codec<double[]> DOUBLE_ARRAY = new Codec<>() {
+        @Override
+        public void write(ByteBuffer buffer, double[] value) {
+            writeVarInt(buffer, value.length);
+            buffer.asDoubleBuffer().put(value);
+            buffer.position(buffer.position() + value.length * Double.BYTES);
+        }
+
+        @Override
+        public double[] read(ByteBuffer buffer) {
+            double[] array = new double[readVarInt(buffer)];
+            buffer.asDoubleBuffer().get(array);
+            buffer.position(buffer.position() + array.length * Double.BYTES);
+            return array;
+        }
+
+        @Override
+        public void skip(ByteBuffer buffer) {
+            int length = readVarInt(buffer);
+            buffer.position(buffer.position() + length * Double.BYTES);
+        }
+    };
+
+    private Codecs() {}
+
+    public static <T> Codec<Optional<T>> optional(Codec<T> codec) {
+        return new Codec<>() {
+            @Override
+            public void write(ByteBuffer buffer, Optional<T> value) {
+                buffer.put((byte) (value.isPresent() ? 1 : 0));
+                value.ifPresent(v -> codec.write(buffer, v));
+            }
+
+            @Override
+            public Optional<T> read(ByteBuffer buffer) {
+                return buffer.get() == 0 ? Optional.empty() : Optional.of(codec.read(buffer));
+            }
+
+            @Override
+            public void skip(ByteBuffer buffer) {
+                if (buffer.get() != 0) {
+                    codec.skip(buffer);
+                }
+            }
+        };
+    }
+
+    public static <T> Codec<List<T>> list(Codec<T> codec) {
+        return new Codec<>() {
+            @Override
+            public void write(ByteBuffer buffer, List<T> value) {
+                writeVarInt(buffer, value.size());
+                for (T element : value) {
+                    codec.write(buffer, element);
+                }
+            }
+
+            @Override
+            public List<T> read(ByteBuffer buffer) {
+                int size = readVarInt(buffer);
+                List<T> list = new ArrayList<>(size);
+                for (int i = 0; i < size; i++) {
+                    list.add(codec.read(buffer));
+                }
+                return List.copyOf(list);
+            }
+
+            @Override
+            public void skip(ByteBuffer buffer) {
+                int size = readVarInt(buffer);
+                for (int i = 0; i < size; i++) {
+                    codec.skip(buffer);
+                }
+            }
+        };
+    }
+
+    public static <K, V> Codec<Map<K, V>> map(Codec<K> keyCodec, Codec<V> valueCodec) {
+        return new Codec<>() {
+            @Override
+            public void write(ByteBuffer buffer, Map<K, V> value) {
+                writeVarInt(buffer, value.size());
+                for (Map.Entry<K, V> entry : value.entrySet()) {
+                    keyCodec.write(buffer, entry.getKey());
+                    valueCodec.write(buffer, entry.getValue());
+                }
+            }
+
+            @Override
+            public Map<K, V> read(ByteBuffer buffer) {
+                int size = readVarInt(buffer);
+                Map<K, V> map = new HashMap<>(size * 2);
+                for (int i = 0; i < size; i++) {
+                    map.put(keyCodec.read(buffer), valueCodec.read(buffer));
+                }
+                return Map.copyOf(map);
+            }
+
+            @Override
+            public void skip(ByteBuffer buffer) {
+                int size = readVarInt(buffer);
+                for (int i = 0; i < size; i++) {
+                    keyCodec.skip(buffer);
+                    valueCodec.skip(buffer);
+                }
+            }
+        };
+    }
+
+    /**
+     * Entries in key order, read back into an unmodifiable {@link TreeMap} in natural key order.
+     * A map written with a custom comparator needs {@link #sortedMap(Codec, Codec, Comparator)}.
+     */
+    public static <K, V> Codec<NavigableMap<K, V>> sortedMap(Codec<K> keyCodec, Codec<V> valueCodec) {
+        return sortedMap(keyCodec, valueCodec, null);
+    }
+
+    /**
+     * Entries in key order, read back into an unmodifiable {@link TreeMap} ordered by the given
+     * comparator, or in natural key order when it is null. The comparator itself is not encoded.
+     */
+    public static <K, V> Codec<NavigableMap<K, V>> sortedMap(Codec<K> keyCodec, Codec<V> valueCodec, Comparator<? super K> comparator) {
+        Codec<Map<K, V>> entries = map(keyCodec, valueCodec);
+        return new Codec<>() {
+            @Override
+            public void write(ByteBuffer buffer, NavigableMap<K, V> value) {
+                entries.write(buffer, value);
+            }
+
+            @Override
+            public NavigableMap<K, V> read(ByteBuffer buffer) {
+                int size = readVarInt(buffer);
+                NavigableMap<K, V> map = new TreeMap<>(comparator);
+                for (int i = 0; i < size; i++) {
+                    map.put(keyCodec.read(buffer), valueCodec.read(buffer));
+                }
+                return Collections.unmodifiableNavigableMap(map);
+            }
+
+            @Override
+            public void skip(ByteBuffer buffer) {
+                entries.skip(buffer);
+            }
+        };
+    }
+
+    /**
+     * Prefix each value with its encoded size as a fixed int, so it can be skipped in O(1).
+     * Generated record codecs use this layout for nested records, lists and maps.
+     */
+    public static <T> Codec<T> sized(Codec<T> codec) {
+        return new Codec<>() {
+            @Override
+            public void write(ByteBuffer buffer, T value) {
+                int start = buffer.position();
+                buffer.position(start + Integer.BYTES);
+                codec.write(buffer, value);
+                buffer.putInt(start, buffer.position() - start - Integer.BYTES);
+            }
+
+            @Override
+            public T read(ByteBuffer buffer) {
+                buffer.position(buffer.position() + Integer.BYTES);
+                return codec.read(buffer);
+            }
+
+            @Override
+            public void skip(ByteBuffer buffer) {
+                skipSized(buffer);
+            }
+        };
+    }
+
+    /**
+     * Encode a value into a new heap buffer, flipped and ready for reading.
+     */
+    public static <T> ByteBuffer encode(Codec<T> codec, T value) {
+        LensEvents.CodecOperation event = new LensEvents.CodecOperation();
+        event.begin();
+        ByteBuffer encoded = encode(codec::write, value);
+        if (event.shouldCommit()) {
+            event.codec = codec.getClass().getName();
+            event.operation = "encode";
+            event.bytes = encoded.remaining();
+            event.commit();
+        }
+        return encoded;
+    }
+
+    static <T> ByteBuffer encode(BiConsumer<ByteBuffer, T> writer, T value) {
+        int size = INITIAL_BUFFER_SIZE;
+        while (true) {
+            ByteBuffer buffer = ByteBuffer.allocate(size);
+            try {
+                writer.accept(buffer, value);
+                return buffer.flip();
+            } catch (BufferOverflowException e) {
+                size *= 2;
+            }
+        }
+    }
+
+    /**
+     * Encode a value into a new direct buffer of exactly its encoded size.
+     */
+    public static <T> ByteBuffer encodeDirect(Codec<T> codec, T value) {
+        ByteBuffer heap = encode(codec, value);
+        return ByteBuffer.allocateDirect(heap.remaining()).put(heap).flip();
+    }
+
+    public static <T> T decode(Codec<T> codec, ByteBuffer buffer) {
+        LensEvents.CodecOperation event = new LensEvents.CodecOperation();
+        event.begin();
+        int start = buffer.position();
+        T value = codec.read(buffer);
+        if (event.shouldCommit()) {
+            event.codec = codec.getClass().getName();
+            event.operation = "decode";
+            event.bytes = buffer.position() - start;
+            event.commit();
+        }
+        return value;
+    }
+
+    // Primitive encodings, shared with generated codecs
+
+    public static void writeVarInt(ByteBuffer buffer, int value) {
+        while ((value & ~0x7F) != 0) {
+            buffer.put((byte) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        buffer.put((byte) value);
+    }
+
+    public static int readVarInt(ByteBuffer buffer) {
+        int result = 0;
+        for (int shift = 0; shift < 32; shift += 7) {
+            byte b = buffer.get();
+            result |= (b & 0x7F) << shift;
+            if (b >= 0) {
+                return result;
+            }
+        }
+        throw new IllegalStateException("Malformed varint");
+    }
+
+    public static void writeVarLong(ByteBuffer buffer, long value) {
+        while ((value & ~0x7FL) != 0) {
+            buffer.put((byte) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        buffer.put((byte) value);
+    }
+
+    public static long readVarLong(ByteBuffer buffer) {
+        long result = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            byte b = buffer.get();
+            result |= (long) (b & 0x7F) << shift;
+            if (b >= 0) {
+                return result;
+            }
+        }
+        throw new IllegalStateException("Malformed varlong");
+    }
+
+    public static void writeInt(ByteBuffer buffer, int value) {
+        writeVarInt(buffer, (value << 1) ^ (value >> 31));
+    }
+
+    public static int readInt(ByteBuffer buffer) {
+        int zigzag = readVarInt(buffer);
+        return (zigzag >>> 1) ^ -(zigzag & 1);
+    }
+
+    public static void writeLong(ByteBuffer buffer, long value) {
+        writeVarLong(buffer, (value << 1) ^ (value >> 63));
+    }
+
+    public static long readLong(ByteBuffer buffer) {
+        long zigzag = readVarLong(buffer);
+        return (zigzag >>> 1) ^ -(zigzag & 1);
+    }
+
+    public static void writeString(ByteBuffer buffer, String value) {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        writeVarInt(buffer, bytes.length);
+        buffer.put(bytes);
+    }
+
+    public static String readString(ByteBuffer buffer) {
+        int length = readVarInt(buffer);
+        String value;
+        if (buffer.hasArray()) {
+            value = new String(buffer.array(), buffer.arrayOffset() + buffer.position(), length, StandardCharsets.UTF_8);
+        } else {
+            byte[] bytes = new byte[length];
+            buffer.get(buffer.position(), bytes);
+            value = new String(bytes, StandardCharsets.UTF_8);
+        }
+        buffer.position(buffer.position() + length);
+        return value;
+    }
+
+    public static void skipString(ByteBuffer buffer) {
+        int length = readVarInt(buffer);
+        buffer.position(buffer.position() + length);
+    }
+
+    public static void skipSized(ByteBuffer buffer) {
+        int size = buffer.getInt();
+        buffer.position(buffer.position() + size);
+    }
+}
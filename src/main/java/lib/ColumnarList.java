@@ -0,0 +1,618 @@
+package lib;
+
+import java.nio.ByteBuffer;
+import java.nio.DoubleBuffer;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.RandomAccess;
+import java.util.function.UnaryOperator;
+
+/**
+ * Immutable list of records stored as one column per leaf component instead of one object
+ * graph per element.
+ *
+ * <p>Components that are themselves records are flattened, so a list of
+ * {@code Nested(String nestedValue, MoreNested moreNested)} has the columns
+ * {@code nestedValue} and {@code moreNested.moreNestedValue}. Strings are dictionary-encoded
+ * into an int column, {@code int}, {@code long}, {@code double} and {@code boolean}
+ * components are stored unboxed in buffers; any other component type is kept in an object
+ * array. Elements are materialized on {@link #get}.
+ *
+ * <p>Updates return a new list that shares every column it did not change: {@link #with}
+ * copies only the columns in which the new element differs, and {@link #mapColumn} rewrites a
+ * single column. {@link ListLens#index} uses {@code with}, so lenses and wrappers over a
+ * columnar list keep it columnar. Columns built in bulk that are large enough live in direct
+ * buffers; small columns and the copies made by {@code with} stay on the heap.
+ *
+ * <p>The string dictionary belongs to a list and the lists derived from it. Once it holds
+ * twice as many strings as the list has string cells, the next update re-encodes the string
+ * columns into a fresh dictionary, so a long chain of updates does not keep every string it
+ * ever saw.
+ *
+ * @param <T> the record type of the elements
+ */
+public final class ColumnarList<T extends Record> extends AbstractList<T> implements RandomAccess {
+
+    // Columns of at least this many bytes are built in direct buffers
+    private static final int DIRECT_THRESHOLD = 4096;
+
+    private final Layout layout;
+    private final Dictionary dictionary;
+    private final Column[] columns;
+    private final int size;
+
+    private ColumnarList(Layout layout, Dictionary dictionary, Column[] columns, int size) {
+        this.layout = layout;
+        this.dictionary = dictionary;
+        this.columns = columns;
+        this.size = size;
+    }
+
+    public static <T extends Record> ColumnarList<T> of(Class<T> type, List<? extends T> elements) {
+        Layout layout = Layout.of(type);
+        int size = elements.size();
+        Object[][] values = new Object[layout.leaves.size()][size];
+        for (int i = 0; i < size; i++) {
+            T element = Objects.requireNonNull(elements.get(i), "element");
+            layout.root.flatten(element, values, i);
+        }
+        Dictionary dictionary = new Dictionary();
+        Column[] columns = new Column[values.length];
+        for (int c = 0; c < columns.length; c++) {
+            columns[c] = Column.of(layout.leaves.get(c).type, values[c], dictionary);
+        }
+        return new ColumnarList<>(layout, dictionary, columns, size);
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public T get(int index) {
+        Objects.checkIndex(index, size);
+        return (T) layout.root.materialize(columns, index);
+    }
+
+    /**
+     * A list with the element at {@code index} replaced, sharing every column in which the
+     * new element does not differ. Returns this list if no column changes.
+     */
+    public ColumnarList<T> with(int index, T element) {
+        Objects.checkIndex(index, size);
+        Object[] values = new Object[columns.length];
+        layout.root.flatten(Objects.requireNonNull(element, "element"), values);
+        Column[] updated = null;
+        for (int c = 0; c < columns.length; c++) {
+            Column column = columns[c].with(index, values[c], dictionary);
+            if (column != columns[c]) {
+                if (updated == null) {
+                    updated = columns.clone();
+                }
+                updated[c] = column;
+            }
+        }
+        return updated == null ? this : derive(updated);
+    }
+
+    /**
+     * A list with the elements from {@code from} replaced by {@code elements}, copying each
+     * column in which they differ once. Returns this list if no column changes.
+     */
+    public ColumnarList<T> withRange(int from, List<? extends T> elements) {
+        Objects.checkFromIndexSize(from, elements.size(), size);
+        Object[][] values = new Object[columns.length][elements.size()];
+        for (int i = 0; i < elements.size(); i++) {
+            layout.root.flatten(Objects.requireNonNull(elements.get(i), "element"), values, i);
+        }
+        Column[] updated = null;
+        for (int c = 0; c < columns.length; c++) {
+            Column column = columns[c].withRange(from, values[c], size);
+            if (column != columns[c]) {
+                if (updated == null) {
+                    updated = columns.clone();
+                }
+                updated[c] = column;
+            }
+        }
+        return updated == null ? this : derive(updated);
+    }
+
+    /**
+     * Read-only view of one leaf column, named by its dotted component path.
+     */
+    @SuppressWarnings("unchecked")
+    public <B> List<B> column(String path) {
+        Column column = columns[layout.indexOf(path)];
+        return new AbstractList<>() {
+            @Override
+            public B get(int index) {
+                Objects.checkIndex(index, size);
+                return (B) column.get(index);
+            }
+
+            @Override
+            public int size() {
+                return size;
+            }
+        };
+    }
+
+    /**
+     * A list with {@code f} applied to every value of one leaf column; the other columns are
+     * shared. On a string column, {@code f} is applied once per distinct value.
+     */
+    @SuppressWarnings("unchecked")
+    public <B> ColumnarList<T> mapColumn(String path, UnaryOperator<B> f) {
+        int c = layout.indexOf(path);
+        Column column = columns[c].map((UnaryOperator<Object>) f, size, dictionary);
+        if (column == columns[c]) {
+            return this;
+        }
+        Column[] updated = columns.clone();
+        updated[c] = column;
+        return derive(updated);
+    }
+
+    /**
+     * A list over the updated columns, re-encoding the string columns into a fresh dictionary
+     * when the shared one has grown to twice the number of string cells.
+     */
+    private ColumnarList<T> derive(Column[] updated) {
+        int cells = Math.max(size * layout.stringColumns, 16);
+        if (dictionary.size() <= 2 * cells) {
+            return new ColumnarList<>(layout, dictionary, updated, size);
+        }
+        Dictionary compacted = new Dictionary();
+        for (int c = 0; c < updated.length; c++) {
+            if (updated[c] instanceof StringColumn column) {
+                updated[c] = column.recode(compacted, size);
+            }
+        }
+        return new ColumnarList<>(layout, compacted, updated, size);
+    }
+
+    /**
+     * The leaf columns of a record type and how to reassemble elements from them.
+     */
+    private static final class Layout {
+
+        private static final ClassValue<Layout> LAYOUTS = new ClassValue<>() {
+            @Override
+            protected Layout computeValue(Class<?> type) {
+                return new Layout(type);
+            }
+        };
+
+        final List<Leaf> leaves = new ArrayList<>();
+        final Map<String, Integer> indexes = new LinkedHashMap<>();
+        final Node root;
+        final int stringColumns;
+
+        private Layout(Class<?> type) {
+            this.root = node(type, "");
+            this.stringColumns = (int) leaves.stream().filter(leaf -> leaf.type == String.class).count();
+        }
+
+        static Layout of(Class<?> type) {
+            RecordLens.shape(type);
+            return LAYOUTS.get(type);
+        }
+
+        private Node node(Class<?> type, String prefix) {
+            RecordLens.Shape shape = RecordLens.shape(type);
+            Node[] children = new Node[shape.names.length];
+            int[] columns = new int[shape.names.length];
+            for (int i = 0; i < children.length; i++) {
+                String path = prefix + shape.names[i];
+                Class<?> componentType = shape.types[i];
+                if (componentType.isRecord() && componentType != type) {
+                    children[i] = node(componentType, path + ".");
+                } else {
+                    columns[i] = leaves.size();
+                    indexes.put(path, leaves.size());
+                    leaves.add(new Leaf(path, componentType));
+                }
+            }
+            return new Node(shape, children, columns);
+        }
+
+        int indexOf(String path) {
+            Integer index = indexes.get(path);
+            if (index == null) {
+                throw new IllegalArgumentException("No column '" + path + "', columns are " + indexes.keySet());
+            }
+            return index;
+        }
+    }
+
+    private record Leaf(String path, Class<?> type) {}
+
+    private record Node(RecordLens.Shape shape, Node[] children, int[] columns) {
+
+        void flatten(Object record, Object[][] values, int row) {
+            for (int i = 0; i < children.length; i++) {
+                Object value = shape.get(record, i);
+                if (children[i] != null) {
+                    children[i].flatten(Objects.requireNonNull(value, shape.names[i]), values, row);
+                } else {
+                    values[columns[i]][row] = value;
+                }
+            }
+        }
+
+        void flatten(Object record, Object[] values) {
+            for (int i = 0; i < children.length; i++) {
+                Object value = shape.get(record, i);
+                if (children[i] != null) {
+                    children[i].flatten(Objects.requireNonNull(value, shape.names[i]), values);
+                } else {
+                    values[columns[i]] = value;
+                }
+            }
+        }
+
+        Object materialize(Column[] source, int row) {
+            Object[] values = new Object[children.length];
+            for (int i = 0; i < children.length; i++) {
+                values[i] = children[i] != null ? children[i].materialize(source, row) : source[columns[i]].get(row);
+            }
+            return shape.construct(values);
+        }
+    }
+
+    /**
+     * Append-only string dictionary shared by a columnar list and the lists derived from it.
+     * Codes are never reassigned, so earlier versions stay valid as it grows.
+     */
+    private static final class Dictionary {
+
+        private final Map<String, Integer> codes = new HashMap<>();
+        private volatile String[] values = new String[16];
+        private int size;
+
+        synchronized int code(String value) {
+            Integer code = codes.get(value);
+            if (code != null) {
+                return code;
+            }
+            String[] current = values;
+            if (size == current.length) {
+                current = Arrays.copyOf(current, size * 2);
+            }
+            current[size] = value;
+            codes.put(value, size);
+            values = current;
+            return size++;
+        }
+
+        String value(int code) {
+            return values[code];
+        }
+
+        synchronized int size() {
+            return size;
+        }
+    }
+
+    private abstract static class Column {
+
+        static Column of(Class<?> type, Object[] values, Dictionary dictionary) {
+            if (type == String.class) {
+                return new StringColumn(dictionary, values);
+            } else if (type == int.class) {
+                return new IntColumn(values);
+            } else if (type == long.class) {
+                return new LongColumn(values);
+            } else if (type == double.class) {
+                return new DoubleColumn(values);
+            } else if (type == boolean.class) {
+                return new BooleanColumn(values);
+            }
+            return new ObjectColumn(values);
+        }
+
+        abstract Object get(int row);
+
+        /**
+         * This column with one value replaced, or this column if the value is unchanged.
+         */
+        abstract Column with(int row, Object value, Dictionary dictionary);
+
+        /**
+         * This column with the rows from {@code from} replaced, or this column if none changes.
+         */
+        Column withRange(int from, Object[] values, int size) {
+            int same = 0;
+            while (same < values.length && Objects.equals(get(from + same), values[same])) {
+                same++;
+            }
+            if (same == values.length) {
+                return this;
+            }
+            Object[] all = new Object[size];
+            for (int row = 0; row < size; row++) {
+                all[row] = row >= from && row < from + values.length ? values[row - from] : get(row);
+            }
+            return copy(all);
+        }
+
+        Column map(UnaryOperator<Object> f, int size, Dictionary dictionary) {
+            Object[] values = new Object[size];
+            boolean changed = false;
+            for (int row = 0; row < size; row++) {
+                Object old = get(row);
+                values[row] = f.apply(old);
+                changed |= !Objects.equals(old, values[row]);
+            }
+            return changed ? copy(values) : this;
+        }
+
+        abstract Column copy(Object[] values);
+    }
+
+    // Strings are stored as dictionary codes; -1 encodes null
+    private static final class StringColumn extends Column {
+
+        private final Dictionary dictionary;
+        private final IntBuffer codes;
+
+        StringColumn(Dictionary dictionary, IntBuffer codes) {
+            this.dictionary = dictionary;
+            this.codes = codes;
+        }
+
+        StringColumn(Dictionary dictionary, Object[] values) {
+            this(dictionary, allocate(values.length * Integer.BYTES).asIntBuffer());
+            for (int row = 0; row < values.length; row++) {
+                codes.put(row, code(dictionary, values[row]));
+            }
+        }
+
+        private static int code(Dictionary dictionary, Object value) {
+            return value == null ? -1 : dictionary.code((String) value);
+        }
+
+        StringColumn recode(Dictionary target, int size) {
+            IntBuffer copy = allocate(size * Integer.BYTES).asIntBuffer();
+            for (int row = 0; row < size; row++) {
+                int code = codes.get(row);
+                copy.put(row, code < 0 ? -1 : target.code(dictionary.value(code)));
+            }
+            return new StringColumn(target, copy);
+        }
+
+        @Override
+        Object get(int row) {
+            int code = codes.get(row);
+            return code < 0 ? null : dictionary.value(code);
+        }
+
+        @Override
+        Column with(int row, Object value, Dictionary dictionary) {
+            int code = code(dictionary, value);
+            if (codes.get(row) == code) {
+                return this;
+            }
+            IntBuffer copy = copyOf(codes);
+            copy.put(row, code);
+            return new StringColumn(dictionary, copy);
+        }
+
+        @Override
+        Column map(UnaryOperator<Object> f, int size, Dictionary dictionary) {
+            Map<Integer, Integer> mapped = new HashMap<>();
+            IntBuffer copy = allocate(size * Integer.BYTES).asIntBuffer();
+            boolean changed = false;
+            for (int row = 0; row < size; row++) {
+                int code = codes.get(row);
+                int newCode = mapped.computeIfAbsent(code, c -> code(dictionary, f.apply(c < 0 ? null : dictionary.value(c))));
+                copy.put(row, newCode);
+                changed |= newCode != code;
+            }
+            return changed ? new StringColumn(dictionary, copy) : this;
+        }
+
+        @Override
+        Column copy(Object[] values) {
+            return new StringColumn(dictionary, values);
+        }
+    }
+
+    private static final class IntColumn extends Column {
+
+        private final IntBuffer values;
+
+        IntColumn(IntBuffer values) {
+            this.values = values;
+        }
+
+        IntColumn(Object[] values) {
+            this(allocate(values.length * Integer.BYTES).asIntBuffer());
+            for (int row = 0; row < values.length; row++) {
+                this.values.put(row, (Integer) values[row]);
+            }
+        }
+
+        @Override
+        Object get(int row) {
+            return values.get(row);
+        }
+
+        @Override
+        Column with(int row, Object value, Dictionary dictionary) {
+            int v = (Integer) value;
+            if (values.get(row) == v) {
+                return this;
+            }
+            IntBuffer copy = copyOf(values);
+            copy.put(row, v);
+            return new IntColumn(copy);
+        }
+
+        @Override
+        Column copy(Object[] values) {
+            return new IntColumn(values);
+        }
+    }
+
+    private static final class LongColumn extends Column {
+
+        private final LongBuffer values;
+
+        LongColumn(LongBuffer values) {
+            this.values = values;
+        }
+
+        LongColumn(Object[] values) {
+            this(allocate(values.length * Long.BYTES).asLongBuffer());
+            for (int row = 0; row < values.length; row++) {
+                this.values.put(row, (Long) values[row]);
+            }
+        }
+
+        @Override
+        Object get(int row) {
+            return values.get(row);
+        }
+
+        @Override
+        Column with(int row, Object value, Dictionary dictionary) {
+            long v = (Long) value;
+            if (values.get(row) == v) {
+                return this;
+            }
+            LongBuffer copy = LongBuffer.allocate(values.capacity()).put(values.duplicate().clear());
+            copy.put(row, v);
+            return new LongColumn(copy);
+        }
+
+        @Override
+        Column copy(Object[] values) {
+            return new LongColumn(values);
+        }
+    }
+
+    private static final class DoubleColumn extends Column {
+
+        private final DoubleBuffer values;
+
+        DoubleColumn(DoubleBuffer values) {
+            this.values = values;
+        }
+
+        DoubleColumn(Object[] values) {
+            this(allocate(values.length * Double.BYTES).asDoubleBuffer());
+            for (int row = 0; row < values.length; row++) {
+                this.values.put(row, (Double) values[row]);
+            }
+        }
+
+        @Override
+        Object get(int row) {
+            return values.get(row);
+        }
+
+        @Override
+        Column with(int row, Object value, Dictionary dictionary) {
+            double v = (Double) value;
+            if (Double.compare(values.get(row), v) == 0) {
+                return this;
+            }
+            DoubleBuffer copy = DoubleBuffer.allocate(values.capacity()).put(values.duplicate().clear());
+            copy.put(row, v);
+            return new DoubleColumn(copy);
+        }
+
+        @Override
+        Column copy(Object[] values) {
+            return new DoubleColumn(values);
+        }
+    }
+
+    private static final class BooleanColumn extends Column {
+
+        private final ByteBuffer values;
+
+        BooleanColumn(ByteBuffer values) {
+            this.values = values;
+        }
+
+        BooleanColumn(Object[] values) {
+            this(allocate(values.length));
+            for (int row = 0; row < values.length; row++) {
+                this.values.put(row, (byte) ((Boolean) values[row] ? 1 : 0));
+            }
+        }
+
+        @Override
+        Object get(int row) {
+            return values.get(row) != 0;
+        }
+
+        @Override
+        Column with(int row, Object value, Dictionary dictionary) {
+            byte v = (byte) ((Boolean) value ? 1 : 0);
+            if (values.get(row) == v) {
+                return this;
+            }
+            ByteBuffer copy = ByteBuffer.allocate(values.capacity()).put(values.duplicate().clear());
+            copy.put(row, v);
+            return new BooleanColumn(copy);
+        }
+
+        @Override
+        Column copy(Object[] values) {
+            return new BooleanColumn(values);
+        }
+    }
+
+    private static final class ObjectColumn extends Column {
+
+        private final Object[] values;
+
+        ObjectColumn(Object[] values) {
+            this.values = values;
+        }
+
+        @Override
+        Object get(int row) {
+            return values[row];
+        }
+
+        @Override
+        Column with(int row, Object value, Dictionary dictionary) {
+            if (Objects.equals(values[row], value)) {
+                return this;
+            }
+            Object[] copy = values.clone();
+            copy[row] = value;
+            return new ObjectColumn(copy);
+        }
+
+        @Override
+        Column copy(Object[] values) {
+            return new ObjectColumn(values);
+        }
+    }
+
+    // Bulk-built columns; large ones go off-heap
+    private static ByteBuffer allocate(int bytes) {
+        return bytes >= DIRECT_THRESHOLD ? ByteBuffer.allocateDirect(bytes) : ByteBuffer.allocate(bytes);
+    }
+
+    // A single-element update copies the column on the heap, which is far cheaper than a new direct buffer
+    private static IntBuffer copyOf(IntBuffer source) {
+        return IntBuffer.allocate(source.capacity()).put(source.duplicate().clear());
+    }
+}
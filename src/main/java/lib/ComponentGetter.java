@@ -0,0 +1,33 @@
+package lib;
+
+import java.lang.constant.ConstantDescs;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.util.function.Function;
+
+/**
+ * Template for the getters of {@link RecordLens}. It is never loaded under its own name:
+ * each record component gets a hidden copy whose class data is the component's accessor, so
+ * the handle is a {@code static final} constant that the JIT inlines like a generated getter.
+ */
+final class ComponentGetter implements Function<Object, Object> {
+
+    private static final MethodHandle ACCESSOR;
+
+    static {
+        try {
+            ACCESSOR = MethodHandles.classData(MethodHandles.lookup(), ConstantDescs.DEFAULT_NAME, MethodHandle.class);
+        } catch (IllegalAccessException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    @Override
+    public Object apply(Object record) {
+        try {
+            return (Object) ACCESSOR.invokeExact(record);
+        } catch (Throwable t) {
+            throw RecordLens.rethrow(t);
+        }
+    }
+}
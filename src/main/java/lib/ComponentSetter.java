@@ -0,0 +1,33 @@
+package lib;
+
+import java.lang.constant.ConstantDescs;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.util.function.BiFunction;
+
+/**
+ * Template for the setters of {@link RecordLens}. It is never loaded under its own name:
+ * each record component gets a hidden copy whose class data is the component's wither, so
+ * the handle is a {@code static final} constant that the JIT inlines like a generated wither.
+ */
+final class ComponentSetter implements BiFunction<Object, Object, Object> {
+
+    private static final MethodHandle WITHER;
+
+    static {
+        try {
+            WITHER = MethodHandles.classData(MethodHandles.lookup(), ConstantDescs.DEFAULT_NAME, MethodHandle.class);
+        } catch (IllegalAccessException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    @Override
+    public Object apply(Object record, Object newValue) {
+        try {
+            return Interner.intern((Object) WITHER.invokeExact(record, newValue));
+        } catch (Throwable t) {
+            throw RecordLens.rethrow(t);
+        }
+    }
+}
@@ -0,0 +1,369 @@
+package lib;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.UnaryOperator;
+
+/**
+ * A zipper over an immutable value graph. A cursor focuses on one location (e.g. an element
+ * of a nested list) once, applies any number of edits to that location locally, and can move
+ * to sibling elements without going back to the root. Edits are only written back into the
+ * enclosing values when the cursor moves up, so the path to the root is rebuilt once per
+ * {@link #close()} instead of once per edit.
+ *
+ * <p>Only the innermost open cursor may be edited; a parent cursor is locked until its child
+ * moves back up. Cursors are not thread-safe.
+ *
+ * @param <R> the root type
+ * @param <F> the type of the current focus
+ */
+public final class Cursor<R, F> {
+
+    private final Hole<R, F> hole;
+    private Object position;
+    private F focus;
+    private boolean dirty;
+    private boolean childOpen;
+    private boolean closed;
+
+    private Cursor(Hole<R, F> hole, Object position, F focus) {
+        this.hole = hole;
+        this.position = position;
+        this.focus = focus;
+    }
+
+    public static <R> Cursor<R, R> of(R root) {
+        return new Cursor<>(null, null, root);
+    }
+
+    // Reading the focus
+
+    public F get() {
+        ensureOpen();
+        return focus;
+    }
+
+    public <B> B get(Lens<F, B> lens) {
+        return lens.get(get());
+    }
+
+    public <B> B get(Mutations.LensProvider<F, B> provider) {
+        return get(provider.lens());
+    }
+
+    // Local edits
+
+    public Cursor<R, F> replace(F newFocus) {
+        ensureEditable();
+        focus = newFocus;
+        dirty = true;
+        return this;
+    }
+
+    public Cursor<R, F> mod(UnaryOperator<F> f) {
+        return replace(f.apply(get()));
+    }
+
+    public <B> Cursor<R, F> set(Lens<F, B> lens, B newValue) {
+        return replace(lens.set(get(), newValue));
+    }
+
+    public <B> Cursor<R, F> set(Mutations.LensProvider<F, B> provider, B newValue) {
+        return set(provider.lens(), newValue);
+    }
+
+    public <B> Cursor<R, F> mod(Lens<F, B> lens, UnaryOperator<B> f) {
+        return replace(lens.mod(get(), f));
+    }
+
+    public <B> Cursor<R, F> mod(Mutations.LensProvider<F, B> provider, UnaryOperator<B> f) {
+        return mod(provider.lens(), f);
+    }
+
+    // Moving down
+
+    public <C> Cursor<R, C> down(Lens<F, C> lens) {
+        ensureEditable();
+        childOpen = true;
+        return new Cursor<>(new LensHole<>(this, lens), null, lens.get(focus));
+    }
+
+    public <C> Cursor<R, C> down(Mutations.LensProvider<F, C> provider) {
+        return down(provider.lens());
+    }
+
+    /**
+     * Focus on one element of a list. Use {@link #sibling(int)} to move between elements;
+     * the list is copied once, on the first edit, and rebuilt once when moving up.
+     */
+    public <T> Cursor<R, T> downIndex(Lens<F, List<T>> lens, int index) {
+        ensureEditable();
+        ListHole<R, F, T> listHole = new ListHole<>(this, lens, lens.get(focus));
+        T element = listHole.element(index);
+        childOpen = true;
+        return new Cursor<>(listHole, index, element);
+    }
+
+    public <T> Cursor<R, T> downIndex(Mutations.LensProvider<F, List<T>> provider, int index) {
+        return downIndex(provider.lens(), index);
+    }
+
+    /**
+     * Focus on the value of one map key. Use {@link #siblingKey(Object)} to move between keys;
+     * the map is copied once, on the first edit, and rebuilt once when moving up.
+     */
+    public <K, V> Cursor<R, V> downKey(Lens<F, Map<K, V>> lens, K key) {
+        ensureEditable();
+        MapHole<R, F, K, V> mapHole = new MapHole<>(this, lens, lens.get(focus));
+        V value = mapHole.element(key);
+        childOpen = true;
+        return new Cursor<>(mapHole, key, value);
+    }
+
+    public <K, V> Cursor<R, V> downKey(Mutations.LensProvider<F, Map<K, V>> provider, K key) {
+        return downKey(provider.lens(), key);
+    }
+
+    // Moving sideways
+
+    /**
+     * Move to another element of the list this cursor was opened on with downIndex.
+     * Edits to the current element are kept in the local copy of the list.
+     *
+     * @param index the sibling index
+     * @return this cursor, now focused on the sibling
+     */
+    public Cursor<R, F> sibling(int index) {
+        return moveTo(ListHole.class, index);
+    }
+
+    /**
+     * Move to the value of another key of the map this cursor was opened on with downKey.
+     *
+     * @param key the sibling key
+     * @return this cursor, now focused on the sibling
+     */
+    public Cursor<R, F> siblingKey(Object key) {
+        return moveTo(MapHole.class, key);
+    }
+
+    /**
+     * Number of elements reachable with sibling/siblingKey, or 1 for a cursor opened with down.
+     */
+    public int siblingCount() {
+        ensureOpen();
+        return hole == null ? 1 : hole.size();
+    }
+
+    private Cursor<R, F> moveTo(Class<?> holeType, Object newPosition) {
+        ensureEditable();
+        if (!holeType.isInstance(hole)) {
+            throw new IllegalStateException("Cursor was not opened on a " + (holeType == ListHole.class ? "list" : "map"));
+        }
+        F next = hole.element(newPosition);
+        flush();
+        position = newPosition;
+        focus = next;
+        return this;
+    }
+
+    // Moving up
+
+    /**
+     * Write this cursor's edits into its parent and return the parent. This cursor is
+     * closed afterwards.
+     */
+    public Cursor<R, ?> up() {
+        ensureEditable();
+        if (hole == null) {
+            throw new IllegalStateException("Root cursor has no parent");
+        }
+        flush();
+        hole.commit();
+        closed = true;
+        hole.parent.childOpen = false;
+        return hole.parent;
+    }
+
+    /**
+     * Write all pending edits up to the root and return the new root value.
+     */
+    @SuppressWarnings("unchecked")
+    public R close() {
+        Cursor<R, ?> cursor = this;
+        while (cursor.hole != null) {
+            cursor = cursor.up();
+        }
+        return (R) cursor.get();
+    }
+
+    private void flush() {
+        if (dirty) {
+            hole.fill(position, focus);
+            dirty = false;
+        }
+    }
+
+    private void ensureOpen() {
+        if (closed) {
+            throw new IllegalStateException("Cursor is closed");
+        }
+    }
+
+    private void ensureEditable() {
+        ensureOpen();
+        if (childOpen) {
+            throw new IllegalStateException("Cursor has an open child cursor");
+        }
+    }
+
+    /**
+     * The location in the parent focus that a child cursor was opened on.
+     */
+    private abstract static class Hole<R, C> {
+
+        final Cursor<R, ?> parent;
+
+        Hole(Cursor<R, ?> parent) {
+            this.parent = parent;
+        }
+
+        abstract C element(Object position);
+
+        abstract void fill(Object position, C value);
+
+        abstract int size();
+
+        void commit() {
+        }
+    }
+
+    private static final class LensHole<R, P, C> extends Hole<R, C> {
+
+        private final Cursor<R, P> owner;
+        private final Lens<P, C> lens;
+
+        LensHole(Cursor<R, P> owner, Lens<P, C> lens) {
+            super(owner);
+            this.owner = owner;
+            this.lens = lens;
+        }
+
+        @Override
+        C element(Object position) {
+            return lens.get(owner.focus);
+        }
+
+        @Override
+        void fill(Object position, C value) {
+            owner.focus = lens.set(owner.focus, value);
+            owner.dirty = true;
+        }
+
+        @Override
+        int size() {
+            return 1;
+        }
+    }
+
+    private static final class ListHole<R, P, T> extends Hole<R, T> {
+
+        private final Cursor<R, P> owner;
+        private final Lens<P, List<T>> lens;
+        private final List<T> original;
+        private List<T> working;
+        // Bounds of the filled positions, so a columnar original is updated over that range only
+        private int firstFilled = Integer.MAX_VALUE;
+        private int lastFilled = -1;
+
+        ListHole(Cursor<R, P> owner, Lens<P, List<T>> lens, List<T> original) {
+            super(owner);
+            this.owner = owner;
+            this.lens = lens;
+            this.original = original;
+        }
+
+        @Override
+        T element(Object position) {
+            return (working != null ? working : original).get((Integer) position);
+        }
+
+        @Override
+        void fill(Object position, T value) {
+            if (working == null) {
+                working = new ArrayList<>(original);
+            }
+            int index = (Integer) position;
+            working.set(index, value);
+            firstFilled = Math.min(firstFilled, index);
+            lastFilled = Math.max(lastFilled, index);
+        }
+
+        @Override
+        int size() {
+            return original.size();
+        }
+
+        @Override
+        @SuppressWarnings({"unchecked", "rawtypes"})
+        void commit() {
+            if (working != null) {
+                List<T> updated;
+                if (original instanceof ColumnarList columnar) {
+                    // Stay columnar, copying only the columns that change
+                    updated = firstFilled == lastFilled
+                            ? columnar.with(firstFilled, (Record) working.get(firstFilled))
+                            : columnar.withRange(firstFilled, (List<Record>) working.subList(firstFilled, lastFilled + 1));
+                } else {
+                    updated = List.copyOf(working);
+                }
+                owner.focus = lens.set(owner.focus, updated);
+                owner.dirty = true;
+            }
+        }
+    }
+
+    private static final class MapHole<R, P, K, V> extends Hole<R, V> {
+
+        private final Cursor<R, P> owner;
+        private final Lens<P, Map<K, V>> lens;
+        private final Map<K, V> original;
+        private Map<K, V> working;
+
+        MapHole(Cursor<R, P> owner, Lens<P, Map<K, V>> lens, Map<K, V> original) {
+            super(owner);
+            this.owner = owner;
+            this.lens = lens;
+            this.original = original;
+        }
+
+        @Override
+        V element(Object position) {
+            return (working != null ? working : original).get(position);
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        void fill(Object position, V value) {
+            if (working == null) {
+                working = new HashMap<>(original);
+            }
+            working.put((K) position, value);
+        }
+
+        @Override
+        int size() {
+            return original.size();
+        }
+
+        @Override
+        void commit() {
+            if (working != null) {
+                owner.focus = lens.set(owner.focus, Map.copyOf(working));
+                owner.dirty = true;
+            }
+        }
+    }
+}
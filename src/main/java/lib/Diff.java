@@ -0,0 +1,104 @@
+package lib;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+
+/**
+ * Path-level difference between two versions of a record.
+ *
+ * <p>{@link #between} walks both versions side by side, skipping subtrees that are the same
+ * instance and leaves that are equal, and reports the deepest paths whose value was replaced:
+ * record components, list elements when the list kept its length, map values when the map
+ * kept its keys, and the contents of optionals present on both sides. A list or map that
+ * changed its shape, or an optional that was filled or emptied, is reported as a whole. The changes of one diff are at
+ * disjoint paths, so they can be applied in any order.
+ *
+ * <p>The old and new values of a change are the instances found in the two versions, not
+ * copies, so keeping a diff holds on to the replaced subtrees and nothing else.
+ */
+public final class Diff {
+
+    private Diff() {}
+
+    public static <A extends Record> List<Change<A>> between(A oldValue, A newValue) {
+        @SuppressWarnings("unchecked")
+        Class<A> type = (Class<A>) newValue.getClass();
+        List<Change<A>> changes = new ArrayList<>();
+        walk(LensPath.root(type), oldValue, newValue, changes);
+        return List.copyOf(changes);
+    }
+
+    /**
+     * {@code root} with the new value of every change set at its path.
+     */
+    public static <A> A apply(A root, List<Change<A>> changes) {
+        A current = root;
+        for (Change<A> change : changes) {
+            current = set(change.path(), current, change.newValue());
+        }
+        return current;
+    }
+
+    /**
+     * {@code root} with the old value of every change set at its path.
+     */
+    public static <A> A revert(A root, List<Change<A>> changes) {
+        A current = root;
+        for (Change<A> change : changes) {
+            current = set(change.path(), current, change.oldValue());
+        }
+        return current;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <A> A set(LensPath<A, ?> path, A root, Object value) {
+        return ((LensPath<A, Object>) path).set(root, value);
+    }
+
+    private static <A> void walk(LensPath<A, ?> path, Object oldValue, Object newValue, List<Change<A>> changes) {
+        if (oldValue == newValue) {
+            return;
+        }
+        if (oldValue instanceof Record && newValue != null && oldValue.getClass() == newValue.getClass()) {
+            RecordLens.Shape shape = RecordLens.shape(oldValue.getClass());
+            for (int i = 0; i < shape.names.length; i++) {
+                Object oldComponent = shape.get(oldValue, i);
+                Object newComponent = shape.get(newValue, i);
+                if (oldComponent != newComponent) {
+                    walk(path.component(shape.names[i]), oldComponent, newComponent, changes);
+                }
+            }
+        } else if (oldValue instanceof List<?> oldList && newValue instanceof List<?> newList && oldList.size() == newList.size()) {
+            for (int i = 0; i < oldList.size(); i++) {
+                if (oldList.get(i) != newList.get(i)) {
+                    walk(path.index(i), oldList.get(i), newList.get(i), changes);
+                }
+            }
+        } else if (oldValue instanceof Map<?, ?> oldMap && newValue instanceof Map<?, ?> newMap
+                && oldMap.keySet().equals(newMap.keySet())) {
+            for (Map.Entry<?, ?> entry : oldMap.entrySet()) {
+                Object newEntry = newMap.get(entry.getKey());
+                if (entry.getValue() != newEntry) {
+                    walk(path.key(entry.getKey()), entry.getValue(), newEntry, changes);
+                }
+            }
+        } else if (oldValue instanceof Optional<?> oldOptional && newValue instanceof Optional<?> newOptional
+                && oldOptional.isPresent() && newOptional.isPresent()
+                && oldOptional.get() instanceof Record && oldOptional.get().getClass() == newOptional.get().getClass()) {
+            // Paths unwrap optionals implicitly, so the contents share the optional's path
+            walk(path, oldOptional.get(), newOptional.get(), changes);
+        } else if (isStructure(oldValue) || isStructure(newValue) || !Objects.equals(oldValue, newValue)) {
+            // Equal leaves, e.g. a decoded string against an in-memory one, are not changes
+            changes.add(new Change<>(path, oldValue, newValue));
+        }
+    }
+
+    private static boolean isStructure(Object value) {
+        return value instanceof Record || value instanceof List<?> || value instanceof Map<?, ?>;
+    }
+
+    public record Change<A>(LensPath<A, ?> path, Object oldValue, Object newValue) {}
+}
@@ -0,0 +1,94 @@
+package lib;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.function.UnaryOperator;
+
+/**
+ * A lens over the binary encoding of a record, as produced by its generated codec.
+ *
+ * <p>{@link #get} navigates from record to component by offset, skipping size-prefixed
+ * siblings, and decodes only the focused value. {@link #set} returns a new encoding in which
+ * only the focused bytes are replaced: the bytes before and after it are copied as-is and the
+ * size prefixes of the enclosing records are adjusted by the change in length.
+ *
+ * <p>Encodings are read from the buffer's position to its limit and are never modified;
+ * {@code set} returns a new direct buffer positioned at zero, or the given buffer itself when
+ * the new value encodes to the same bytes.
+ *
+ * @param <S> the encoded root record type
+ * @param <B> the focused component type
+ */
+public final class EncodedLens<S, B> {
+
+    private final RecordCodec<?>[] owners;
+    private final int[] indexes;
+    private final Codec<B> codec;
+
+    private EncodedLens(RecordCodec<?>[] owners, int[] indexes, Codec<B> codec) {
+        this.owners = owners;
+        this.indexes = indexes;
+        this.codec = codec;
+    }
+
+    /**
+     * Lens on the component at {@code index} of a record, encoded with {@code codec}.
+     * Record-typed components must use the size-prefixed codec of that record, see
+     * {@link Codecs#sized(Codec)}.
+     */
+    public static <S, B> EncodedLens<S, B> of(RecordCodec<S> owner, int index, Codec<B> codec) {
+        return new EncodedLens<>(new RecordCodec<?>[] { owner }, new int[] { index }, codec);
+    }
+
+    public <C> EncodedLens<S, C> andThen(EncodedLens<B, C> that) {
+        RecordCodec<?>[] combinedOwners = Arrays.copyOf(owners, owners.length + that.owners.length);
+        System.arraycopy(that.owners, 0, combinedOwners, owners.length, that.owners.length);
+        int[] combinedIndexes = Arrays.copyOf(indexes, indexes.length + that.indexes.length);
+        System.arraycopy(that.indexes, 0, combinedIndexes, indexes.length, that.indexes.length);
+        return new EncodedLens<>(combinedOwners, combinedIndexes, that.codec);
+    }
+
+    public B get(ByteBuffer encoded) {
+        ByteBuffer buffer = encoded.duplicate();
+        navigate(buffer, null);
+        return codec.read(buffer);
+    }
+
+    public ByteBuffer set(ByteBuffer encoded, B newValue) {
+        ByteBuffer source = encoded.slice();
+        int[] sizePrefixes = new int[owners.length - 1];
+        navigate(source, sizePrefixes);
+        int start = source.position();
+        codec.skip(source);
+        int end = source.position();
+
+        ByteBuffer replacement = Codecs.encode(codec, newValue);
+        if (replacement.equals(source.slice(start, end - start))) {
+            return encoded;
+        }
+        int delta = replacement.remaining() - (end - start);
+        ByteBuffer result = ByteBuffer.allocateDirect(source.limit() + delta);
+        result.put(source.slice(0, start)).put(replacement).put(source.slice(end, source.limit() - end));
+        for (int prefix : sizePrefixes) {
+            result.putInt(prefix, result.getInt(prefix) + delta);
+        }
+        return result.flip();
+    }
+
+    public ByteBuffer mod(ByteBuffer encoded, UnaryOperator<B> f) {
+        return set(encoded, f.apply(get(encoded)));
+    }
+
+    // Move to the focused component, recording the positions of the enclosing records' size prefixes
+    private void navigate(ByteBuffer buffer, int[] sizePrefixes) {
+        for (int i = 0; i < owners.length; i++) {
+            owners[i].locate(buffer, indexes[i]);
+            if (i < owners.length - 1) {
+                if (sizePrefixes != null) {
+                    sizePrefixes[i] = buffer.position();
+                }
+                buffer.position(buffer.position() + Integer.BYTES);
+            }
+        }
+    }
+}
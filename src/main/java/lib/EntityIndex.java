@@ -0,0 +1,196 @@
+package lib;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+/**
+ * A secondary index over a collection of entities, keyed by the value at a {@link LensPath}.
+ *
+ * <p>An index maps each indexed value to the ids of the entities holding it. The values of
+ * an entity are the value at the path, or, with a {@link Fold}, every value the fold focuses
+ * on from there, such as every key of {@code stringMap} or every element of a list. Hash
+ * indexes answer equality lookups; sorted indexes also answer range queries.
+ *
+ * <p>{@link #changed} is given the old and the new version of an entity and walks the path on
+ * both side by side. Lens updates keep untouched subtrees by reference, so as soon as the two
+ * walks reach the same instance the indexed values cannot have changed and the update stops
+ * there, without extracting any values. Only entities whose update actually replaced a record
+ * on the path pay for re-extraction, and then only the values that differ are moved.
+ *
+ * <p>Updates of different entities may run concurrently, but updates of one entity must be
+ * serialized, as {@link EntityStore} does when the index is {@linkplain EntityStore#addIndex
+ * attached} to it. The sets returned by lookups are live, weakly consistent views.
+ *
+ * @param <K> the entity id type
+ * @param <A> the entity type
+ * @param <V> the indexed value type
+ */
+public final class EntityIndex<K, A, V> implements EntityStore.Listener<K, A> {
+
+    private final LensPath<A, ?> path;
+    private final Fold<Object, V> values;
+    private final ConcurrentHashMap<V, Set<K>> postings = new ConcurrentHashMap<>();
+    // Same posting sets ordered by value; null for hash indexes
+    private final ConcurrentSkipListMap<V, Set<K>> sorted;
+
+    @SuppressWarnings("unchecked")
+    private EntityIndex(LensPath<A, ?> path, Fold<?, V> values, boolean sorted) {
+        this.path = path;
+        this.values = (Fold<Object, V>) values;
+        this.sorted = sorted ? new ConcurrentSkipListMap<>() : null;
+    }
+
+    public static <K, A extends Record, V> EntityIndex<K, A, V> hash(Class<A> type, String path) {
+        return hash(LensPath.<A, V>parse(type, path));
+    }
+
+    public static <K, A, V> EntityIndex<K, A, V> hash(LensPath<A, V> path) {
+        return new EntityIndex<>(path, Fold.<V, V>of(value -> value), false);
+    }
+
+    /**
+     * Index every value the fold focuses on from the value at the path.
+     */
+    public static <K, A, B, V> EntityIndex<K, A, V> hash(LensPath<A, B> path, Fold<B, V> values) {
+        return new EntityIndex<>(path, values, false);
+    }
+
+    public static <K, A extends Record, V extends Comparable<? super V>> EntityIndex<K, A, V> sorted(Class<A> type, String path) {
+        return sorted(LensPath.<A, V>parse(type, path));
+    }
+
+    public static <K, A, V extends Comparable<? super V>> EntityIndex<K, A, V> sorted(LensPath<A, V> path) {
+        return new EntityIndex<>(path, Fold.<V, V>of(value -> value), true);
+    }
+
+    public static <K, A, B, V extends Comparable<? super V>> EntityIndex<K, A, V> sorted(LensPath<A, B> path, Fold<B, V> values) {
+        return new EntityIndex<>(path, values, true);
+    }
+
+    public LensPath<A, ?> path() {
+        return path;
+    }
+
+    public boolean isSorted() {
+        return sorted != null;
+    }
+
+    /**
+     * Ids of the entities holding the value, or an empty set.
+     */
+    public Set<K> get(V value) {
+        Set<K> keys = postings.get(value);
+        return keys == null ? Set.of() : Collections.unmodifiableSet(keys);
+    }
+
+    /**
+     * Ids of the entities holding a value in {@code [from, to)}.
+     *
+     * @throws UnsupportedOperationException on a hash index
+     */
+    public Set<K> range(V from, V to) {
+        return collect(sortedPostings().subMap(from, true, to, false));
+    }
+
+    public Set<K> atLeast(V from) {
+        return collect(sortedPostings().tailMap(from, true));
+    }
+
+    public Set<K> below(V to) {
+        return collect(sortedPostings().headMap(to, false));
+    }
+
+    /**
+     * Number of distinct indexed values.
+     */
+    public int size() {
+        return postings.size();
+    }
+
+    private NavigableMap<V, Set<K>> sortedPostings() {
+        if (sorted == null) {
+            throw new UnsupportedOperationException("Range queries need a sorted index on " + path);
+        }
+        return sorted;
+    }
+
+    private Set<K> collect(NavigableMap<V, Set<K>> range) {
+        Set<K> keys = new HashSet<>();
+        for (Set<K> posting : range.values()) {
+            keys.addAll(posting);
+        }
+        return keys;
+    }
+
+    /**
+     * Move the entity from the values of its old version to those of its new one. Either
+     * version may be null for an insertion or a removal.
+     */
+    @Override
+    public void changed(K key, A oldValue, A newValue) {
+        Object oldNode = oldValue;
+        Object newNode = newValue;
+        for (LensPath.Step step : path.steps()) {
+            if (oldNode == newNode) {
+                return;
+            }
+            oldNode = step.read(oldNode);
+            newNode = step.read(newNode);
+        }
+        if (oldNode == newNode) {
+            return;
+        }
+        Set<V> removed = extract(oldNode);
+        Set<V> added = extract(newNode);
+        for (V value : removed) {
+            if (!added.contains(value)) {
+                remove(value, key);
+            }
+        }
+        for (V value : added) {
+            if (!removed.contains(value)) {
+                add(value, key);
+            }
+        }
+    }
+
+    private Set<V> extract(Object node) {
+        if (node == null) {
+            return Set.of();
+        }
+        Set<V> extracted = new HashSet<>();
+        values.forEach(node, extracted::add);
+        return extracted;
+    }
+
+    // All changes to one value's posting run under its bin lock, which also orders the sorted view
+    private void add(V value, K key) {
+        postings.compute(value, (v, keys) -> {
+            if (keys == null) {
+                keys = ConcurrentHashMap.newKeySet();
+                if (sorted != null) {
+                    sorted.put(v, keys);
+                }
+            }
+            keys.add(key);
+            return keys;
+        });
+    }
+
+    private void remove(V value, K key) {
+        postings.computeIfPresent(value, (v, keys) -> {
+            keys.remove(key);
+            if (!keys.isEmpty()) {
+                return keys;
+            }
+            if (sorted != null) {
+                sorted.remove(v);
+            }
+            return null;
+        });
+    }
+}
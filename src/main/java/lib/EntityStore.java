@@ -0,0 +1,391 @@
+package lib;
+
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.BiConsumer;
+import java.util.function.UnaryOperator;
+
+/**
+ * In-process store of immutable entities keyed by id, updated through lenses.
+ *
+ * <p>Writers to different keys proceed in parallel; writes to the same key are serialized by
+ * the underlying {@link ConcurrentHashMap} bin. Every write gets a version number from a
+ * global clock, and each key keeps a short chain of its previous versions. Because entities
+ * are immutable and lens updates share unchanged structure, keeping old versions is cheap.
+ * {@link #snapshot()} captures the latest fully published version and reads through the
+ * chains, giving a consistent point-in-time view without locking.
+ *
+ * <p>Each key retains at most {@code retainedVersions} versions. A snapshot that is older
+ * than the retained history of a key fails with {@link IllegalStateException} when that key
+ * is read. A removed key is dropped from the store once no reachable snapshot predates the
+ * removal.
+ *
+ * <p>Versions are published in clock order without waiting: a writer marks its version as
+ * committed, and whichever writer completes the gap advances the published watermark over
+ * every consecutive committed version.
+ *
+ * <p>{@link Listener}s, such as {@link EntityIndex}es, see every write of a key in order: they
+ * run while the key is locked, right after the new value is computed.
+ *
+ * @param <K> the entity id type
+ * @param <A> the entity type
+ */
+public final class EntityStore<K, A> {
+
+    private static final int DEFAULT_RETAINED_VERSIONS = 8;
+
+    private final ConcurrentHashMap<K, Version<A>> entries = new ConcurrentHashMap<>();
+    private final AtomicLong clock = new AtomicLong();
+    // Every version up to and including this one has been installed
+    private final AtomicLong published = new AtomicLong();
+    // Installed versions above the watermark
+    private final Set<Long> committed = ConcurrentHashMap.newKeySet();
+    // Live snapshots, so removals are purged only once no snapshot can see past them
+    private final Set<SnapshotRef> snapshots = ConcurrentHashMap.newKeySet();
+    private final ReferenceQueue<Object> releasedSnapshots = new ReferenceQueue<>();
+    // Taken shared to open a snapshot and exclusively to purge removed keys
+    private final ReadWriteLock snapshotLock = new ReentrantReadWriteLock();
+    private final ConcurrentLinkedQueue<Tombstone<K>> tombstones = new ConcurrentLinkedQueue<>();
+    // Number of snapshots seen released, and what stopped the last purge (null if nothing did)
+    private final AtomicLong releases = new AtomicLong();
+    private volatile PurgeBlock<K> purgeBlock;
+    private final int retainedVersions;
+    private final CopyOnWriteArrayList<Listener<K, A>> listeners = new CopyOnWriteArrayList<>();
+
+    public EntityStore() {
+        this(DEFAULT_RETAINED_VERSIONS);
+    }
+
+    public EntityStore(int retainedVersions) {
+        if (retainedVersions < 1) {
+            throw new IllegalArgumentException("retainedVersions must be at least 1");
+        }
+        this.retainedVersions = retainedVersions;
+    }
+
+    /**
+     * Latest value for the key, or null if absent.
+     */
+    public A get(K key) {
+        Version<A> head = entries.get(key);
+        return head == null ? null : head.value;
+    }
+
+    public <B> B get(K key, Lens<A, B> lens) {
+        A value = get(key);
+        return value == null ? null : lens.get(value);
+    }
+
+    public A put(K key, A value) {
+        Objects.requireNonNull(value, "value");
+        return write(key, current -> value, false);
+    }
+
+    /**
+     * Remove the key. Older snapshots keep seeing the removed value.
+     *
+     * @return the removed value, or null if absent
+     */
+    @SuppressWarnings("unchecked")
+    public A remove(K key) {
+        Object[] removed = new Object[1];
+        write(key, current -> {
+            removed[0] = current;
+            return null;
+        }, false);
+        return (A) removed[0];
+    }
+
+    /**
+     * Replace the value of an existing key with {@code f(value)}. The function runs while the
+     * key is locked, so it must be short and must not access this store.
+     *
+     * @return the value after the update
+     * @throws NoSuchElementException if the key is absent
+     */
+    public A update(K key, UnaryOperator<A> f) {
+        return write(key, f, true);
+    }
+
+    public <B> A set(K key, Lens<A, B> lens, B newValue) {
+        return update(key, Mutations.setOperation(lens, newValue));
+    }
+
+    public <B> A set(K key, Mutations.LensProvider<A, B> provider, B newValue) {
+        return set(key, provider.lens(), newValue);
+    }
+
+    public <B> A mod(K key, Lens<A, B> lens, UnaryOperator<B> f) {
+        return update(key, Mutations.modOperation(lens, f));
+    }
+
+    public <B> A mod(K key, Mutations.LensProvider<A, B> provider, UnaryOperator<B> f) {
+        return mod(key, provider.lens(), f);
+    }
+
+    public A apply(K key, Mutations<A> mutations) {
+        return update(key, mutations::apply);
+    }
+
+    public void addListener(Listener<K, A> listener) {
+        listeners.add(listener);
+    }
+
+    public void removeListener(Listener<K, A> listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+     * Attach an index and fill it with the current entities. Writes made while it is being
+     * filled are indexed too.
+     */
+    public <V> EntityIndex<K, A, V> addIndex(EntityIndex<K, A, V> index) {
+        listeners.add(index);
+        // Each key is filled under its lock, so a concurrent write is seen either before or after
+        for (K key : entries.keySet()) {
+            entries.computeIfPresent(key, (k, head) -> {
+                if (head.value != null) {
+                    index.changed(k, null, head.value);
+                }
+                return head;
+            });
+        }
+        return index;
+    }
+
+    /**
+     * The latest published version number.
+     */
+    public long version() {
+        return published.get();
+    }
+
+    public Snapshot<K, A> snapshot() {
+        snapshotLock.readLock().lock();
+        try {
+            Snapshot<K, A> snapshot = new Snapshot<>(this, published.get());
+            snapshots.add(new SnapshotRef(snapshot, releasedSnapshots));
+            return snapshot;
+        } finally {
+            snapshotLock.readLock().unlock();
+        }
+    }
+
+    private A write(K key, UnaryOperator<A> f, boolean mustExist) {
+        long[] assigned = new long[1];
+        try {
+            Version<A> head = entries.compute(key, (k, current) -> {
+                A oldValue = current == null ? null : current.value;
+                if (mustExist && oldValue == null) {
+                    throw new NoSuchElementException("No entity for key " + k);
+                }
+                A newValue = f.apply(oldValue);
+                if (newValue == oldValue) {
+                    return current;
+                }
+                for (Listener<K, A> listener : listeners) {
+                    listener.changed(k, oldValue, newValue);
+                }
+                assigned[0] = clock.incrementAndGet();
+                if (newValue == null) {
+                    tombstones.add(new Tombstone<>(k, assigned[0]));
+                }
+                Version<A> version = new Version<>(assigned[0], newValue, current);
+                version.trim(retainedVersions);
+                return version;
+            });
+            return head == null ? null : head.value;
+        } finally {
+            if (assigned[0] != 0) {
+                publish(assigned[0]);
+                purgeRemoved();
+            }
+        }
+    }
+
+    // Versions become visible to snapshots in clock order. Only the writer that takes the flag
+    // of the next version moves the watermark, so it never has to wait for a slower writer.
+    private void publish(long version) {
+        committed.add(version);
+        long current = published.get();
+        while (committed.remove(current + 1)) {
+            published.set(++current);
+        }
+    }
+
+    /**
+     * Drop removed keys whose removal is published and older than every live snapshot. Skipped
+     * while another thread is purging, and while the tombstone that stopped the last purge is
+     * still blocked: a live snapshot only lets it go once some snapshot is released, the
+     * watermark once it is published.
+     */
+    private void purgeRemoved() {
+        Tombstone<K> first = tombstones.peek();
+        if (first == null) {
+            return;
+        }
+        pollReleasedSnapshots();
+        PurgeBlock<K> block = purgeBlock;
+        if (block != null && block.tombstone == first && block.releases == releases.get()
+                && (block.bySnapshot || published.get() < first.version)) {
+            return;
+        }
+        if (!snapshotLock.writeLock().tryLock()) {
+            return;
+        }
+        try {
+            long seenReleases = releases.get();
+            long oldest = oldestSnapshot();
+            long visible = Math.min(published.get(), oldest);
+            Tombstone<K> next;
+            while ((next = tombstones.peek()) != null && next.version <= visible) {
+                Tombstone<K> tombstone = tombstones.poll();
+                // A key written again since the removal is kept
+                entries.computeIfPresent(tombstone.key, (k, head) -> head.version == tombstone.version ? null : head);
+            }
+            purgeBlock = next == null ? null : new PurgeBlock<>(next, seenReleases, oldest < next.version);
+        } finally {
+            snapshotLock.writeLock().unlock();
+        }
+    }
+
+    private void pollReleasedSnapshots() {
+        for (Object released; (released = releasedSnapshots.poll()) != null; ) {
+            snapshots.remove(released);
+            releases.incrementAndGet();
+        }
+    }
+
+    private long oldestSnapshot() {
+        pollReleasedSnapshots();
+        long oldest = Long.MAX_VALUE;
+        for (SnapshotRef ref : snapshots) {
+            if (ref.get() != null) {
+                oldest = Math.min(oldest, ref.version);
+            }
+        }
+        return oldest;
+    }
+
+    /**
+     * Callback for every write that changes the value of a key. A null value stands for an
+     * absent key. Runs while the key is locked, so it must be short and must not access the
+     * store.
+     */
+    @FunctionalInterface
+    public interface Listener<K, A> {
+        void changed(K key, A oldValue, A newValue);
+    }
+
+    /**
+     * A consistent read-only view of the store as of one version.
+     */
+    public static final class Snapshot<K, A> {
+
+        private final EntityStore<K, A> store;
+        private final long version;
+
+        private Snapshot(EntityStore<K, A> store, long version) {
+            this.store = store;
+            this.version = version;
+        }
+
+        public long version() {
+            return version;
+        }
+
+        /**
+         * Value of the key as of this snapshot, or null if absent at that version.
+         *
+         * @throws IllegalStateException if that version is no longer retained
+         */
+        public A get(K key) {
+            Version<A> head = store.entries.get(key);
+            return head == null ? null : head.at(version, key);
+        }
+
+        public <B> B get(K key, Lens<A, B> lens) {
+            A value = get(key);
+            return value == null ? null : lens.get(value);
+        }
+
+        public void forEach(BiConsumer<? super K, ? super A> action) {
+            store.entries.forEach((key, head) -> {
+                A value = head.at(version, key);
+                if (value != null) {
+                    action.accept(key, value);
+                }
+            });
+        }
+    }
+
+    private record Tombstone<K>(K key, long version) {}
+
+    // The tombstone a purge stopped at, the releases it had seen, and whether a live snapshot
+    // (rather than the watermark) held it back
+    private record PurgeBlock<K>(Tombstone<K> tombstone, long releases, boolean bySnapshot) {}
+
+    private static final class SnapshotRef extends WeakReference<Object> {
+
+        final long version;
+
+        SnapshotRef(Snapshot<?, ?> snapshot, ReferenceQueue<Object> queue) {
+            super(snapshot, queue);
+            this.version = snapshot.version;
+        }
+    }
+
+    /**
+     * One version of a key; a null value marks a removal.
+     */
+    private static final class Version<A> {
+
+        final long version;
+        final A value;
+        // True for the first version ever written for the key, so the end of a chain can be told apart from trimmed history
+        final boolean first;
+        volatile Version<A> previous;
+
+        Version(long version, A value, Version<A> previous) {
+            this.version = version;
+            this.value = value;
+            this.first = previous == null;
+            this.previous = previous;
+        }
+
+        void trim(int retained) {
+            Version<A> node = this;
+            for (int i = 1; i < retained && node != null; i++) {
+                node = node.previous;
+            }
+            if (node != null) {
+                node.previous = null;
+            }
+        }
+
+        A at(long snapshotVersion, Object key) {
+            Version<A> node = this;
+            Version<A> last = this;
+            while (node != null) {
+                if (node.version <= snapshotVersion) {
+                    return node.value;
+                }
+                last = node;
+                node = node.previous;
+            }
+            if (last.first) {
+                return null;
+            }
+            throw new IllegalStateException("Version " + snapshotVersion + " of key " + key + " is no longer retained");
+        }
+    }
+}
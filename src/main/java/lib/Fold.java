@@ -0,0 +1,300 @@
+package lib;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.RandomAccess;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.BiFunction;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * A read-only optic that focuses on zero or more values inside a structure, such as every
+ * element of a list or every {@code moreNestedValue} in every {@code nestedList} and
+ * {@code nestedMap} element.
+ *
+ * <p>Folds visit values in place: {@link #forEach}, {@link #count} and {@link #reduce} walk
+ * the source structure directly without collecting intermediate lists, and
+ * {@link #spliterator} yields the focused values lazily. The spliterator of a composed fold
+ * splits on the outermost collection, so {@link #stream(Object, boolean) parallel streams}
+ * divide the work by top-level elements.
+ *
+ * @param <A> the source type
+ * @param <B> the focused value type
+ */
+public abstract class Fold<A, B> {
+
+    /**
+     * Visit every focused value, in order.
+     */
+    public abstract void forEach(A source, Consumer<? super B> action);
+
+    public abstract Spliterator<B> spliterator(A source);
+
+    public long count(A source) {
+        long[] count = {0};
+        forEach(source, value -> count[0]++);
+        return count[0];
+    }
+
+    @SuppressWarnings("unchecked")
+    public <R> R reduce(A source, R identity, BiFunction<R, ? super B, R> accumulator) {
+        Object[] result = {identity};
+        forEach(source, value -> result[0] = accumulator.apply((R) result[0], value));
+        return (R) result[0];
+    }
+
+    public Stream<B> stream(A source) {
+        return stream(source, false);
+    }
+
+    public Stream<B> stream(A source, boolean parallel) {
+        return StreamSupport.stream(spliterator(source), parallel);
+    }
+
+    /**
+     * Fold over the values focused by {@code that} inside every value focused by this fold.
+     */
+    public <C> Fold<A, C> andThen(Fold<B, C> that) {
+        return new Composed<>(this, that);
+    }
+
+    public <C> Fold<A, C> andThen(Function<? super B, ? extends C> getter) {
+        return andThen(Fold.of(getter));
+    }
+
+    public <C> Fold<A, C> andThen(Lens<B, C> lens) {
+        return andThen(Fold.of(lens::get));
+    }
+
+    /**
+     * Fold on exactly one value; a {@code null} value is skipped.
+     */
+    public static <A, B> Fold<A, B> of(Function<? super A, ? extends B> getter) {
+        return new Single<>(getter);
+    }
+
+    public static <A, B> Fold<A, B> of(Lens<A, B> lens) {
+        return of(lens::get);
+    }
+
+    /**
+     * Fold on every element of a list or other collection.
+     */
+    public static <A, T> Fold<A, T> each(Function<? super A, ? extends Collection<? extends T>> getter) {
+        return new Each<>(getter);
+    }
+
+    /**
+     * Fold on every value of a map.
+     */
+    public static <A, V> Fold<A, V> values(Function<? super A, ? extends Map<?, ? extends V>> getter) {
+        return each(source -> getter.apply(source).values());
+    }
+
+    /**
+     * Fold on the value of an optional, if present.
+     */
+    public static <A, T> Fold<A, T> optional(Function<? super A, ? extends Optional<? extends T>> getter) {
+        return new Single<>(source -> getter.apply(source).orElse(null));
+    }
+
+    /**
+     * Fold on the values of each fold in turn.
+     */
+    @SafeVarargs
+    @SuppressWarnings("varargs") // List.of only copies the elements out of the array
+    public static <A, B> Fold<A, B> concat(Fold<A, ? extends B>... folds) {
+        return new Concat<>(List.of(folds));
+    }
+
+    private static final class Single<A, B> extends Fold<A, B> {
+
+        private final Function<? super A, ? extends B> getter;
+
+        Single(Function<? super A, ? extends B> getter) {
+            this.getter = getter;
+        }
+
+        @Override
+        public void forEach(A source, Consumer<? super B> action) {
+            B value = getter.apply(source);
+            if (value != null) {
+                action.accept(value);
+            }
+        }
+
+        @Override
+        public long count(A source) {
+            return getter.apply(source) == null ? 0 : 1;
+        }
+
+        @Override
+        public Spliterator<B> spliterator(A source) {
+            B value = getter.apply(source);
+            return value == null ? Spliterators.emptySpliterator()
+                    : Spliterators.spliterator(new Object[] {value}, Spliterator.ORDERED | Spliterator.NONNULL);
+        }
+    }
+
+    private static final class Each<A, T> extends Fold<A, T> {
+
+        private final Function<? super A, ? extends Collection<? extends T>> getter;
+
+        Each(Function<? super A, ? extends Collection<? extends T>> getter) {
+            this.getter = getter;
+        }
+
+        @Override
+        public void forEach(A source, Consumer<? super T> action) {
+            Collection<? extends T> collection = getter.apply(source);
+            if (collection instanceof List<? extends T> list && list instanceof RandomAccess) {
+                for (int i = 0, size = list.size(); i < size; i++) {
+                    action.accept(list.get(i));
+                }
+            } else {
+                collection.forEach(action);
+            }
+        }
+
+        @Override
+        public long count(A source) {
+            return getter.apply(source).size();
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public Spliterator<T> spliterator(A source) {
+            return (Spliterator<T>) getter.apply(source).spliterator();
+        }
+    }
+
+    private static final class Composed<A, B, C> extends Fold<A, C> {
+
+        private final Fold<A, B> outer;
+        private final Fold<B, C> inner;
+
+        Composed(Fold<A, B> outer, Fold<B, C> inner) {
+            this.outer = outer;
+            this.inner = inner;
+        }
+
+        @Override
+        public void forEach(A source, Consumer<? super C> action) {
+            outer.forEach(source, value -> inner.forEach(value, action));
+        }
+
+        @Override
+        public long count(A source) {
+            return outer.reduce(source, 0L, (count, value) -> count + inner.count(value));
+        }
+
+        @Override
+        public Spliterator<C> spliterator(A source) {
+            return new FlatSpliterator<>(outer.spliterator(source), inner);
+        }
+    }
+
+    private static final class Concat<A, B> extends Fold<A, B> {
+
+        private final List<Fold<A, ? extends B>> folds;
+
+        Concat(List<Fold<A, ? extends B>> folds) {
+            this.folds = folds;
+        }
+
+        @Override
+        public void forEach(A source, Consumer<? super B> action) {
+            for (Fold<A, ? extends B> fold : folds) {
+                fold.forEach(source, action);
+            }
+        }
+
+        @Override
+        public long count(A source) {
+            long count = 0;
+            for (Fold<A, ? extends B> fold : folds) {
+                count += fold.count(source);
+            }
+            return count;
+        }
+
+        @Override
+        public Spliterator<B> spliterator(A source) {
+            return new FlatSpliterator<Fold<A, ? extends B>, B>(folds.spliterator(), fold -> fold.spliterator(source));
+        }
+    }
+
+    /**
+     * Spliterator over the inner values of each outer value. Splits by splitting the outer
+     * spliterator, or the inner one in progress once the outer one cannot split.
+     */
+    private static final class FlatSpliterator<B, C> implements Spliterator<C> {
+
+        private final Spliterator<B> outer;
+        private final Function<? super B, ? extends Spliterator<? extends C>> expand;
+        private Spliterator<? extends C> current;
+
+        FlatSpliterator(Spliterator<B> outer, Fold<B, C> inner) {
+            this(outer, inner::spliterator);
+        }
+
+        FlatSpliterator(Spliterator<B> outer, Function<? super B, ? extends Spliterator<? extends C>> expand) {
+            this.outer = outer;
+            this.expand = expand;
+        }
+
+        @Override
+        public boolean tryAdvance(Consumer<? super C> action) {
+            while (true) {
+                if (current != null && current.tryAdvance(action)) {
+                    return true;
+                }
+                if (!outer.tryAdvance(value -> current = expand.apply(value))) {
+                    return false;
+                }
+            }
+        }
+
+        @Override
+        public void forEachRemaining(Consumer<? super C> action) {
+            if (current != null) {
+                current.forEachRemaining(action);
+                current = null;
+            }
+            outer.forEachRemaining(value -> expand.apply(value).forEachRemaining(action));
+        }
+
+        @Override
+        public Spliterator<C> trySplit() {
+            Spliterator<B> prefix = outer.trySplit();
+            if (prefix == null) {
+                // Nothing left to split outside; split the inner values in progress instead
+                @SuppressWarnings("unchecked")
+                Spliterator<C> innerPrefix = current == null ? null : (Spliterator<C>) current.trySplit();
+                return innerPrefix;
+            }
+            // The prefix half must come first; hand it the value in progress too
+            FlatSpliterator<B, C> split = new FlatSpliterator<>(prefix, expand);
+            split.current = current;
+            current = null;
+            return split;
+        }
+
+        @Override
+        public long estimateSize() {
+            // Outer values left, a lower bound when each expands to at least one value
+            return outer.estimateSize() + (current == null ? 0 : 1);
+        }
+
+        @Override
+        public int characteristics() {
+            return outer.characteristics() & Spliterator.ORDERED;
+        }
+    }
+}
@@ -0,0 +1,178 @@
+package lib;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Undo/redo history of the versions of an entity.
+ *
+ * <p>Versions are numbered from 0 in commit order. The newest {@code snapshotWindow} versions
+ * are kept as full values, which share all unchanged structure with their neighbours. Older
+ * versions are compacted into a {@link Diff} against the next version and rebuilt on demand by
+ * reverting diffs backwards from the nearest full value, so an old version costs only the
+ * subtrees it replaced. At most {@code maxVersions} versions are retained; the oldest are
+ * dropped beyond that.
+ *
+ * <p>Undo, redo and {@link #jump} move the current version without discarding anything.
+ * Committing after an undo discards the versions that could have been redone. A history is
+ * not thread-safe.
+ *
+ * @param <A> the entity type
+ */
+public final class History<A extends Record> {
+
+    private static final int DEFAULT_SNAPSHOT_WINDOW = 16;
+    private static final int DEFAULT_MAX_VERSIONS = 1024;
+
+    private final int snapshotWindow;
+    private final int maxVersions;
+    // entries.get(i) is version first + i
+    private final List<Entry<A>> entries = new ArrayList<>();
+    private long first;
+    private long version;
+    private A current;
+
+    public History(A initial) {
+        this(initial, DEFAULT_SNAPSHOT_WINDOW, DEFAULT_MAX_VERSIONS);
+    }
+
+    public History(A initial, int snapshotWindow, int maxVersions) {
+        if (snapshotWindow < 1 || maxVersions < snapshotWindow) {
+            throw new IllegalArgumentException("Need 1 <= snapshotWindow <= maxVersions");
+        }
+        this.snapshotWindow = snapshotWindow;
+        this.maxVersions = maxVersions;
+        this.current = Objects.requireNonNull(initial, "initial");
+        entries.add(new Entry<>(initial));
+    }
+
+    public A current() {
+        return current;
+    }
+
+    public long version() {
+        return version;
+    }
+
+    public long oldestVersion() {
+        return first;
+    }
+
+    public long newestVersion() {
+        return first + entries.size() - 1;
+    }
+
+    /**
+     * Record a new version after the current one. A value that is the current instance is not
+     * recorded.
+     *
+     * @return the new current value
+     */
+    public A commit(A newValue) {
+        Objects.requireNonNull(newValue, "newValue");
+        if (newValue == current) {
+            return current;
+        }
+        int index = index(version);
+        // Drop the redo branch; the current version becomes the newest and must be full again
+        entries.subList(index + 1, entries.size()).clear();
+        entries.get(index).full = current;
+        entries.add(new Entry<>(newValue));
+        version++;
+        current = newValue;
+        compact();
+        return current;
+    }
+
+    public A apply(Mutations<A> mutations) {
+        return commit(mutations.apply(current));
+    }
+
+    public boolean canUndo() {
+        return version > first;
+    }
+
+    public boolean canRedo() {
+        return version < newestVersion();
+    }
+
+    /**
+     * @throws IllegalStateException if there is no older version
+     */
+    public A undo() {
+        if (!canUndo()) {
+            throw new IllegalStateException("Nothing to undo");
+        }
+        return jump(version - 1);
+    }
+
+    /**
+     * @throws IllegalStateException if there is no newer version
+     */
+    public A redo() {
+        if (!canRedo()) {
+            throw new IllegalStateException("Nothing to redo");
+        }
+        return jump(version + 1);
+    }
+
+    public A jump(long target) {
+        current = get(target);
+        version = target;
+        return current;
+    }
+
+    /**
+     * The value of a retained version, without moving to it.
+     *
+     * @throws IllegalArgumentException if the version is not retained
+     */
+    public A get(long target) {
+        int index = index(target);
+        if (target == version) {
+            return current;
+        }
+        int full = index;
+        while (entries.get(full).full == null) {
+            full++;
+        }
+        A value = entries.get(full).full;
+        for (int i = full - 1; i >= index; i--) {
+            value = Diff.revert(value, entries.get(i).delta);
+        }
+        return value;
+    }
+
+    private int index(long target) {
+        if (target < first || target > newestVersion()) {
+            throw new IllegalArgumentException("Version " + target + " is not in [" + first + ", " + newestVersion() + "]");
+        }
+        return (int) (target - first);
+    }
+
+    private void compact() {
+        int oldestFull = entries.size() - snapshotWindow - 1;
+        if (oldestFull >= 0 && entries.get(oldestFull).full != null) {
+            Entry<A> entry = entries.get(oldestFull);
+            entry.delta = Diff.between(entry.full, get(first + oldestFull + 1));
+            entry.full = null;
+        }
+        while (entries.size() > maxVersions) {
+            entries.remove(0);
+            first++;
+        }
+    }
+
+    /**
+     * A retained version: either the full value, or the diff that turns it into the next version.
+     */
+    private static final class Entry<A> {
+        A full;
+        List<Diff.Change<A>> delta;
+
+        Entry(A full) {
+            this.full = full;
+        }
+    }
+}
@@ -0,0 +1,210 @@
+package lib;
+
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Opt-in hash-consing of immutable values.
+ *
+ * <p>When enabled, records built by the generated withers and by {@link RecordLens}, and the
+ * list and map copies made by {@link ListLens} and {@link MapLens}, are replaced by a
+ * canonical instance if an equal one is already alive. Equal subtrees then share one
+ * instance, and record {@code equals} short-circuits on identity for them.
+ *
+ * <p>The table holds its entries weakly, so canonical instances are collected once nothing
+ * else references them. Values are interned bottom-up as they are built, so the records, lists
+ * and maps inside a value are already canonical: interning hashes and compares only the
+ * value's own components, elements or entries, taking nested structures by identity. Interning
+ * a record therefore costs as much as its component count, and a list or map as much as the
+ * copy that produced it. A value whose children were not interned is simply not shared. It is
+ * off unless the {@code javalens.intern} system property is {@code true} or
+ * {@link #setEnabled} is called.
+ */
+public final class Interner {
+
+    private static final ConcurrentHashMap<WeakKey, WeakKey> TABLE = new ConcurrentHashMap<>();
+    private static final ReferenceQueue<Object> COLLECTED = new ReferenceQueue<>();
+    private static final LongAdder HITS = new LongAdder();
+    private static volatile boolean enabled = Boolean.getBoolean("javalens.intern");
+
+    private Interner() {}
+
+    public static boolean isEnabled() {
+        return enabled;
+    }
+
+    public static void setEnabled(boolean enabled) {
+        Interner.enabled = enabled;
+    }
+
+    /**
+     * The canonical instance equal to {@code value}, or {@code value} itself when interning is
+     * disabled or it is the first of its kind.
+     */
+    @SuppressWarnings("unchecked")
+    public static <T> T intern(T value) {
+        if (!enabled || value == null) {
+            return value;
+        }
+        expungeCollected();
+        while (true) {
+            WeakKey key = new WeakKey(value, COLLECTED);
+            WeakKey existing = TABLE.putIfAbsent(key, key);
+            if (existing == null) {
+                return value;
+            }
+            Object canonical = existing.get();
+            if (canonical != null) {
+                HITS.increment();
+                return (T) canonical;
+            }
+            // Collected between lookup and read
+            TABLE.remove(existing, existing);
+        }
+    }
+
+    /**
+     * Number of live canonical instances.
+     */
+    public static int size() {
+        expungeCollected();
+        return TABLE.size();
+    }
+
+    /**
+     * Number of values replaced by an existing canonical instance.
+     */
+    public static long hits() {
+        return HITS.sum();
+    }
+
+    private static void expungeCollected() {
+        Object collected;
+        while ((collected = COLLECTED.poll()) != null) {
+            TABLE.remove(collected);
+        }
+    }
+
+    private static final class WeakKey extends WeakReference<Object> {
+
+        private final int hash;
+
+        WeakKey(Object value, ReferenceQueue<Object> queue) {
+            super(value, queue);
+            this.hash = shallowHash(value);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            if (this == other) {
+                return true;
+            }
+            if (!(other instanceof WeakKey that) || hash != that.hash) {
+                return false;
+            }
+            // Same class too, so that interning never changes a value's representation
+            Object value = get();
+            Object otherValue = that.get();
+            return value != null && otherValue != null && value.getClass() == otherValue.getClass() && sameShallow(value, otherValue);
+        }
+    }
+
+    private static int shallowHash(Object value) {
+        if (value instanceof Record) {
+            RecordLens.Shape shape = RecordLens.shape(value.getClass());
+            int hash = 0;
+            for (int i = 0; i < shape.names.length; i++) {
+                hash = 31 * hash + childHash(shape.get(value, i));
+            }
+            return hash;
+        } else if (value instanceof List<?> list) {
+            int hash = 1;
+            for (Object element : list) {
+                hash = 31 * hash + childHash(element);
+            }
+            return hash;
+        } else if (value instanceof Map<?, ?> map) {
+            int hash = 0;
+            for (Map.Entry<?, ?> entry : map.entrySet()) {
+                hash += Objects.hashCode(entry.getKey()) ^ childHash(entry.getValue());
+            }
+            return hash;
+        }
+        return value.hashCode();
+    }
+
+    private static boolean sameShallow(Object value, Object other) {
+        if (value instanceof Record) {
+            RecordLens.Shape shape = RecordLens.shape(value.getClass());
+            for (int i = 0; i < shape.names.length; i++) {
+                if (!sameChild(shape.get(value, i), shape.get(other, i))) {
+                    return false;
+                }
+            }
+            return true;
+        } else if (value instanceof List<?> list) {
+            List<?> otherList = (List<?>) other;
+            if (list.size() != otherList.size()) {
+                return false;
+            }
+            for (int i = 0; i < list.size(); i++) {
+                if (!sameChild(list.get(i), otherList.get(i))) {
+                    return false;
+                }
+            }
+            return true;
+        } else if (value instanceof Map<?, ?> map) {
+            Map<?, ?> otherMap = (Map<?, ?>) other;
+            if (map.size() != otherMap.size()) {
+                return false;
+            }
+            for (Map.Entry<?, ?> entry : map.entrySet()) {
+                Object otherValue = otherMap.get(entry.getKey());
+                if (otherValue == null || !sameChild(entry.getValue(), otherValue)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+        return value.equals(other);
+    }
+
+    // Nested structures count by identity, leaves such as strings and numbers by value
+    private static int childHash(Object child) {
+        if (isStructure(child)) {
+            return System.identityHashCode(child);
+        }
+        if (child instanceof Optional<?> optional) {
+            return optional.isPresent() ? childHash(optional.get()) : 0;
+        }
+        return Objects.hashCode(child);
+    }
+
+    private static boolean sameChild(Object child, Object other) {
+        if (child == other) {
+            return true;
+        }
+        if (isStructure(child) || isStructure(other)) {
+            return false;
+        }
+        if (child instanceof Optional<?> optional && other instanceof Optional<?> otherOptional) {
+            return optional.isPresent() && otherOptional.isPresent() && sameChild(optional.get(), otherOptional.get());
+        }
+        return Objects.equals(child, other);
+    }
+
+    private static boolean isStructure(Object value) {
+        return value instanceof Record || value instanceof List<?> || value instanceof Map<?, ?>;
+    }
+}
@@ -1,5 +1,9 @@
 package lib;
 
+import java.lang.reflect.RecordComponent;
+import java.util.Collection;
+import java.util.Map;
+import java.util.Optional;
 import java.util.function.BiFunction;
 import java.util.function.Function;
 import java.util.function.UnaryOperator;
@@ -8,34 +12,213 @@ public final class Lens<A, B> {
 
     private final Function<A, B> getter;
     private final BiFunction<A, B, A> setter;
+    // Non-null when this lens focuses on one component of a record, so sibling lenses can be fused
+    private final Focus focus;
+    // Path name and counters, only when metrics are enabled and the path is known
+    private final String path;
+    private final LensMetrics.PathStats stats;
+    // True for list and map element lenses, whose setters copy the collection
+    private final boolean copies;
 
     public Lens(final Function<A, B> getter, final BiFunction<A, B, A> setter) {
+        this(getter, setter, null, null, false);
+    }
+
+    private Lens(final Function<A, B> getter, final BiFunction<A, B, A> setter, final Focus focus, final String path,
+                 final boolean copies) {
         this.getter = getter;
         this.setter = setter;
+        this.focus = focus;
+        this.path = path;
+        this.stats = LensMetrics.ENABLED ? LensMetrics.path(path) : null;
+        this.copies = copies;
     }
 
     public static <A, B> Lens<A, B> of(Function<A, B> getter, BiFunction<A, B, A> setter) {
         return new Lens<>(getter, setter);
     }
 
+    /**
+     * Lens over the component at the given index of a record. Behaves exactly like
+     * {@link #of(Function, BiFunction)}, but remembers which component it targets so that
+     * {@link #zip(Lens, Lens)} knows which sibling lenses share a parent. Setting the instance
+     * the component already holds returns the record itself. Zips of such lenses still go
+     * through both setters; pass a {@link PairWither} to fuse them.
+     *
+     * @param componentType the erased type of the component, checked against the record
+     * @throws IllegalArgumentException if {@code owner} is not a record, or its component at
+     *         {@code index} does not exist or is not of {@code componentType}
+     */
+    public static <A, B> Lens<A, B> ofComponent(Class<A> owner, int index, Class<?> componentType,
+                                               Function<A, B> getter, BiFunction<A, B, A> setter) {
+        return ofComponent(owner, index, componentType, getter, setter, null);
+    }
+
+    /**
+     * Like {@link #ofComponent(Class, int, Class, Function, BiFunction)}, but a zip of two
+     * components of the same record is set with a single {@code pairWither} call instead of the
+     * two setters. The wither must therefore do what the two setters would have done.
+     */
+    public static <A, B> Lens<A, B> ofComponent(Class<A> owner, int index, Class<?> componentType,
+                                               Function<A, B> getter, BiFunction<A, B, A> setter,
+                                               PairWither<A> pairWither) {
+        Class<?>[] types = COMPONENT_TYPES.get(owner);
+        if (index < 0 || index >= types.length || types[index] != componentType) {
+            throw new IllegalArgumentException("No component " + index + " of type " + componentType.getName() + " in " + owner.getName());
+        }
+        return new Lens<>(getter, (a, b) -> getter.apply(a) == b ? a : setter.apply(a, b),
+                new Focus(null, owner, index, getter, pairWither),
+                LensMetrics.ENABLED ? LensMetrics.componentPath(owner, index) : null, false);
+    }
+
+    /**
+     * Rebuilds a record with two of its components replaced, given by index.
+     */
+    @FunctionalInterface
+    public interface PairWither<A> {
+        A with(A record, int first, Object firstValue, int second, Object secondValue);
+    }
+
+    // Erased component types per record class, so fused zips can trust a component lens's index
+    private static final ClassValue<Class<?>[]> COMPONENT_TYPES = new ClassValue<>() {
+        @Override
+        protected Class<?>[] computeValue(Class<?> type) {
+            RecordComponent[] components = type.getRecordComponents();
+            if (components == null) {
+                throw new IllegalArgumentException(type.getName() + " is not a record");
+            }
+            Class<?>[] types = new Class<?>[components.length];
+            for (int i = 0; i < components.length; i++) {
+                types[i] = components[i].getType();
+            }
+            return types;
+        }
+    };
+
+    /**
+     * Lens over one element of a list or map, whose setter copies the collection.
+     */
+    static <A, B> Lens<A, B> ofElement(Function<A, B> getter, BiFunction<A, B, A> setter) {
+        return new Lens<>(getter, setter, null, LensMetrics.ENABLED ? "[*]" : null, true);
+    }
+
+    /**
+     * Lens from an optional to its value, reading an empty optional as null and writing null as
+     * empty. One shared instance serves every type.
+     */
+    @SuppressWarnings("unchecked")
+    public static <B> Lens<Optional<B>, B> orNull() {
+        return (Lens<Optional<B>, B>) (Lens<?, ?>) OR_NULL;
+    }
+
+    private static final Lens<Optional<Object>, Object> OR_NULL = new Lens<>(
+            optional -> optional.orElse(null), (optional, value) -> Optional.ofNullable(value));
+
+    /**
+     * Product of two lenses over the same source. When both lenses target different components
+     * of the same record (directly or below the same parent lens) and carry a {@link PairWither},
+     * setting the pair rebuilds that record once; otherwise the two setters are applied one after
+     * the other. Setting the instances the components already hold returns the source itself.
+     */
+    @SuppressWarnings("unchecked")
+    public static <A, B, C> Lens<A, Pair<B, C>> zip(final Lens<A, B> first, final Lens<A, C> second) {
+        Focus f = first.focus;
+        Focus s = second.focus;
+        boolean fused = f != null && s != null && f.pairWither != null && s.pairWither != null
+                && f.index != s.index && f.sameParent(s);
+        if (LensMetrics.ENABLED) {
+            LensMetrics.zip(fused);
+        }
+        if (fused) {
+            Function<Object, B> firstGetter = (Function<Object, B>) f.getter;
+            Function<Object, C> secondGetter = (Function<Object, C>) s.getter;
+            PairWither<Object> wither = (PairWither<Object>) f.pairWither;
+            Lens<Object, Pair<B, C>> pair = new Lens<>(
+                    record -> new Pair<>(firstGetter.apply(record), secondGetter.apply(record)),
+                    (record, p) -> firstGetter.apply(record) == p.first() && secondGetter.apply(record) == p.second()
+                            ? record
+                            : wither.with(record, f.index, p.first(), s.index, p.second())
+            );
+            return f.prefix == null
+                    ? (Lens<A, Pair<B, C>>) (Lens<?, ?>) pair
+                    : ((Lens<A, Object>) f.prefix).andThen(pair);
+        }
+        return new Lens<>(
+                a -> new Pair<>(first.get(a), second.get(a)),
+                (a, pair) -> second.set(first.set(a, pair.first()), pair.second())
+        );
+    }
+
     public B get(final A a) {
+        if (LensMetrics.ENABLED && stats != null) {
+            stats.gets.increment();
+        }
         return getter.apply(a);
     }
 
     public A set(final A a, final B b) {
+        if (LensMetrics.ENABLED && stats != null) {
+            long start = System.nanoTime();
+            A result = setter.apply(a, b);
+            stats.sets.increment();
+            stats.updated(System.nanoTime() - start);
+            return result;
+        }
         return setter.apply(a, b);
     }
 
     public A mod(final A a, final UnaryOperator<B> unaryOperator) {
-        return set(a, unaryOperator.apply(get(a)));
+        if (LensMetrics.ENABLED && stats != null) {
+            long start = System.nanoTime();
+            A result = setter.apply(a, unaryOperator.apply(getter.apply(a)));
+            stats.mods.increment();
+            stats.updated(System.nanoTime() - start);
+            return result;
+        }
+        return setter.apply(a, unaryOperator.apply(getter.apply(a)));
     }
 
     public <C> Lens<A, C> andThen(final Lens<B, C> that) {
+        // Composed lenses call the raw functions, so only the outermost call is counted
+        String composedPath = LensMetrics.ENABLED ? LensMetrics.composePath(path, that.path) : null;
+        LensMetrics.PathStats copyStats = LensMetrics.ENABLED && that.copies ? LensMetrics.path(composedPath) : null;
         return new Lens<>(
-                c -> that.get(get(c)),
-                (c, b) -> mod(c, a -> that.set(a, b))
+                c -> that.getter.apply(getter.apply(c)),
+                (c, b) -> {
+                    B inner = getter.apply(c);
+                    if (LensMetrics.ENABLED && copyStats != null) {
+                        copyStats.copied(inner instanceof Map<?, ?> map ? map.size() : ((Collection<?>) inner).size());
+                    }
+                    B next = that.setter.apply(inner, b);
+                    return next == inner ? c : setter.apply(c, next);
+                },
+                that.focus != null && that.focus.prefix == null ? that.focus.below(this) : null,
+                composedPath,
+                false
         );
     }
-}
 
+    /**
+     * The record component a lens points at: the lens leading to the record (null for the
+     * record itself), the record class, the component index, the component's own getter and
+     * the wither fused zips call (null when zips must not be fused).
+     */
+    private record Focus(Lens<?, ?> prefix, Class<?> owner, int index, Function<?, ?> getter, PairWither<?> pairWither) {
+
+        Focus below(Lens<?, ?> parent) {
+            return new Focus(parent, owner, index, getter, pairWither);
+        }
+
+        boolean sameParent(Focus other) {
+            return owner == other.owner && samePath(prefix, other.prefix);
+        }
 
+        private static boolean samePath(Lens<?, ?> a, Lens<?, ?> b) {
+            if (a == b) {
+                return true;
+            }
+            return a != null && b != null && a.focus != null && b.focus != null
+                    && a.focus.index == b.focus.index && a.focus.sameParent(b.focus);
+        }
+    }
+}
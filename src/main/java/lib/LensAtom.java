@@ -0,0 +1,104 @@
+package lib;
+
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.UnaryOperator;
+
+/**
+ * An {@link AtomicReference} holding an immutable value that is updated through lenses.
+ * Updates run a compare-and-set loop with bounded exponential backoff between retries.
+ * An update that leaves the value unchanged (same instance) skips the CAS entirely.
+ *
+ * @param <A> the type of the held value
+ */
+public final class LensAtom<A> {
+
+    // Retries up to this many spin with Thread.onSpinWait, after that they park
+    private static final int SPIN_RETRIES = 6;
+    private static final long MAX_PARK_NANOS = 1_000_000L;
+
+    private final AtomicReference<A> ref;
+    private final LongAdder updates = new LongAdder();
+    private final LongAdder retries = new LongAdder();
+    private final LongAdder noOps = new LongAdder();
+
+    public LensAtom(A initial) {
+        this.ref = new AtomicReference<>(initial);
+    }
+
+    public static <A> LensAtom<A> of(A initial) {
+        return new LensAtom<>(initial);
+    }
+
+    public A get() {
+        return ref.get();
+    }
+
+    public <B> B get(Lens<A, B> lens) {
+        return lens.get(ref.get());
+    }
+
+    public <B> A set(Lens<A, B> lens, B newValue) {
+        return update(Mutations.setOperation(lens, newValue));
+    }
+
+    public <B> A set(Mutations.LensProvider<A, B> provider, B newValue) {
+        return set(provider.lens(), newValue);
+    }
+
+    public <B> A mod(Lens<A, B> lens, UnaryOperator<B> f) {
+        return update(Mutations.modOperation(lens, f));
+    }
+
+    public <B> A mod(Mutations.LensProvider<A, B> provider, UnaryOperator<B> f) {
+        return mod(provider.lens(), f);
+    }
+
+    public A apply(Mutations<A> mutations) {
+        return update(mutations::apply);
+    }
+
+    /**
+     * Atomically replace the value with {@code f(value)}. The function may be called several
+     * times under contention and must be free of side effects.
+     *
+     * @return the value after the update
+     */
+    public A update(UnaryOperator<A> f) {
+        for (int attempt = 0; ; attempt++) {
+            A current = ref.get();
+            A next = f.apply(current);
+            if (next == current) {
+                noOps.increment();
+                return current;
+            }
+            if (ref.compareAndSet(current, next)) {
+                updates.increment();
+                return next;
+            }
+            retries.increment();
+            backoff(attempt);
+        }
+    }
+
+    public Stats stats() {
+        return new Stats(updates.sum(), retries.sum(), noOps.sum());
+    }
+
+    // Also used by Stm between transaction retries
+    static void backoff(int attempt) {
+        if (attempt < SPIN_RETRIES) {
+            for (int i = 1 << attempt; i > 0; i--) {
+                Thread.onSpinWait();
+            }
+        } else {
+            LockSupport.parkNanos(Math.min(1L << Math.min(attempt, 20), MAX_PARK_NANOS));
+        }
+    }
+
+    /**
+     * Contention counters: successful updates, failed CAS attempts and skipped no-op updates.
+     */
+    public record Stats(long updates, long retries, long noOps) {}
+}
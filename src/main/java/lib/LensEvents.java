@@ -0,0 +1,91 @@
+package lib;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * JFR events emitted by the library.
+ *
+ * <p>All events are disabled by default. Enable them in a recording settings file or with
+ * {@code -XX:StartFlightRecording:settings=profile,+javalens.CollectionCopy#enabled=true}.
+ * A disabled event is never committed and its allocation is removed by escape analysis, so
+ * instrumented code paths cost a few field writes at most. Collection copies record a stack
+ * trace, so large copies can be traced back to the lens update that caused them.
+ */
+final class LensEvents {
+
+    private LensEvents() {}
+
+    @Name("javalens.MutationApply")
+    @Label("Mutation Apply")
+    @Description("A batch of lens mutations applied to an entity")
+    @Category("Java Lens")
+    @Enabled(false)
+    @StackTrace(false)
+    static final class MutationApply extends Event {
+        @Label("Entity Type")
+        Class<?> entityType;
+
+        @Label("Operations")
+        int operations;
+
+        @Label("No-ops")
+        @Description("Operations that left the entity unchanged")
+        int noOps;
+    }
+
+    @Name("javalens.CollectionCopy")
+    @Label("Collection Copy")
+    @Description("A list or map copied to update one element")
+    @Category("Java Lens")
+    @Enabled(false)
+    static final class CollectionCopy extends Event {
+        @Label("Collection Type")
+        String collectionType;
+
+        @Label("Elements")
+        int elements;
+    }
+
+    @Name("javalens.Codec")
+    @Label("Codec")
+    @Description("A value encoded or decoded through a codec")
+    @Category("Java Lens")
+    @Enabled(false)
+    @StackTrace(false)
+    static final class CodecOperation extends Event {
+        @Label("Codec")
+        String codec;
+
+        @Label("Operation")
+        String operation;
+
+        @Label("Size")
+        @DataAmount
+        int bytes;
+    }
+
+    @Name("javalens.Journal")
+    @Label("Journal")
+    @Description("An append, sync or replay of the mutation journal")
+    @Category("Java Lens")
+    @Enabled(false)
+    @StackTrace(false)
+    static final class JournalOperation extends Event {
+        @Label("Operation")
+        String operation;
+
+        @Label("Size")
+        @DataAmount
+        long bytes;
+
+        @Label("Records")
+        int records;
+    }
+}
@@ -0,0 +1,301 @@
+package lib;
+
+import java.lang.management.ManagementFactory;
+import java.lang.reflect.RecordComponent;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * Opt-in counters for lens hot paths, enabled with {@code -Djavalens.metrics=true}.
+ *
+ * <p>Lenses created from record components, such as the generated ones, are named by their path,
+ * e.g. {@code DomainEntity.nested.moreNested}, with list and map element steps written as
+ * {@code [*]} so that every index and key of a collection shares one name. For each path the
+ * gets, sets and mods are counted, set and mod latencies go into a log2 histogram, and every set
+ * through a list or map element records one collection copy and its element count under the
+ * path of that element. Mutation batches count their operations and no-ops, {@link Lens#zip}
+ * counts how often sibling updates were fused into one constructor call, and
+ * {@link MutationExecutor} counts how many requests were fused into per-entity groups.
+ *
+ * <p>The switch is read once into a static final field, so with metrics disabled every check is
+ * folded away by the JIT and lenses carry no names. All counters are {@link LongAdder}s, which
+ * stripe contended updates across cells. Counts are read with {@link #snapshot()}, published
+ * as an MXBean with {@link #registerMBean()}, or logged periodically with {@link #startLogging}.
+ */
+public final class LensMetrics {
+
+    public static final boolean ENABLED = Boolean.getBoolean("javalens.metrics");
+
+    // Bucket i counts latencies in [2^i, 2^(i+1)) nanoseconds
+    private static final int BUCKETS = 40;
+
+    private static final ConcurrentHashMap<String, PathStats> PATHS = new ConcurrentHashMap<>();
+    private static final LongAdder MUTATION_OPERATIONS = new LongAdder();
+    private static final LongAdder MUTATION_NO_OPS = new LongAdder();
+    private static final LongAdder ZIP_FUSED = new LongAdder();
+    private static final LongAdder ZIP_UNFUSED = new LongAdder();
+    private static final LongAdder EXECUTOR_REQUESTS = new LongAdder();
+    private static final LongAdder EXECUTOR_GROUPS = new LongAdder();
+
+    private static final ClassValue<String[]> COMPONENT_PATHS = new ClassValue<>() {
+        @Override
+        protected String[] computeValue(Class<?> type) {
+            // Not through RecordLens.shape, which creates component lenses itself
+            RecordComponent[] components = type.getRecordComponents();
+            String[] paths = new String[components.length];
+            for (int i = 0; i < components.length; i++) {
+                paths[i] = type.getSimpleName() + "." + components[i].getName();
+            }
+            return paths;
+        }
+    };
+
+    private LensMetrics() {}
+
+    static String componentPath(Class<?> owner, int index) {
+        return owner.isRecord() ? COMPONENT_PATHS.get(owner)[index] : null;
+    }
+
+    /**
+     * Path of {@code first.andThen(second)}: the second path loses its root type name.
+     */
+    static String composePath(String first, String second) {
+        if (first == null || second == null) {
+            return null;
+        }
+        int dot = second.indexOf('.');
+        int bracket = second.indexOf('[');
+        int start = dot < 0 ? bracket : bracket < 0 ? dot : Math.min(dot, bracket);
+        return start < 0 ? null : first + second.substring(start);
+    }
+
+    static PathStats path(String path) {
+        return path == null ? null : PATHS.computeIfAbsent(path, PathStats::new);
+    }
+
+    static void mutations(int operations, int noOps) {
+        MUTATION_OPERATIONS.add(operations);
+        MUTATION_NO_OPS.add(noOps);
+    }
+
+    static void zip(boolean fused) {
+        (fused ? ZIP_FUSED : ZIP_UNFUSED).increment();
+    }
+
+    static void executorBatch(int requests, int groups) {
+        EXECUTOR_REQUESTS.add(requests);
+        EXECUTOR_GROUPS.add(groups);
+    }
+
+    public static Snapshot snapshot() {
+        List<PathSnapshot> paths = new ArrayList<>();
+        for (PathStats stats : PATHS.values()) {
+            paths.add(stats.snapshot());
+        }
+        paths.sort(Comparator.comparingLong(PathSnapshot::operations).reversed());
+        return new Snapshot(List.copyOf(paths), MUTATION_OPERATIONS.sum(), MUTATION_NO_OPS.sum(),
+                ZIP_FUSED.sum(), ZIP_UNFUSED.sum(), EXECUTOR_REQUESTS.sum(), EXECUTOR_GROUPS.sum());
+    }
+
+    public static void reset() {
+        PATHS.values().forEach(PathStats::reset);
+        for (LongAdder adder : new LongAdder[] {MUTATION_OPERATIONS, MUTATION_NO_OPS, ZIP_FUSED, ZIP_UNFUSED,
+                EXECUTOR_REQUESTS, EXECUTOR_GROUPS}) {
+            adder.reset();
+        }
+    }
+
+    /**
+     * Register the metrics with the platform MBean server as {@code javalens:type=LensMetrics}.
+     */
+    public static ObjectName registerMBean() {
+        try {
+            ObjectName name = new ObjectName("javalens:type=LensMetrics");
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            if (!server.isRegistered(name)) {
+                server.registerMBean(new MXBeanImpl(), name);
+            }
+            return name;
+        } catch (JMException e) {
+            throw new IllegalStateException("Cannot register lens metrics MBean", e);
+        }
+    }
+
+    public static AutoCloseable startLogging(Duration period) {
+        System.Logger logger = System.getLogger(LensMetrics.class.getName());
+        return startLogging(period, report -> logger.log(System.Logger.Level.INFO, report));
+    }
+
+    /**
+     * Pass a formatted {@link #snapshot()} to {@code sink} every {@code period}, on a daemon
+     * thread, until the returned handle is closed.
+     */
+    public static AutoCloseable startLogging(Duration period, Consumer<String> sink) {
+        ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(task -> {
+            Thread thread = new Thread(task, "lens-metrics-reporter");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long nanos = period.toNanos();
+        scheduler.scheduleAtFixedRate(() -> sink.accept(snapshot().format()), nanos, nanos, TimeUnit.NANOSECONDS);
+        return scheduler::shutdownNow;
+    }
+
+    static final class PathStats {
+
+        final String path;
+        final LongAdder gets = new LongAdder();
+        final LongAdder sets = new LongAdder();
+        final LongAdder mods = new LongAdder();
+        final LongAdder copies = new LongAdder();
+        final LongAdder copiedElements = new LongAdder();
+        final LongAdder[] updateLatency = new LongAdder[BUCKETS];
+
+        PathStats(String path) {
+            this.path = path;
+            for (int i = 0; i < BUCKETS; i++) {
+                updateLatency[i] = new LongAdder();
+            }
+        }
+
+        void updated(long nanos) {
+            int bucket = 63 - Long.numberOfLeadingZeros(nanos | 1);
+            updateLatency[Math.min(bucket, BUCKETS - 1)].increment();
+        }
+
+        void copied(int elements) {
+            copies.increment();
+            copiedElements.add(elements);
+        }
+
+        PathSnapshot snapshot() {
+            long[] histogram = new long[BUCKETS];
+            for (int i = 0; i < BUCKETS; i++) {
+                histogram[i] = updateLatency[i].sum();
+            }
+            return new PathSnapshot(path, gets.sum(), sets.sum(), mods.sum(), copies.sum(), copiedElements.sum(), histogram);
+        }
+
+        void reset() {
+            for (LongAdder adder : new LongAdder[] {gets, sets, mods, copies, copiedElements}) {
+                adder.reset();
+            }
+            for (LongAdder bucket : updateLatency) {
+                bucket.reset();
+            }
+        }
+    }
+
+    /**
+     * Counts of one lens path. {@code updateLatencyHistogram[i]} counts sets and mods that took
+     * between 2^i and 2^(i+1) nanoseconds.
+     */
+    public record PathSnapshot(String path, long gets, long sets, long mods, long copies, long copiedElements,
+                               long[] updateLatencyHistogram) {
+
+        public long operations() {
+            return gets + sets + mods;
+        }
+
+        /**
+         * Upper bound, in nanoseconds, of the bucket holding the given quantile of update latencies.
+         */
+        public long updateLatencyQuantile(double quantile) {
+            long total = sets + mods;
+            long seen = 0;
+            for (int i = 0; i < updateLatencyHistogram.length; i++) {
+                seen += updateLatencyHistogram[i];
+                if (seen > 0 && seen >= quantile * total) {
+                    return 1L << (i + 1);
+                }
+            }
+            return 0;
+        }
+    }
+
+    public record Snapshot(List<PathSnapshot> paths, long mutationOperations, long mutationNoOps,
+                           long zipFused, long zipUnfused, long executorRequests, long executorGroups) {
+
+        public double noOpRate() {
+            return mutationOperations == 0 ? 0 : (double) mutationNoOps / mutationOperations;
+        }
+
+        public double zipFusionRate() {
+            long total = zipFused + zipUnfused;
+            return total == 0 ? 0 : (double) zipFused / total;
+        }
+
+        /**
+         * Fraction of executor requests that were folded into another request's update.
+         */
+        public double executorFusionRate() {
+            return executorRequests == 0 ? 0 : 1 - (double) executorGroups / executorRequests;
+        }
+
+        public String format() {
+            StringBuilder text = new StringBuilder();
+            text.append(String.format("mutations: %d ops, %.1f%% no-ops; zip fusion %.1f%%; executor fusion %.1f%%%n",
+                    mutationOperations, 100 * noOpRate(), 100 * zipFusionRate(), 100 * executorFusionRate()));
+            for (PathSnapshot path : paths) {
+                text.append(String.format("  %s: gets=%d sets=%d mods=%d copies=%d copiedElements=%d p50<=%dns p99<=%dns%n",
+                        path.path(), path.gets(), path.sets(), path.mods(), path.copies(), path.copiedElements(),
+                        path.updateLatencyQuantile(0.5), path.updateLatencyQuantile(0.99)));
+            }
+            return text.toString();
+        }
+    }
+
+    public interface LensMetricsMXBean {
+        Map<String, Long> getCounters();
+
+        String getReport();
+
+        void reset();
+    }
+
+    private static final class MXBeanImpl implements LensMetricsMXBean {
+
+        @Override
+        public Map<String, Long> getCounters() {
+            Snapshot snapshot = snapshot();
+            Map<String, Long> counters = new LinkedHashMap<>();
+            counters.put("mutations.operations", snapshot.mutationOperations());
+            counters.put("mutations.noOps", snapshot.mutationNoOps());
+            counters.put("zip.fused", snapshot.zipFused());
+            counters.put("zip.unfused", snapshot.zipUnfused());
+            counters.put("executor.requests", snapshot.executorRequests());
+            counters.put("executor.groups", snapshot.executorGroups());
+            for (PathSnapshot path : snapshot.paths()) {
+                counters.put(path.path() + ".gets", path.gets());
+                counters.put(path.path() + ".sets", path.sets());
+                counters.put(path.path() + ".mods", path.mods());
+                counters.put(path.path() + ".copies", path.copies());
+                counters.put(path.path() + ".copiedElements", path.copiedElements());
+            }
+            return counters;
+        }
+
+        @Override
+        public String getReport() {
+            return snapshot().format();
+        }
+
+        @Override
+        public void reset() {
+            LensMetrics.reset();
+        }
+    }
+}
@@ -0,0 +1,288 @@
+package lib;
+
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.RecordComponent;
+import java.lang.reflect.Type;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Optional;
+import java.util.function.UnaryOperator;
+
+/**
+ * A lens path written as a string, such as {@code nestedMap['key1'].moreNested} or
+ * {@code recursiveNested.child.value}, resolved against the static types of a record.
+ *
+ * <p>A path is a sequence of record component names ({@code .name}), list indexes
+ * ({@code [0]}) and map keys ({@code ['key']}, or {@code [0]} for integer keys). An
+ * {@code Optional} component is unwrapped implicitly when the path continues past it, and
+ * yields {@code null} when empty. Paths are checked against the record types when they are
+ * built, so a typo fails at parse time rather than on first use.
+ *
+ * <p>{@link #get} returns {@code null} when the path runs into an empty optional, a missing
+ * map key or an index out of bounds. {@link #set} goes through {@link #lens()} and requires
+ * the path to exist, except for a final map key, which is added.
+ *
+ * @param <A> the root record type
+ * @param <B> the type of the value the path points at
+ */
+public final class LensPath<A, B> {
+
+    private static final Step[] NO_STEPS = new Step[0];
+
+    private final Class<A> rootType;
+    private final Type type;
+    private final Step[] steps;
+    private volatile Lens<A, B> lens;
+
+    private LensPath(Class<A> rootType, Type type, Step[] steps) {
+        this.rootType = rootType;
+        this.type = type;
+        this.steps = steps;
+    }
+
+    public static <A extends Record> LensPath<A, A> root(Class<A> type) {
+        RecordLens.shape(type);
+        return new LensPath<>(type, type, NO_STEPS);
+    }
+
+    public static <A extends Record, B> LensPath<A, B> parse(Class<A> type, String path) {
+        LensPath<A, ?> current = root(type);
+        int i = 0;
+        while (i < path.length()) {
+            char c = path.charAt(i);
+            if (c == '.' && i > 0) {
+                i++;
+                continue;
+            }
+            if (c == '[') {
+                int close = path.indexOf(']', i);
+                if (close < 0) {
+                    throw new IllegalArgumentException("Unclosed '[' at " + i + " in " + path);
+                }
+                String inside = path.substring(i + 1, close);
+                if (inside.length() >= 2 && (inside.charAt(0) == '\'' || inside.charAt(0) == '"')
+                        && inside.charAt(inside.length() - 1) == inside.charAt(0)) {
+                    current = current.key(inside.substring(1, inside.length() - 1));
+                } else {
+                    current = current.index(parseIndex(inside, path));
+                }
+                i = close + 1;
+            } else {
+                int end = i;
+                while (end < path.length() && path.charAt(end) != '.' && path.charAt(end) != '[') {
+                    end++;
+                }
+                if (end == i) {
+                    throw new IllegalArgumentException("Empty component name at " + i + " in " + path);
+                }
+                current = current.component(path.substring(i, end));
+                i = end;
+            }
+        }
+        @SuppressWarnings("unchecked")
+        LensPath<A, B> result = (LensPath<A, B>) current;
+        return result;
+    }
+
+    private static int parseIndex(String text, String path) {
+        try {
+            return Integer.parseInt(text.trim());
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Bad index or key [" + text + "] in " + path, e);
+        }
+    }
+
+    /**
+     * This path extended by a record component.
+     */
+    public <C> LensPath<A, C> component(String name) {
+        LensPath<A, ?> owner = unwrapOptional();
+        if (!(owner.type instanceof Class<?> recordType) || !recordType.isRecord()) {
+            throw new IllegalArgumentException("Cannot select '" + name + "' from " + owner.type.getTypeName() + " at " + owner);
+        }
+        RecordLens.Shape shape = RecordLens.shape(recordType);
+        int index = shape.indexOf(name);
+        RecordComponent component = recordType.getRecordComponents()[index];
+        @SuppressWarnings("unchecked")
+        Lens<Object, Object> step = (Lens<Object, Object>) shape.lenses[index];
+        return owner.then(new Step(Kind.COMPONENT, name, step), component.getGenericType());
+    }
+
+    /**
+     * This path extended by a list index, or by an integer key of a map.
+     */
+    public <C> LensPath<A, C> index(int index) {
+        LensPath<A, ?> owner = unwrapOptional();
+        if (Map.class.isAssignableFrom(rawType(owner.type))) {
+            return owner.key(index);
+        }
+        if (!List.class.isAssignableFrom(rawType(owner.type))) {
+            throw new IllegalArgumentException("Cannot index " + owner.type.getTypeName() + " at " + owner);
+        }
+        @SuppressWarnings("unchecked")
+        Lens<Object, Object> step = (Lens<Object, Object>) (Lens<?, ?>) ListLens.index(index);
+        return owner.then(new Step(Kind.INDEX, index, step), typeArgument(owner.type, 0));
+    }
+
+    /**
+     * This path extended by a map key. A {@link NavigableMap} stays sorted when the key is set.
+     */
+    @SuppressWarnings("unchecked")
+    public <C> LensPath<A, C> key(Object key) {
+        LensPath<A, ?> owner = unwrapOptional();
+        Class<?> mapType = rawType(owner.type);
+        if (!Map.class.isAssignableFrom(mapType)) {
+            throw new IllegalArgumentException("Cannot look up key '" + key + "' in " + owner.type.getTypeName() + " at " + owner);
+        }
+        Lens<Object, Object> step = (Lens<Object, Object>) (Lens<?, ?>) (NavigableMap.class.isAssignableFrom(mapType)
+                ? MapLens.sortedKey(key)
+                : MapLens.key(key));
+        return owner.then(new Step(Kind.KEY, key, step), typeArgument(owner.type, 1));
+    }
+
+    private LensPath<A, ?> unwrapOptional() {
+        LensPath<A, ?> current = this;
+        while (rawType(current.type) == Optional.class) {
+            current = current.then(Step.UNWRAP, typeArgument(current.type, 0));
+        }
+        return current;
+    }
+
+    private <C> LensPath<A, C> then(Step step, Type stepType) {
+        Step[] extended = Arrays.copyOf(steps, steps.length + 1);
+        extended[steps.length] = step;
+        return new LensPath<>(rootType, stepType, extended);
+    }
+
+    public Class<A> rootType() {
+        return rootType;
+    }
+
+    /**
+     * The static type of the value this path points at.
+     */
+    public Type type() {
+        return type;
+    }
+
+    public boolean isRoot() {
+        return steps.length == 0;
+    }
+
+    @SuppressWarnings("unchecked")
+    public B get(A root) {
+        Object value = root;
+        for (Step step : steps) {
+            value = step.read(value);
+        }
+        return (B) value;
+    }
+
+    public A set(A root, B newValue) {
+        return lens().set(root, newValue);
+    }
+
+    public A mod(A root, UnaryOperator<B> f) {
+        return lens().mod(root, f);
+    }
+
+    @SuppressWarnings("unchecked")
+    public Lens<A, B> lens() {
+        Lens<A, B> result = lens;
+        if (result == null) {
+            Lens<Object, Object> composed = steps.length == 0 ? Lens.of(root -> root, (root, value) -> value) : steps[0].lens;
+            for (int i = 1; i < steps.length; i++) {
+                composed = composed.andThen(steps[i].lens);
+            }
+            result = (Lens<A, B>) (Lens<?, ?>) composed;
+            lens = result;
+        }
+        return result;
+    }
+
+    Step[] steps() {
+        return steps;
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        return other instanceof LensPath<?, ?> that && rootType == that.rootType && Arrays.equals(steps, that.steps);
+    }
+
+    @Override
+    public int hashCode() {
+        return rootType.hashCode() * 31 + Arrays.hashCode(steps);
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder text = new StringBuilder();
+        for (Step step : steps) {
+            step.appendTo(text);
+        }
+        return text.toString();
+    }
+
+    private static Class<?> rawType(Type type) {
+        if (type instanceof ParameterizedType parameterized) {
+            return (Class<?>) parameterized.getRawType();
+        }
+        return type instanceof Class<?> c ? c : Object.class;
+    }
+
+    private static Type typeArgument(Type type, int index) {
+        if (type instanceof ParameterizedType parameterized) {
+            return parameterized.getActualTypeArguments()[index];
+        }
+        return Object.class;
+    }
+
+    enum Kind { COMPONENT, INDEX, KEY, UNWRAP }
+
+    /**
+     * One step of a path. Steps are equal when they select the same thing, so they can key
+     * the nodes of a path trie.
+     */
+    record Step(Kind kind, Object selector, Lens<Object, Object> lens) {
+
+        @SuppressWarnings("unchecked")
+        static final Step UNWRAP = new Step(Kind.UNWRAP, "", (Lens<Object, Object>) (Lens<?, ?>) Lens.orNull());
+
+        /**
+         * The selected value, or null when the parent is null or has no such element.
+         */
+        Object read(Object parent) {
+            if (parent == null) {
+                return null;
+            }
+            if (kind == Kind.INDEX) {
+                int index = (Integer) selector;
+                if (index < 0 || index >= ((List<?>) parent).size()) {
+                    return null;
+                }
+            }
+            return lens.get(parent);
+        }
+
+        void appendTo(StringBuilder text) {
+            switch (kind) {
+                case COMPONENT -> text.append(text.isEmpty() ? "" : ".").append(selector);
+                case INDEX -> text.append('[').append(selector).append(']');
+                case KEY -> text.append(selector instanceof String ? "['" + selector + "']" : "[" + selector + "]");
+                case UNWRAP -> { }
+            }
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            return other instanceof Step that && kind == that.kind && selector.equals(that.selector);
+        }
+
+        @Override
+        public int hashCode() {
+            return kind.hashCode() * 31 + selector.hashCode();
+        }
+    }
+}
@@ -1,6 +1,8 @@
 package lib;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 import java.util.Objects;
 
@@ -8,17 +10,89 @@ public final class ListLens {
 
     private ListLens() {}
 
+    @SuppressWarnings({"unchecked", "rawtypes"})
     public static <T> Lens<List<T>, T> index(int i) {
-        return Lens.of(
+        return Lens.ofElement(
                 list -> list.get(i),
                 (list, newValue) -> {
+                    if (list instanceof ColumnarList columnar) {
+                        // Stay columnar, copying only the columns that change
+                        return columnar.with(i, (Record) newValue);
+                    }
                     Objects.checkIndex(i, list.size());
+                    LensEvents.CollectionCopy event = new LensEvents.CollectionCopy();
+                    event.begin();
                     List<T> copy = new ArrayList<>(list);
                     copy.set(i, newValue);
-                    return List.copyOf(copy);
+                    List<T> result = List.copyOf(copy);
+                    if (event.shouldCommit()) {
+                        event.collectionType = "List";
+                        event.elements = result.size();
+                        event.commit();
+                    }
+                    return Interner.intern(result);
+                }
+        );
+    }
+
+    /**
+     * Lens over the elements in {@code [from, to)}. Reading returns a view of the list, without
+     * copying. Setting splices the new elements in place of the range, which may change the
+     * length of the list, and copies the list once. On a {@link ColumnarList}, setting as many
+     * elements as the range holds keeps the list columnar; a splice that changes its length
+     * yields a plain list.
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    public static <T> Lens<List<T>, List<T>> slice(int from, int to) {
+        return Lens.ofElement(
+                list -> {
+                    Objects.checkFromToIndex(from, to, list.size());
+                    return list.subList(from, to);
+                },
+                (list, newValues) -> {
+                    Objects.checkFromToIndex(from, to, list.size());
+                    if (sameElements(list, from, to, newValues)) {
+                        return list;
+                    }
+                    if (list instanceof ColumnarList columnar && newValues.size() == to - from) {
+                        return columnar.withRange(from, (List<Record>) newValues);
+                    }
+                    LensEvents.CollectionCopy event = new LensEvents.CollectionCopy();
+                    event.begin();
+                    List<T> result = splice(list, from, to, newValues);
+                    if (event.shouldCommit()) {
+                        event.collectionType = "List";
+                        event.elements = result.size();
+                        event.commit();
+                    }
+                    return Interner.intern(result);
                 }
         );
     }
-}
 
+    // Fills one exact-size array and wraps it, so the splice copies each element once
+    @SuppressWarnings("unchecked")
+    private static <T> List<T> splice(List<T> list, int from, int to, List<T> newValues) {
+        Object[] elements = new Object[list.size() - (to - from) + newValues.size()];
+        int next = 0;
+        for (List<T> part : List.of(list.subList(0, from), newValues, list.subList(to, list.size()))) {
+            for (T element : part) {
+                elements[next++] = Objects.requireNonNull(element);
+            }
+        }
+        return (List<T>) Collections.unmodifiableList(Arrays.asList(elements));
+    }
 
+    // The slice getter hands out a fresh view, so a no-op mod is recognised by element identity
+    private static <T> boolean sameElements(List<T> list, int from, int to, List<T> newValues) {
+        if (newValues.size() != to - from) {
+            return false;
+        }
+        for (int i = from; i < to; i++) {
+            if (list.get(i) != newValues.get(i - from)) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -25,6 +25,11 @@ public class ListLensWrapper<A, T> implements Mutations.LensProvider<A, List<T>>
         return lens.andThen(ListLens.index(index));
     }
     
+    // Range of elements [from, to), read as a view and set with one copy
+    public Lens<A, List<T>> slice(int from, int to) {
+        return lens.andThen(ListLens.slice(from, to));
+    }
+    
     // Delegate lens methods to the wrapped lens
     public List<T> get(A entity) {
         return lens.get(entity);
@@ -38,6 +43,11 @@ public class ListLensWrapper<A, T> implements Mutations.LensProvider<A, List<T>>
         return lens.andThen(that);
     }
     
+    // Read-only fold over every element
+    public Fold<A, T> each() {
+        return Fold.each(lens::get);
+    }
+    
     // Implement LensProvider interface
     @Override
     public Lens<A, List<T>> lens() {
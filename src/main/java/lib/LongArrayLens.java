@@ -0,0 +1,93 @@
+package lib;
+
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+import java.util.function.LongUnaryOperator;
+
+/**
+ * Copy-on-write lens over a {@code long[]} component, for numeric arrays too large to keep
+ * as a list of boxed values.
+ *
+ * <p>Arrays reachable from an entity are never modified: every update copies the array once with
+ * {@link Arrays#copyOf} and writes the changed elements into the copy, so element access and
+ * updates never box. Bulk updates are counted loops that call the operator once per element,
+ * through an interface call that is usually megamorphic. Setting an element to its current
+ * value returns the entity itself. Arrays returned by {@link #get(Object)} must not be modified.
+ *
+ * @param <A> the entity type
+ */
+public final class LongArrayLens<A> implements Mutations.LensProvider<A, long[]> {
+
+    private final Lens<A, long[]> lens;
+
+    public LongArrayLens(Function<A, long[]> getter, BiFunction<A, long[], A> setter) {
+        this.lens = Lens.of(getter, setter);
+    }
+
+    public LongArrayLens(Lens<A, long[]> lens) {
+        this.lens = lens;
+    }
+
+    public long[] get(A entity) {
+        return lens.get(entity);
+    }
+
+    public long get(A entity, int index) {
+        return lens.get(entity)[index];
+    }
+
+    public int length(A entity) {
+        return lens.get(entity).length;
+    }
+
+    public A set(A entity, long[] newValue) {
+        return lens.set(entity, newValue);
+    }
+
+    public A set(A entity, int index, long value) {
+        long[] array = lens.get(entity);
+        Objects.checkIndex(index, array.length);
+        if (array[index] == value) {
+            return entity;
+        }
+        long[] copy = Arrays.copyOf(array, array.length);
+        copy[index] = value;
+        return lens.set(entity, copy);
+    }
+
+    /**
+     * Replace the elements from {@code from} with {@code values}.
+     */
+    public A setRange(A entity, int from, long[] values) {
+        long[] array = lens.get(entity);
+        Objects.checkFromIndexSize(from, values.length, array.length);
+        long[] copy = Arrays.copyOf(array, array.length);
+        System.arraycopy(values, 0, copy, from, values.length);
+        return lens.set(entity, copy);
+    }
+
+    public A modAll(A entity, LongUnaryOperator f) {
+        long[] array = lens.get(entity);
+        return modRange(entity, 0, array.length, f);
+    }
+
+    /**
+     * Apply {@code f} to the elements in {@code [from, to)}.
+     */
+    public A modRange(A entity, int from, int to, LongUnaryOperator f) {
+        long[] array = lens.get(entity);
+        Objects.checkFromToIndex(from, to, array.length);
+        long[] copy = Arrays.copyOf(array, array.length);
+        for (int i = from; i < to; i++) {
+            copy[i] = f.applyAsLong(copy[i]);
+        }
+        return lens.set(entity, copy);
+    }
+
+    @Override
+    public Lens<A, long[]> lens() {
+        return lens;
+    }
+}
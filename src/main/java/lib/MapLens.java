@@ -1,24 +1,97 @@
 package lib;
 
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.NavigableMap;
 import java.util.Objects;
+import java.util.TreeMap;
+import java.util.function.Consumer;
 
 public final class MapLens {
 
     private MapLens() {}
 
     public static <K, V> Lens<Map<K, V>, V> key(K key) {
-        return Lens.of(
+        return Lens.ofElement(
                 map -> map.get(key),
                 (map, newValue) -> {
                     Objects.requireNonNull(key, "key");
+                    LensEvents.CollectionCopy event = new LensEvents.CollectionCopy();
+                    event.begin();
                     Map<K, V> copy = new HashMap<>(map);
                     copy.put(key, newValue);
-                    return Map.copyOf(copy);
+                    Map<K, V> result = Map.copyOf(copy);
+                    if (event.shouldCommit()) {
+                        event.collectionType = "Map";
+                        event.elements = result.size();
+                        event.commit();
+                    }
+                    return Interner.intern(result);
+                }
+        );
+    }
+
+    /**
+     * Like {@link #key}, for sorted maps: the copy stays a {@link NavigableMap} in the same order.
+     */
+    public static <K, V> Lens<NavigableMap<K, V>, V> sortedKey(K key) {
+        return Lens.ofElement(
+                map -> map.get(key),
+                (map, newValue) -> {
+                    Objects.requireNonNull(key, "key");
+                    return sortedCopy(map, copy -> copy.put(key, newValue));
                 }
         );
     }
-}
 
+    /**
+     * Lens over the entries with keys in {@code [from, to)}. Reading returns a view of the map,
+     * without copying. Setting replaces every entry of the range with the new entries, whose keys
+     * must lie in the range, and copies the map once. Setting the entries the range already
+     * holds returns the map itself.
+     *
+     * @throws IllegalArgumentException on setting an entry with a key outside the range
+     */
+    public static <K, V> Lens<NavigableMap<K, V>, NavigableMap<K, V>> range(K from, K to) {
+        return Lens.ofElement(
+                map -> map.subMap(from, true, to, false),
+                (map, newEntries) -> sameEntries(map.subMap(from, true, to, false), newEntries)
+                        ? map
+                        : sortedCopy(map, copy -> {
+                            NavigableMap<K, V> range = copy.subMap(from, true, to, false);
+                            range.clear();
+                            range.putAll(newEntries);
+                        })
+        );
+    }
 
+    // The range getter hands out a fresh view, so a no-op mod is recognised by value identity per key
+    private static <K, V> boolean sameEntries(Map<K, V> range, Map<K, V> newEntries) {
+        if (range.size() != newEntries.size()) {
+            return false;
+        }
+        for (Map.Entry<K, V> entry : range.entrySet()) {
+            V value = newEntries.get(entry.getKey());
+            if (value != entry.getValue() || value == null && !newEntries.containsKey(entry.getKey())) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    static <K, V> NavigableMap<K, V> sortedCopy(NavigableMap<K, V> map, Consumer<NavigableMap<K, V>> update) {
+        LensEvents.CollectionCopy event = new LensEvents.CollectionCopy();
+        event.begin();
+        NavigableMap<K, V> copy = new TreeMap<>(map);
+        update.accept(copy);
+        NavigableMap<K, V> result = Collections.unmodifiableNavigableMap(copy);
+        if (event.shouldCommit()) {
+            event.collectionType = "NavigableMap";
+            event.elements = result.size();
+            event.commit();
+        }
+        // Not interned: equal sorted maps may still differ in their comparators
+        return result;
+    }
+}
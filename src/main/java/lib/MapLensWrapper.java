@@ -25,6 +25,11 @@ public class MapLensWrapper<A, K, V> implements Mutations.LensProvider<A, Map<K,
         return lens.andThen(MapLens.key(key));
     }
     
+    // Read-only fold over every value
+    public Fold<A, V> values() {
+        return Fold.values(lens::get);
+    }
+    
     // Delegate lens methods to the wrapped lens
     public Map<K, V> get(A entity) {
         return lens.get(entity);
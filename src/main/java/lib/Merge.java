@@ -0,0 +1,174 @@
+package lib;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+/**
+ * Three-way structural merge of two versions derived from a common base.
+ *
+ * <p>The merge walks base, ours and theirs side by side. Wherever one side still holds the
+ * base instance, or a leaf value equal to it, the other side's value is taken as is, so
+ * untouched subtrees are never descended into and the cost is proportional to the size of the
+ * two changes. Records, lists and maps are compared by identity only. Where both
+ * sides replaced a value, records are merged component by component, lists of unchanged
+ * length element by element, maps key by key, and optionals through their contents, so
+ * changes to different components, list indexes or map keys combine. A merged sorted map
+ * keeps the comparator of ours.
+ *
+ * <p>A conflict is reported only where both sides changed the same path to different values,
+ * or changed a list to different lengths; the merged value keeps ours there. A typical
+ * optimistic write retries through
+ * {@code store.update(key, current -> current == base ? ours : Merge.threeWay(base, current, ours).merged())}
+ * after checking the result for conflicts.
+ */
+public final class Merge {
+
+    private Merge() {}
+
+    public static <A extends Record> Result<A> threeWay(A base, A ours, A theirs) {
+        @SuppressWarnings("unchecked")
+        Class<A> type = (Class<A>) ours.getClass();
+        List<Conflict<A>> conflicts = new ArrayList<>();
+        @SuppressWarnings("unchecked")
+        A merged = (A) merge(LensPath.root(type), base, ours, theirs, conflicts);
+        return new Result<>(merged, List.copyOf(conflicts));
+    }
+
+    private static <A> Object merge(LensPath<A, ?> path, Object base, Object ours, Object theirs, List<Conflict<A>> conflicts) {
+        if (same(ours, theirs) || same(base, theirs)) {
+            return ours;
+        }
+        if (same(base, ours)) {
+            return theirs;
+        }
+        if (ours instanceof Record && theirs != null && ours.getClass() == theirs.getClass()
+                && (base == null || base.getClass() == ours.getClass())) {
+            return mergeRecord(path, (Record) base, (Record) ours, (Record) theirs, conflicts);
+        }
+        if (ours instanceof List<?> oursList && theirs instanceof List<?> theirsList && base instanceof List<?> baseList
+                && baseList.size() == oursList.size() && baseList.size() == theirsList.size()) {
+            return mergeList(path, baseList, oursList, theirsList, conflicts);
+        }
+        if (ours instanceof Map<?, ?> oursMap && theirs instanceof Map<?, ?> theirsMap
+                && (base == null || base instanceof Map<?, ?>)) {
+            return mergeMap(path, base == null ? Map.of() : (Map<?, ?>) base, oursMap, theirsMap, conflicts);
+        }
+        if (ours instanceof Optional<?> oursOptional && theirs instanceof Optional<?> theirsOptional
+                && oursOptional.isPresent() && theirsOptional.isPresent() && isStructure(oursOptional.get())) {
+            // Paths unwrap optionals implicitly, so the contents share the optional's path
+            Object baseValue = base instanceof Optional<?> baseOptional ? baseOptional.orElse(null) : null;
+            Object merged = merge(path, baseValue, oursOptional.get(), theirsOptional.get(), conflicts);
+            return merged == oursOptional.get() ? ours : merged == theirsOptional.get() ? theirs : Optional.of(merged);
+        }
+        conflicts.add(new Conflict<>(path, base, ours, theirs));
+        return ours;
+    }
+
+    private static boolean isStructure(Object value) {
+        return value instanceof Record || value instanceof List<?> || value instanceof Map<?, ?>;
+    }
+
+    /**
+     * Identity for structures, which are only ever descended into, and equality for leaves, so
+     * that equal values decoded or rebuilt independently do not count as changes.
+     */
+    private static boolean same(Object first, Object second) {
+        if (first == second) {
+            return true;
+        }
+        if (isStructure(first) || first instanceof Optional<?> optional && optional.isPresent() && isStructure(optional.get())) {
+            return false;
+        }
+        return Objects.equals(first, second);
+    }
+
+    private static <A> Object mergeRecord(LensPath<A, ?> path, Record base, Record ours, Record theirs, List<Conflict<A>> conflicts) {
+        RecordLens.Shape shape = RecordLens.shape(ours.getClass());
+        Object[] values = new Object[shape.names.length];
+        boolean keepsOurs = true;
+        boolean keepsTheirs = true;
+        for (int i = 0; i < values.length; i++) {
+            Object oursValue = shape.get(ours, i);
+            Object theirsValue = shape.get(theirs, i);
+            Object baseValue = base == null ? null : shape.get(base, i);
+            values[i] = oursValue == theirsValue ? oursValue
+                    : merge(path.component(shape.names[i]), baseValue, oursValue, theirsValue, conflicts);
+            keepsOurs &= values[i] == oursValue;
+            keepsTheirs &= values[i] == theirsValue;
+        }
+        return keepsOurs ? ours : keepsTheirs ? theirs : shape.construct(values);
+    }
+
+    private static <A> Object mergeList(LensPath<A, ?> path, List<?> base, List<?> ours, List<?> theirs, List<Conflict<A>> conflicts) {
+        List<Object> merged = new ArrayList<>(ours.size());
+        boolean keepsOurs = true;
+        boolean keepsTheirs = true;
+        for (int i = 0; i < ours.size(); i++) {
+            Object oursValue = ours.get(i);
+            Object theirsValue = theirs.get(i);
+            Object value = oursValue == theirsValue ? oursValue
+                    : merge(path.index(i), base.get(i), oursValue, theirsValue, conflicts);
+            merged.add(value);
+            keepsOurs &= value == oursValue;
+            keepsTheirs &= value == theirsValue;
+        }
+        return keepsOurs ? ours : keepsTheirs ? theirs : Interner.intern(List.copyOf(merged));
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <A> Object mergeMap(LensPath<A, ?> path, Map<?, ?> base, Map<?, ?> ours, Map<?, ?> theirs, List<Conflict<A>> conflicts) {
+        Set<Object> keys = new LinkedHashSet<>(ours.keySet());
+        keys.addAll(theirs.keySet());
+        keys.addAll(base.keySet());
+        Map<Object, Object> merged = ours instanceof SortedMap<?, ?> sorted
+                ? new TreeMap<>((Comparator<Object>) sorted.comparator())
+                : new HashMap<>();
+        boolean keepsOurs = true;
+        boolean keepsTheirs = true;
+        for (Object key : keys) {
+            Object oursValue = ours.get(key);
+            Object theirsValue = theirs.get(key);
+            // A null value stands for an absent key, so removals merge like any other change
+            Object value = oursValue == theirsValue ? oursValue
+                    : merge(path.key(key), base.get(key), oursValue, theirsValue, conflicts);
+            if (value != null) {
+                merged.put(key, value);
+            }
+            keepsOurs &= value == oursValue;
+            keepsTheirs &= value == theirsValue;
+        }
+        if (keepsOurs || keepsTheirs) {
+            return keepsOurs ? ours : theirs;
+        }
+        // Sorted maps are not interned: equal sorted maps may still differ in their comparators
+        return merged instanceof NavigableMap<Object, Object> sorted
+                ? Collections.unmodifiableNavigableMap(sorted)
+                : Interner.intern(Map.copyOf(merged));
+    }
+
+    /**
+     * Outcome of a merge. Where there are conflicts, {@code merged} holds ours.
+     */
+    public record Result<A>(A merged, List<Conflict<A>> conflicts) {
+
+        public boolean isClean() {
+            return conflicts.isEmpty();
+        }
+    }
+
+    /**
+     * A path both sides changed to different values. An absent map key is given as null.
+     */
+    public record Conflict<A>(LensPath<A, ?> path, Object base, Object ours, Object theirs) {}
+}
@@ -0,0 +1,156 @@
+package lib;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+/**
+ * Applies a stream of per-entity {@link Mutations} to an {@link EntityStore} in batches.
+ *
+ * <p>Requests are read in batches of {@code batchSize}; inside a batch they are grouped by
+ * entity id and each group is applied as one fused update, so an entity receiving many small
+ * field updates is rebuilt and versioned once per batch instead of once per request. Groups
+ * of one batch run in parallel, on virtual threads by default, with at most
+ * {@code maxInFlight} groups running at once; the reading thread blocks when that limit is
+ * reached. Batches run one after the other, which keeps the updates of each entity in
+ * request order. A {@link BatchReport} is passed to the reporter after every batch.
+ *
+ * @param <K> the entity id type
+ * @param <A> the entity type
+ */
+public final class MutationExecutor<K, A> implements AutoCloseable {
+
+    private static final int DEFAULT_BATCH_SIZE = 4096;
+    private static final int DEFAULT_MAX_IN_FLIGHT = 256;
+
+    private final EntityStore<K, A> store;
+    private final ExecutorService executor;
+    private final boolean ownsExecutor;
+    private final int batchSize;
+    private final Semaphore inFlight;
+    private final Consumer<BatchReport<K>> reporter;
+
+    public MutationExecutor(EntityStore<K, A> store) {
+        this(store, DEFAULT_BATCH_SIZE, DEFAULT_MAX_IN_FLIGHT, report -> {});
+    }
+
+    public MutationExecutor(EntityStore<K, A> store, int batchSize, int maxInFlight, Consumer<BatchReport<K>> reporter) {
+        this(store, Executors.newVirtualThreadPerTaskExecutor(), true, batchSize, maxInFlight, reporter);
+    }
+
+    /**
+     * Run groups on a caller-owned executor (e.g. a bounded carrier pool) instead of virtual
+     * threads. The executor is not shut down by {@link #close()}.
+     */
+    public MutationExecutor(EntityStore<K, A> store, ExecutorService executor, int batchSize, int maxInFlight,
+                            Consumer<BatchReport<K>> reporter) {
+        this(store, executor, false, batchSize, maxInFlight, reporter);
+    }
+
+    private MutationExecutor(EntityStore<K, A> store, ExecutorService executor, boolean ownsExecutor, int batchSize,
+                             int maxInFlight, Consumer<BatchReport<K>> reporter) {
+        if (batchSize < 1 || maxInFlight < 1) {
+            throw new IllegalArgumentException("batchSize and maxInFlight must be positive");
+        }
+        this.store = store;
+        this.executor = executor;
+        this.ownsExecutor = ownsExecutor;
+        this.batchSize = batchSize;
+        this.inFlight = new Semaphore(maxInFlight);
+        this.reporter = reporter;
+    }
+
+    /**
+     * Apply all requests and block until they are applied.
+     *
+     * @return the number of requests read from the stream
+     */
+    public long execute(Stream<Request<K, A>> requests) {
+        long total = 0;
+        Iterator<Request<K, A>> iterator = requests.iterator();
+        Map<K, List<Mutations<A>>> groups = new LinkedHashMap<>();
+        int pending = 0;
+        while (iterator.hasNext()) {
+            Request<K, A> request = iterator.next();
+            groups.computeIfAbsent(request.id(), id -> new ArrayList<>()).add(request.mutations());
+            total++;
+            if (++pending == batchSize) {
+                runBatch(groups, pending);
+                groups = new LinkedHashMap<>();
+                pending = 0;
+            }
+        }
+        if (pending > 0) {
+            runBatch(groups, pending);
+        }
+        return total;
+    }
+
+    private void runBatch(Map<K, List<Mutations<A>>> groups, int requests) {
+        long start = System.nanoTime();
+        CountDownLatch done = new CountDownLatch(groups.size());
+        Map<K, Throwable> failures = new ConcurrentHashMap<>();
+        try {
+            for (Map.Entry<K, List<Mutations<A>>> group : groups.entrySet()) {
+                inFlight.acquire();
+                try {
+                    executor.execute(() -> {
+                        try {
+                            store.update(group.getKey(), entity -> applyAll(entity, group.getValue()));
+                        } catch (Throwable t) {
+                            failures.put(group.getKey(), t);
+                        } finally {
+                            inFlight.release();
+                            done.countDown();
+                        }
+                    });
+                } catch (RuntimeException e) {
+                    // The group never ran (e.g. a rejecting executor), so its permit must be returned here
+                    inFlight.release();
+                    throw e;
+                }
+            }
+            done.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while applying mutations", e);
+        }
+        if (LensMetrics.ENABLED) {
+            LensMetrics.executorBatch(requests, groups.size());
+        }
+        reporter.accept(new BatchReport<>(requests, groups.size(), Collections.unmodifiableMap(failures), System.nanoTime() - start));
+    }
+
+    private static <A> A applyAll(A entity, List<Mutations<A>> mutations) {
+        A current = entity;
+        for (Mutations<A> m : mutations) {
+            current = m.apply(current);
+        }
+        return current;
+    }
+
+    @Override
+    public void close() {
+        if (ownsExecutor) {
+            executor.close();
+        }
+    }
+
+    public record Request<K, A>(K id, Mutations<A> mutations) {}
+
+    /**
+     * Outcome of one batch: request and entity counts, the entities whose update failed
+     * (their other updates in the batch were not applied) and the wall-clock duration.
+     */
+    public record BatchReport<K>(int requests, int entities, Map<K, Throwable> failures, long nanos) {}
+}
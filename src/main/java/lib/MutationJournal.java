@@ -0,0 +1,400 @@
+package lib;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+import java.util.stream.Stream;
+import java.util.zip.CRC32C;
+
+/**
+ * Append-only journal of mutation batches in memory-mapped segment files.
+ *
+ * <p>Each batch is encoded as the entity key followed by (path id, value) pairs, where a path
+ * id identifies a lens registered with {@link #register}. Path ids are part of the on-disk
+ * format and must stay stable across restarts. Only {@code set} operations can be journaled;
+ * compute a {@code mod} locally and journal its result.
+ *
+ * <p>Segments are files of a fixed size holding records of the form
+ * {@code [int length][int crc32c][body]}; a zero length marks the end of a segment.
+ * {@link #append} copies a record into the mapped segment; {@link #sync} makes everything
+ * appended up to a position durable. Concurrent callers of {@code sync} are group-committed:
+ * one of them forces the segment for all writes that happened before it started.
+ *
+ * <p>{@link #replay} reads all segments, groups records by key and re-applies the batches of
+ * different keys in parallel, each key's batches in append order.
+ *
+ * @param <K> the entity key type
+ * @param <A> the entity type
+ */
+public final class MutationJournal<K, A> implements AutoCloseable {
+
+    private static final int HEADER_SIZE = 8;
+    private static final String SEGMENT_SUFFIX = ".seg";
+
+    private final Path directory;
+    private final Codec<K> keyCodec;
+    private final int segmentSize;
+    private final Map<Integer, Field<A, ?>> fields = new ConcurrentHashMap<>();
+
+    private final Object appendLock = new Object();
+    private final ReentrantLock syncLock = new ReentrantLock();
+    private MappedByteBuffer segment;
+    private int segmentIndex;
+    // Total bytes appended and total bytes known to be durable, across segments
+    private long appended;
+    private volatile long durable;
+
+    public MutationJournal(Path directory, Codec<K> keyCodec, int segmentSize) throws IOException {
+        this.directory = directory;
+        this.keyCodec = keyCodec;
+        this.segmentSize = segmentSize;
+        Files.createDirectories(directory);
+
+        List<Path> segments = segments();
+        if (segments.isEmpty()) {
+            openSegment(0);
+        } else {
+            Path last = segments.get(segments.size() - 1);
+            openSegment(segmentIndex(last));
+            int end = endOfRecords(segment);
+            discardTail(end);
+            segment.position(end);
+        }
+    }
+
+    /**
+     * Register a lens under a stable path id.
+     */
+    public <B> Field<A, B> register(int id, Lens<A, B> lens, Codec<B> codec) {
+        Field<A, B> field = new Field<>(id, lens, codec);
+        if (fields.putIfAbsent(id, field) != null) {
+            throw new IllegalArgumentException("Path id " + id + " is already registered");
+        }
+        return field;
+    }
+
+    public <B> Field<A, B> register(int id, Mutations.LensProvider<A, B> provider, Codec<B> codec) {
+        return register(id, provider.lens(), codec);
+    }
+
+    public Batch<K, A> batch(K key) {
+        return new Batch<>(key);
+    }
+
+    /**
+     * Append a batch without waiting for it to reach disk.
+     *
+     * @return the journal position to pass to {@link #sync(long)}
+     */
+    public long append(Batch<K, A> batch) {
+        LensEvents.JournalOperation event = new LensEvents.JournalOperation();
+        event.begin();
+        ByteBuffer body = Codecs.<Batch<K, A>>encode(this::writeBody, batch);
+        int length = body.remaining();
+        if (length + HEADER_SIZE > segmentSize - Integer.BYTES) {
+            throw new IllegalArgumentException("Batch of " + length + " bytes does not fit in a segment");
+        }
+        CRC32C crc = new CRC32C();
+        crc.update(body.duplicate());
+
+        long position;
+        synchronized (appendLock) {
+            // Keep room for the zero length that ends the segment
+            if (segment.remaining() < length + HEADER_SIZE + Integer.BYTES) {
+                rollSegment();
+            }
+            segment.putInt(length).putInt((int) crc.getValue()).put(body);
+            appended += length + HEADER_SIZE;
+            position = appended;
+        }
+        if (event.shouldCommit()) {
+            event.operation = "append";
+            event.bytes = length + HEADER_SIZE;
+            event.records = 1;
+            event.commit();
+        }
+        return position;
+    }
+
+    /**
+     * Block until everything appended up to {@code position} is durable.
+     */
+    public void sync(long position) {
+        if (durable >= position) {
+            return;
+        }
+        syncLock.lock();
+        try {
+            if (durable >= position) {
+                return;
+            }
+            long target;
+            MappedByteBuffer current;
+            synchronized (appendLock) {
+                target = appended;
+                current = segment;
+            }
+            LensEvents.JournalOperation event = new LensEvents.JournalOperation();
+            event.begin();
+            current.force();
+            if (event.shouldCommit()) {
+                event.operation = "sync";
+                event.bytes = target - durable;
+                event.commit();
+            }
+            durable = target;
+        } finally {
+            syncLock.unlock();
+        }
+    }
+
+    /**
+     * Append a batch and wait until it is durable.
+     */
+    public void commit(Batch<K, A> batch) {
+        sync(append(batch));
+    }
+
+    public Map<K, A> replay(Function<? super K, ? extends A> initial) {
+        return replay(initial, ForkJoinPool.getCommonPoolParallelism());
+    }
+
+    /**
+     * Rebuild entity state from the journal.
+     *
+     * @param initial the state of an entity before its first journaled batch
+     * @param parallelism number of keys replayed concurrently
+     * @return the replayed entities by key
+     */
+    public Map<K, A> replay(Function<? super K, ? extends A> initial, int parallelism) {
+        LensEvents.JournalOperation event = new LensEvents.JournalOperation();
+        event.begin();
+        long bytes = 0;
+        int batches = 0;
+        Map<K, List<ByteBuffer>> batchesByKey = new LinkedHashMap<>();
+        try {
+            for (Path file : segments()) {
+                ByteBuffer records = readSegment(file);
+                while (records.remaining() >= HEADER_SIZE) {
+                    int length = records.getInt();
+                    int checksum = records.getInt();
+                    if (length <= 0 || length > records.remaining() || !checksumMatches(records, length, checksum)) {
+                        break;
+                    }
+                    ByteBuffer body = records.slice(records.position(), length);
+                    records.position(records.position() + length);
+                    K key = keyCodec.read(body);
+                    batchesByKey.computeIfAbsent(key, k -> new ArrayList<>()).add(body);
+                    bytes += length + HEADER_SIZE;
+                    batches++;
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+
+        Map<K, A> state = new ConcurrentHashMap<>();
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        try {
+            pool.submit(() -> new ArrayList<>(batchesByKey.entrySet()).parallelStream().forEach(entry -> {
+                A entity = initial.apply(entry.getKey());
+                for (ByteBuffer body : entry.getValue()) {
+                    entity = applyBody(entity, body);
+                }
+                state.put(entry.getKey(), entity);
+            })).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted during replay", e);
+        } catch (ExecutionException e) {
+            throw RecordLens.rethrow(e.getCause());
+        } finally {
+            pool.shutdown();
+        }
+        if (event.shouldCommit()) {
+            event.operation = "replay";
+            event.bytes = bytes;
+            event.records = batches;
+            event.commit();
+        }
+        return state;
+    }
+
+    @Override
+    public void close() {
+        synchronized (appendLock) {
+            segment.force();
+            durable = appended;
+        }
+    }
+
+    private void writeBody(ByteBuffer buffer, Batch<K, A> batch) {
+        keyCodec.write(buffer, batch.key);
+        Codecs.writeVarInt(buffer, batch.operations.size());
+        for (Operation<A, ?> operation : batch.operations) {
+            operation.write(buffer);
+        }
+    }
+
+    private A applyBody(A entity, ByteBuffer body) {
+        int count = Codecs.readVarInt(body);
+        for (int i = 0; i < count; i++) {
+            int id = Codecs.readVarInt(body);
+            Field<A, ?> field = fields.get(id);
+            if (field == null) {
+                throw new IllegalStateException("Journal references unregistered path id " + id);
+            }
+            entity = field.readAndSet(entity, body);
+        }
+        return entity;
+    }
+
+    private static boolean checksumMatches(ByteBuffer records, int length, int checksum) {
+        CRC32C crc = new CRC32C();
+        crc.update(records.slice(records.position(), length));
+        return (int) crc.getValue() == checksum;
+    }
+
+    private void rollSegment() {
+        segment.putInt(0);
+        segment.force();
+        durable = appended;
+        openSegment(segmentIndex + 1);
+    }
+
+    private void openSegment(int index) {
+        try (FileChannel channel = FileChannel.open(segmentPath(index),
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            segment = channel.map(FileChannel.MapMode.READ_WRITE, 0, segmentSize);
+            segmentIndex = index;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * End of the valid records, checked the same way as {@link #replay}, so that appends after
+     * a torn write land where replay stops rather than behind the damaged record.
+     */
+    private static int endOfRecords(ByteBuffer buffer) {
+        int position = 0;
+        while (position + HEADER_SIZE <= buffer.limit()) {
+            int length = buffer.getInt(position);
+            int checksum = buffer.getInt(position + Integer.BYTES);
+            if (length <= 0 || position + HEADER_SIZE + length > buffer.limit()
+                    || !checksumMatches(buffer.slice(position + HEADER_SIZE, length), length, checksum)) {
+                break;
+            }
+            position += HEADER_SIZE + length;
+        }
+        return position;
+    }
+
+    /**
+     * Zero whatever a torn write left after the valid records, so that no stale length can be
+     * read as the next record once new records are appended in front of it.
+     */
+    private void discardTail(int end) {
+        if (end + Integer.BYTES > segment.limit() || segment.getInt(end) == 0) {
+            return;
+        }
+        byte[] zeros = new byte[Math.min(8192, segment.limit() - end)];
+        for (int position = end; position < segment.limit(); position += zeros.length) {
+            segment.put(position, zeros, 0, Math.min(zeros.length, segment.limit() - position));
+        }
+        segment.force();
+    }
+
+    private ByteBuffer readSegment(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            return channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+    }
+
+    private List<Path> segments() {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(file -> file.getFileName().toString().endsWith(SEGMENT_SUFFIX)).sorted().toList();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private Path segmentPath(int index) {
+        return directory.resolve(String.format("%010d", index) + SEGMENT_SUFFIX);
+    }
+
+    private static int segmentIndex(Path file) {
+        String name = file.getFileName().toString();
+        return Integer.parseInt(name.substring(0, name.length() - SEGMENT_SUFFIX.length()));
+    }
+
+    /**
+     * A lens registered under a path id, with the codec for its values.
+     */
+    public record Field<A, B>(int id, Lens<A, B> lens, Codec<B> codec) {
+
+        private A readAndSet(A entity, ByteBuffer buffer) {
+            return lens.set(entity, codec.read(buffer));
+        }
+    }
+
+    private record Operation<A, B>(Field<A, B> field, B value) {
+
+        void write(ByteBuffer buffer) {
+            Codecs.writeVarInt(buffer, field.id());
+            field.codec().write(buffer, value);
+        }
+    }
+
+    /**
+     * The set operations applied to one entity, in a form that can be both applied and journaled.
+     */
+    public static final class Batch<K, A> {
+
+        private final K key;
+        private final List<Operation<A, ?>> operations = new ArrayList<>();
+
+        private Batch(K key) {
+            this.key = key;
+        }
+
+        public K key() {
+            return key;
+        }
+
+        public <B> Batch<K, A> set(Field<A, B> field, B newValue) {
+            operations.add(new Operation<>(field, newValue));
+            return this;
+        }
+
+        public Mutations<A> mutations() {
+            Mutations<A> mutations = Mutations.forType();
+            for (Operation<A, ?> operation : operations) {
+                addTo(mutations, operation);
+            }
+            return mutations;
+        }
+
+        public A apply(A entity) {
+            return mutations().apply(entity);
+        }
+
+        private static <A, B> void addTo(Mutations<A> mutations, Operation<A, B> operation) {
+            mutations.set(operation.field().lens(), operation.value());
+        }
+    }
+}
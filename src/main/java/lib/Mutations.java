@@ -15,7 +15,7 @@ public final class Mutations<A> {
     public static <A> BoundMutations<A> forValue(A value) { return new BoundMutations<>(value); }
 
     public <B> Mutations<A> set(Lens<A, B> lens, B newValue) {
-        operations.add(a -> lens.set(a, newValue));
+        operations.add(setOperation(lens, newValue));
         return this;
     }
 
@@ -24,7 +24,7 @@ public final class Mutations<A> {
     }
 
     public <B> Mutations<A> mod(Lens<A, B> lens, UnaryOperator<B> f) {
-        operations.add(a -> lens.mod(a, f));
+        operations.add(modOperation(lens, f));
         return this;
     }
 
@@ -32,6 +32,43 @@ public final class Mutations<A> {
         return mod(provider.lens(), f);
     }
 
+    /**
+     * Apply all recorded operations to the given value.
+     */
+    public A apply(A value) {
+        return applyAll(operations, value);
+    }
+
+    private static <A> A applyAll(List<UnaryOperator<A>> operations, A value) {
+        LensEvents.MutationApply event = new LensEvents.MutationApply();
+        event.begin();
+        A current = value;
+        int noOps = 0;
+        for (UnaryOperator<A> op : operations) {
+            A next = op.apply(current);
+            if (next == current) noOps++;
+            current = next;
+        }
+        if (LensMetrics.ENABLED) {
+            LensMetrics.mutations(operations.size(), noOps);
+        }
+        if (event.shouldCommit()) {
+            event.entityType = value == null ? null : value.getClass();
+            event.operations = operations.size();
+            event.noOps = noOps;
+            event.commit();
+        }
+        return current;
+    }
+
+    static <A, B> UnaryOperator<A> setOperation(Lens<A, B> lens, B newValue) {
+        return a -> lens.set(a, newValue);
+    }
+
+    static <A, B> UnaryOperator<A> modOperation(Lens<A, B> lens, UnaryOperator<B> f) {
+        return a -> lens.mod(a, f);
+    }
+
     public interface LensProvider<A, B> {
         Lens<A, B> lens();
     }
@@ -43,7 +80,7 @@ public final class Mutations<A> {
         private BoundMutations(A start) { this.current = start; }
 
         public <B> BoundMutations<A> set(Lens<A, B> lens, B newValue) {
-            operations.add(a -> lens.set(a, newValue));
+            operations.add(setOperation(lens, newValue));
             return this;
         }
 
@@ -52,7 +89,7 @@ public final class Mutations<A> {
         }
 
         public <B> BoundMutations<A> mod(Lens<A, B> lens, UnaryOperator<B> f) {
-            operations.add(a -> lens.mod(a, f));
+            operations.add(modOperation(lens, f));
             return this;
         }
 
@@ -61,10 +98,8 @@ public final class Mutations<A> {
         }
 
         public A apply() {
-            for (UnaryOperator<A> op : operations) current = op.apply(current);
+            current = applyAll(operations, current);
             return current;
         }
     }
 }
-
-
@@ -1,8 +1,10 @@
 package lib;
 
+import java.util.ArrayList;
 import java.util.List;
 import java.util.function.BiFunction;
 import java.util.function.Function;
+import java.util.function.UnaryOperator;
 
 /**
  * Abstract base class for list lens wrappers that return domain lens objects.
@@ -36,6 +38,13 @@ public class ObjectListLensWrapper<A, T, DomainLens> implements Mutations.LensPr
         return createIndexLens(index, lensFactory);
     }
     
+    /**
+     * Lens over the elements in {@code [from, to)}; see {@link ListLens#slice}.
+     */
+    public Lens<A, List<T>> slice(int from, int to) {
+        return lens.andThen(ListLens.slice(from, to));
+    }
+    
     // Implement LensProvider interface
     @Override
     public Lens<A, List<T>> lens() {
@@ -51,6 +60,51 @@ public class ObjectListLensWrapper<A, T, DomainLens> implements Mutations.LensPr
         return lens.andThen(that);
     }
     
+    /**
+     * Read-only fold over every element of the list.
+     */
+    public Fold<A, T> each() {
+        return Fold.each(lens::get);
+    }
+    
+    /**
+     * Values of one leaf component, named by its dotted path, of every element. Reads the
+     * column directly when the list is a {@link ColumnarList}.
+     */
+    @SuppressWarnings("unchecked")
+    public <B> List<B> column(A entity, String path) {
+        List<T> list = lens.get(entity);
+        if (list instanceof ColumnarList<?> columnar) {
+            return columnar.column(path);
+        }
+        List<B> values = new ArrayList<>(list.size());
+        for (T element : list) {
+            values.add(RecordLens.<Record, B>path((Class<Record>) element.getClass(), path).get((Record) element));
+        }
+        return values;
+    }
+    
+    /**
+     * Apply {@code f} to one leaf component, named by its dotted path, of every element.
+     * Rewrites a single column when the list is a {@link ColumnarList}.
+     */
+    @SuppressWarnings("unchecked")
+    public <B> A mapColumn(A entity, String path, UnaryOperator<B> f) {
+        List<T> list = lens.get(entity);
+        if (list instanceof ColumnarList<?> columnar) {
+            return lens.set(entity, (List<T>) columnar.mapColumn(path, f));
+        }
+        List<T> updated = new ArrayList<>(list.size());
+        boolean changed = false;
+        for (T element : list) {
+            Lens<Record, B> leaf = RecordLens.path((Class<Record>) element.getClass(), path);
+            T newElement = (T) Mutations.modOperation(leaf, f).apply((Record) element);
+            changed |= newElement != element;
+            updated.add(newElement);
+        }
+        return changed ? lens.set(entity, List.copyOf(updated)) : entity;
+    }
+    
     /**
      * Helper method for subclasses to create domain lens objects using list index access.
      * 
@@ -56,6 +56,11 @@ public class ObjectMapLensWrapper<A, K, V, DomainLens> implements Mutations.Lens
         return lens.andThen(MapLens.key(key));
     }
     
+    // Read-only fold over every value
+    public Fold<A, V> values() {
+        return Fold.values(lens::get);
+    }
+    
     /**
      * Helper method for subclasses to create domain lens objects using map key access.
      * 
@@ -0,0 +1,11 @@
+package lib;
+
+/**
+ * Immutable tuple used as the focus of product lenses (see {@link Lens#zip(Lens, Lens)}).
+ */
+public record Pair<A, B>(A first, B second) {
+
+    public static <A, B> Pair<A, B> of(A first, B second) {
+        return new Pair<>(first, second);
+    }
+}
@@ -0,0 +1,19 @@
+package lib;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Codec of a record whose components are encoded one after the other, in declaration order.
+ * Generated record codecs implement this so that {@link EncodedLens} can navigate to a
+ * component without decoding the ones before it.
+ *
+ * @param <T> the record type
+ */
+public interface RecordCodec<T> extends Codec<T> {
+
+    /**
+     * Advance a buffer positioned at the start of an encoded record to the start of the
+     * component at {@code index}.
+     */
+    void locate(ByteBuffer buffer, int index);
+}
@@ -0,0 +1,287 @@
+package lib;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.RecordComponent;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+
+/**
+ * Runtime lenses for arbitrary records, built on method handles instead of generated Withers.
+ * This covers records that are never seen by the code generator (e.g. plugin-provided types).
+ * Accessor and canonical constructor handles are resolved once per record class and cached
+ * in a {@link ClassValue}, so no reflection happens on the get/set path. The getter and setter
+ * of each component lens are hidden classes holding their handle in a {@code static final}
+ * field, so after warm-up they inline like the generated ones; {@code RecordLensBenchmark}
+ * compares the two.
+ */
+public final class RecordLens {
+
+    private static final ClassValue<Shape> SHAPES = new ClassValue<>() {
+        @Override
+        protected Shape computeValue(Class<?> type) {
+            return new Shape(type);
+        }
+    };
+
+    private RecordLens() {}
+
+    /**
+     * Lens over the named component of the given record class.
+     *
+     * @param type the record class
+     * @param component the record component name
+     * @return a cached lens whose setter calls the canonical constructor once
+     */
+    @SuppressWarnings("unchecked")
+    public static <R extends Record, B> Lens<R, B> of(Class<R> type, String component) {
+        Shape shape = shape(type);
+        return (Lens<R, B>) shape.lenses[shape.indexOf(component)];
+    }
+
+    /**
+     * Same as {@link #of(Class, String)} but checks the component type up front.
+     */
+    public static <R extends Record, B> Lens<R, B> of(Class<R> type, String component, Class<B> componentType) {
+        Shape shape = shape(type);
+        Class<?> actual = shape.types[shape.indexOf(component)];
+        if (!boxed(componentType).isAssignableFrom(boxed(actual))) {
+            throw new IllegalArgumentException("Component " + type.getSimpleName() + "." + component
+                    + " is of type " + actual.getName() + ", not " + componentType.getName());
+        }
+        return of(type, component);
+    }
+
+    /**
+     * Lens through nested record components, named by a dotted path such as
+     * {@code "moreNested.moreNestedValue"}.
+     */
+    @SuppressWarnings("unchecked")
+    public static <R extends Record, B> Lens<R, B> path(Class<R> type, String path) {
+        Lens<Object, Object> lens = null;
+        Class<?> current = type;
+        for (String component : path.split("\\.")) {
+            Shape shape = shape(current);
+            int index = shape.indexOf(component);
+            Lens<Object, Object> step = (Lens<Object, Object>) shape.lenses[index];
+            lens = lens == null ? step : lens.andThen(step);
+            current = shape.types[index];
+        }
+        return (Lens<R, B>) (Lens<?, ?>) lens;
+    }
+
+    /**
+     * Product lens over two components of the same record. Setting the pair calls the
+     * canonical constructor once.
+     */
+    public static <R extends Record, B, C> Lens<R, Pair<B, C>> zip(Class<R> type, String first, String second) {
+        Shape shape = shape(type);
+        return pair(type, shape.indexOf(first), shape.indexOf(second));
+    }
+
+    /**
+     * Product lens that views a subset of a record's components as a user-defined record.
+     * Every component of {@code view} must have the same name and type as a component of
+     * {@code type}; setting the view calls the canonical constructor of {@code type} once.
+     *
+     * @param type the source record class
+     * @param view the record class whose components select and carry the focused values
+     * @return a lens from the source record to the view record
+     */
+    @SuppressWarnings("unchecked")
+    public static <R extends Record, T extends Record> Lens<R, T> product(Class<R> type, Class<T> view) {
+        Shape source = shape(type);
+        Shape target = shape(view);
+        int[] indexes = new int[target.names.length];
+        for (int i = 0; i < indexes.length; i++) {
+            indexes[i] = source.indexOf(target.names[i]);
+            if (source.types[indexes[i]] != target.types[i]) {
+                throw new IllegalArgumentException("Component " + view.getSimpleName() + "." + target.names[i]
+                        + " does not match the type of " + type.getSimpleName() + "." + target.names[i]);
+            }
+        }
+        return Lens.of(
+                record -> {
+                    Object[] values = new Object[indexes.length];
+                    for (int i = 0; i < indexes.length; i++) {
+                        values[i] = source.get(record, indexes[i]);
+                    }
+                    return (T) target.construct(values);
+                },
+                (record, newView) -> (R) source.with(record, indexes, target.values(newView))
+        );
+    }
+
+    @SuppressWarnings("unchecked")
+    static <R, B, C> Lens<R, Pair<B, C>> pair(Class<?> type, int first, int second) {
+        Shape shape = shape(type);
+        int[] indexes = {first, second};
+        return Lens.of(
+                record -> new Pair<>((B) shape.get(record, first), (C) shape.get(record, second)),
+                (record, pair) -> (R) shape.with(record, indexes, new Object[] {pair.first(), pair.second()})
+        );
+    }
+
+    static Shape shape(Class<?> type) {
+        if (!type.isRecord()) {
+            throw new IllegalArgumentException("Class must be a record: " + type.getName());
+        }
+        return SHAPES.get(type);
+    }
+
+    private static Class<?> boxed(Class<?> type) {
+        return type.isPrimitive() ? MethodType.methodType(type).wrap().returnType() : type;
+    }
+
+    static RuntimeException rethrow(Throwable t) {
+        if (t instanceof RuntimeException e) {
+            throw e;
+        }
+        if (t instanceof Error e) {
+            throw e;
+        }
+        return new IllegalStateException(t);
+    }
+
+    /**
+     * Method handles for one record class: component accessors, the canonical constructor
+     * and one single-component "wither" per component.
+     */
+    static final class Shape {
+
+        final Class<?> type;
+        final String[] names;
+        final Class<?>[] types;
+        final MethodHandle[] accessors;
+        final MethodHandle constructor;
+        final Lens<?, ?>[] lenses;
+        private final Map<String, Integer> indexes = new HashMap<>();
+
+        private Shape(Class<?> type) {
+            this.type = type;
+            RecordComponent[] components = type.getRecordComponents();
+            this.names = new String[components.length];
+            this.types = new Class<?>[components.length];
+            this.accessors = new MethodHandle[components.length];
+            this.lenses = new Lens<?, ?>[components.length];
+
+            try {
+                MethodHandles.Lookup lookup = MethodHandles.privateLookupIn(type, MethodHandles.lookup());
+                MethodHandle[] typedAccessors = new MethodHandle[components.length];
+                for (int i = 0; i < components.length; i++) {
+                    names[i] = components[i].getName();
+                    types[i] = components[i].getType();
+                    indexes.put(names[i], i);
+                    typedAccessors[i] = lookup.unreflect(components[i].getAccessor());
+                    accessors[i] = typedAccessors[i].asType(MethodType.methodType(Object.class, Object.class));
+                }
+
+                MethodHandle canonical = lookup.findConstructor(type, MethodType.methodType(void.class, types));
+                this.constructor = canonical.asSpreader(Object[].class, components.length)
+                        .asType(MethodType.methodType(Object.class, Object[].class));
+
+                @SuppressWarnings("unchecked")
+                Class<Object> owner = (Class<Object>) type;
+                Lens.PairWither<Object> pairWither = (record, first, firstValue, second, secondValue) ->
+                        with(record, new int[] {first, second}, new Object[] {firstValue, secondValue});
+                for (int i = 0; i < components.length; i++) {
+                    @SuppressWarnings("unchecked")
+                    Function<Object, Object> getter = (Function<Object, Object>) constant(ComponentGetter.class, accessors[i]);
+                    @SuppressWarnings("unchecked")
+                    BiFunction<Object, Object, Object> setter = (BiFunction<Object, Object, Object>)
+                            constant(ComponentSetter.class, wither(canonical, typedAccessors, i));
+                    lenses[i] = Lens.ofComponent(owner, i, types[i], getter, setter, pairWither);
+                }
+            } catch (ReflectiveOperationException e) {
+                throw new IllegalArgumentException("Cannot access record " + type.getName(), e);
+            }
+        }
+
+        /**
+         * Builds (record, newValue) -> new Record(record.c0(), ..., newValue, ..., record.cN())
+         * out of the canonical constructor and the accessors of the untouched components.
+         */
+        private MethodHandle wither(MethodHandle canonical, MethodHandle[] typedAccessors, int index) {
+            MethodHandle handle = canonical;
+            int[] reorder = new int[types.length];
+            for (int j = 0; j < types.length; j++) {
+                if (j != index) {
+                    handle = MethodHandles.filterArguments(handle, j, typedAccessors[j]);
+                }
+                reorder[j] = j == index ? 1 : 0;
+            }
+            MethodType witherType = MethodType.methodType(type, type, types[index]);
+            return MethodHandles.permuteArguments(handle, witherType, reorder)
+                    .asType(MethodType.methodType(Object.class, Object.class, Object.class));
+        }
+
+        int indexOf(String component) {
+            Integer index = indexes.get(component);
+            if (index == null) {
+                throw new IllegalArgumentException("No component '" + component + "' in record " + type.getName());
+            }
+            return index;
+        }
+
+        Object get(Object record, int index) {
+            try {
+                return (Object) accessors[index].invokeExact(record);
+            } catch (Throwable t) {
+                throw rethrow(t);
+            }
+        }
+
+        Object[] values(Object record) {
+            Object[] values = new Object[accessors.length];
+            for (int i = 0; i < values.length; i++) {
+                values[i] = get(record, i);
+            }
+            return values;
+        }
+
+        Object with(Object record, int[] indexes, Object[] newValues) {
+            Object[] values = values(record);
+            for (int i = 0; i < indexes.length; i++) {
+                values[indexes[i]] = newValues[i];
+            }
+            return construct(values);
+        }
+
+        Object construct(Object[] values) {
+            try {
+                return Interner.intern((Object) constructor.invokeExact(values));
+            } catch (Throwable t) {
+                throw rethrow(t);
+            }
+        }
+    }
+
+    private static final ClassValue<byte[]> TEMPLATES = new ClassValue<>() {
+        @Override
+        protected byte[] computeValue(Class<?> template) {
+            try (InputStream in = template.getResourceAsStream(template.getSimpleName() + ".class")) {
+                return in.readAllBytes();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    };
+
+    /**
+     * A new instance of a hidden copy of {@code template} whose class data is {@code handle}.
+     */
+    private static Object constant(Class<?> template, MethodHandle handle) throws ReflectiveOperationException {
+        MethodHandles.Lookup hidden = MethodHandles.lookup().defineHiddenClassWithClassData(TEMPLATES.get(template), handle, true);
+        try {
+            return (Object) hidden.findConstructor(hidden.lookupClass(), MethodType.methodType(void.class)).invoke();
+        } catch (Throwable t) {
+            throw rethrow(t);
+        }
+    }
+}
@@ -0,0 +1,208 @@
+package lib;
+
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+
+/**
+ * A derived view of an entity, memoized against the identity of the subtrees it reads.
+ *
+ * <p>A selector reads one or more inputs from an entity, usually record accessors or lens
+ * getters such as {@code DomainEntity::nestedList}, and computes a result from them. Results
+ * are cached by the identity of the input values: updates through lenses keep untouched
+ * subtrees by reference, so the cached result is reused until an input is actually replaced,
+ * and no {@code equals} or {@code hashCode} of the inputs is ever called.
+ *
+ * <p>The cache keeps one slot per first input, held weakly by identity, with the latest
+ * result computed for it; further inputs are checked against the slot by identity. Entities
+ * therefore do not evict each other, a slot goes away once its input is collected, and reads
+ * take no lock. At most {@code capacity} slots are kept; beyond that an arbitrary slot is
+ * dropped. A result that references its own first input keeps that slot alive. A selector is
+ * itself a {@link Function} and returns the same instance for the same inputs, so it can
+ * serve as an input of another selector.
+ *
+ * @param <A> the entity type
+ * @param <R> the result type
+ */
+public final class Selector<A, R> implements Function<A, R> {
+
+    private static final int DEFAULT_CAPACITY = 4096;
+    // Stands for a null first input, which cannot be referenced weakly
+    private static final Object NULL = new Object();
+    private static final Object[] NO_VALUES = new Object[0];
+
+    private final List<Function<? super A, ?>> inputs;
+    private final Function<Object[], ? extends R> compute;
+    private final int capacity;
+    private final ConcurrentHashMap<IdentityKey, Memo> cache = new ConcurrentHashMap<>();
+    private final ReferenceQueue<Object> collected = new ReferenceQueue<>();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    private Selector(List<Function<? super A, ?>> inputs, Function<Object[], ? extends R> compute, int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("capacity must be positive");
+        }
+        this.inputs = inputs;
+        this.compute = compute;
+        this.capacity = capacity;
+    }
+
+    public static <A, B, R> Selector<A, R> of(Function<? super A, ? extends B> input,
+                                              Function<? super B, ? extends R> compute) {
+        return of(input, compute, DEFAULT_CAPACITY);
+    }
+
+    @SuppressWarnings("unchecked")
+    public static <A, B, R> Selector<A, R> of(Function<? super A, ? extends B> input,
+                                              Function<? super B, ? extends R> compute, int capacity) {
+        return new Selector<>(List.of(input), values -> compute.apply((B) values[0]), capacity);
+    }
+
+    public static <A, B, C, R> Selector<A, R> of(Function<? super A, ? extends B> first,
+                                                 Function<? super A, ? extends C> second,
+                                                 BiFunction<? super B, ? super C, ? extends R> compute) {
+        return of(first, second, compute, DEFAULT_CAPACITY);
+    }
+
+    @SuppressWarnings("unchecked")
+    public static <A, B, C, R> Selector<A, R> of(Function<? super A, ? extends B> first,
+                                                 Function<? super A, ? extends C> second,
+                                                 BiFunction<? super B, ? super C, ? extends R> compute, int capacity) {
+        return new Selector<>(List.of(first, second), values -> compute.apply((B) values[0], (C) values[1]), capacity);
+    }
+
+    @Override
+    public R apply(A entity) {
+        return get(entity);
+    }
+
+    @SuppressWarnings("unchecked")
+    public R get(A entity) {
+        Object[] values = new Object[inputs.size()];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = inputs.get(i).apply(entity);
+        }
+        Object first = values[0] == null ? NULL : values[0];
+        Memo memo = cache.get(new Lookup(first));
+        if (memo != null && memo.matches(values)) {
+            hits.increment();
+            return (R) memo.result;
+        }
+        // Computed without a lock: a concurrent miss on the same inputs may compute twice
+        misses.increment();
+        R result = compute.apply(values);
+        expungeCollected();
+        WeakKey key = new WeakKey(first, collected);
+        Memo computed = new Memo(values, result);
+        Memo raced = cache.putIfAbsent(key, computed);
+        if (raced == null) {
+            evictBeyondCapacity();
+        } else if (raced.matches(values)) {
+            return (R) raced.result;
+        } else {
+            cache.put(key, computed);
+        }
+        return result;
+    }
+
+    public long hits() {
+        return hits.sum();
+    }
+
+    public long misses() {
+        return misses.sum();
+    }
+
+    private void expungeCollected() {
+        Object released;
+        while ((released = collected.poll()) != null) {
+            cache.remove(released);
+        }
+    }
+
+    private void evictBeyondCapacity() {
+        Iterator<IdentityKey> keys = cache.keySet().iterator();
+        while (cache.size() > capacity && keys.hasNext()) {
+            keys.next();
+            keys.remove();
+        }
+    }
+
+    /**
+     * Latest result for one first input. The first input itself is held only by the weak key.
+     */
+    private static final class Memo {
+
+        private final Object[] rest;
+        private final Object result;
+
+        Memo(Object[] values, Object result) {
+            this.rest = values.length == 1 ? NO_VALUES : Arrays.copyOfRange(values, 1, values.length);
+            this.result = result;
+        }
+
+        boolean matches(Object[] values) {
+            for (int i = 0; i < rest.length; i++) {
+                if (rest[i] != values[i + 1]) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+
+    private interface IdentityKey {
+        Object referent();
+    }
+
+    // First input compared by reference, for lookups
+    private record Lookup(Object referent) implements IdentityKey {
+
+        @Override
+        public boolean equals(Object other) {
+            return other instanceof IdentityKey that && referent == that.referent();
+        }
+
+        @Override
+        public int hashCode() {
+            return System.identityHashCode(referent);
+        }
+    }
+
+    // First input compared by reference, without keeping it alive
+    private static final class WeakKey extends WeakReference<Object> implements IdentityKey {
+
+        private final int hash;
+
+        WeakKey(Object referent, ReferenceQueue<Object> queue) {
+            super(referent, queue);
+            this.hash = System.identityHashCode(referent);
+        }
+
+        @Override
+        public Object referent() {
+            return get();
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            if (this == other) {
+                return true;
+            }
+            Object referent = get();
+            return referent != null && other instanceof IdentityKey that && referent == that.referent();
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+}
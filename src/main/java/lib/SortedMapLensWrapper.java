@@ -0,0 +1,56 @@
+package lib;
+
+import java.util.NavigableMap;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+
+/**
+ * A generic wrapper around a Lens<A, NavigableMap<K, V>> that provides direct access to sorted map operations.
+ * This allows for syntax like: lens.range(from, to) instead of lens.andThen(MapLens.range(from, to))
+ */
+public class SortedMapLensWrapper<A, K, V> implements Mutations.LensProvider<A, NavigableMap<K, V>> {
+
+    private final Lens<A, NavigableMap<K, V>> lens;
+
+    public SortedMapLensWrapper(Function<A, NavigableMap<K, V>> getter, BiFunction<A, NavigableMap<K, V>, A> setter) {
+        this.lens = Lens.of(getter, setter);
+    }
+    
+    public SortedMapLensWrapper(Lens<A, NavigableMap<K, V>> lens) {
+        this.lens = lens;
+    }
+    
+    // Direct access to map key
+    public Lens<A, V> key(K key) {
+        return lens.andThen(MapLens.sortedKey(key));
+    }
+    
+    // Entries with keys in [from, to), read as a view and set with one copy
+    public Lens<A, NavigableMap<K, V>> range(K from, K to) {
+        return lens.andThen(MapLens.range(from, to));
+    }
+    
+    // Read-only fold over every value, in key order
+    public Fold<A, V> values() {
+        return Fold.values(lens::get);
+    }
+    
+    // Delegate lens methods to the wrapped lens
+    public NavigableMap<K, V> get(A entity) {
+        return lens.get(entity);
+    }
+    
+    public A set(A entity, NavigableMap<K, V> newValue) {
+        return lens.set(entity, newValue);
+    }
+    
+    public <C> Lens<A, C> andThen(Lens<NavigableMap<K, V>, C> that) {
+        return lens.andThen(that);
+    }
+    
+    // Implement LensProvider interface
+    @Override
+    public Lens<A, NavigableMap<K, V>> lens() {
+        return lens;
+    }
+}
@@ -0,0 +1,229 @@
+package lib;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.UnaryOperator;
+
+/**
+ * Small software transactional memory over immutable values, for atomic updates that span
+ * several entities (e.g. moving a Nested from one entity's nestedMap to another's nestedList).
+ *
+ * <p>Transactions read and write {@link Ref}s through lenses. Reads are validated against a
+ * global version clock, writes are buffered in the transaction and published at commit after
+ * locking the written refs and re-validating everything that was read. A conflicting
+ * transaction is retried from the start, re-running only its own function; transactions on
+ * disjoint refs never block each other.
+ *
+ * <p>Transaction functions may run several times and must not have side effects outside the
+ * refs they touch. Transactions do not nest: calling {@link #atomically} inside a transaction
+ * starts an independent one.
+ */
+public final class Stm {
+
+    private static final AtomicLong CLOCK = new AtomicLong();
+    private static final AtomicLong REF_IDS = new AtomicLong();
+    private static final LongAdder COMMITS = new LongAdder();
+    private static final LongAdder RETRIES = new LongAdder();
+
+    private Stm() {}
+
+    public static <A> Ref<A> ref(A initial) {
+        return new Ref<>(initial);
+    }
+
+    /**
+     * Run {@code body} in a transaction, retrying until it commits.
+     *
+     * @return the value returned by the committed run of {@code body}
+     */
+    public static <T> T atomically(Function<Transaction, T> body) {
+        for (int attempt = 0; ; attempt++) {
+            Transaction tx = new Transaction(CLOCK.get());
+            try {
+                T result = body.apply(tx);
+                if (tx.commit()) {
+                    COMMITS.increment();
+                    return result;
+                }
+            } catch (ConflictException e) {
+                // Inconsistent read, retry below
+            }
+            RETRIES.increment();
+            LensAtom.backoff(attempt);
+        }
+    }
+
+    public static void run(Consumer<Transaction> body) {
+        atomically(tx -> {
+            body.accept(tx);
+            return null;
+        });
+    }
+
+    public static long commits() {
+        return COMMITS.sum();
+    }
+
+    public static long retries() {
+        return RETRIES.sum();
+    }
+
+    /**
+     * A transactional reference to an immutable value.
+     */
+    public static final class Ref<A> {
+
+        private final long id = REF_IDS.incrementAndGet();
+        private final AtomicReference<Transaction> lock = new AtomicReference<>();
+        private volatile Box<A> box;
+
+        private Ref(A initial) {
+            this.box = new Box<>(0, initial);
+        }
+
+        /**
+         * The latest committed value, read outside of any transaction.
+         */
+        public A get() {
+            return box.value();
+        }
+
+        public <B> B get(Lens<A, B> lens) {
+            return lens.get(get());
+        }
+    }
+
+    private record Box<A>(long version, A value) {}
+
+    /**
+     * Reads and buffered writes of one transaction attempt.
+     */
+    public static final class Transaction {
+
+        private final long readVersion;
+        private final Map<Ref<?>, Long> reads = new HashMap<>();
+        private final Map<Ref<?>, Object> writes = new HashMap<>();
+
+        private Transaction(long readVersion) {
+            this.readVersion = readVersion;
+        }
+
+        @SuppressWarnings("unchecked")
+        public <A> A get(Ref<A> ref) {
+            if (writes.containsKey(ref)) {
+                return (A) writes.get(ref);
+            }
+            // A ref locked by a committer may be about to change at a version we should see
+            if (ref.lock.get() != null) {
+                throw ConflictException.INSTANCE;
+            }
+            Box<A> box = ref.box;
+            if (box.version() > readVersion) {
+                throw ConflictException.INSTANCE;
+            }
+            reads.putIfAbsent(ref, box.version());
+            return box.value();
+        }
+
+        public <A, B> B get(Ref<A> ref, Lens<A, B> lens) {
+            return lens.get(get(ref));
+        }
+
+        public <A> void put(Ref<A> ref, A value) {
+            writes.put(ref, value);
+        }
+
+        public <A> void update(Ref<A> ref, UnaryOperator<A> f) {
+            A current = get(ref);
+            A next = f.apply(current);
+            if (next != current) {
+                put(ref, next);
+            }
+        }
+
+        public <A, B> void set(Ref<A> ref, Lens<A, B> lens, B newValue) {
+            update(ref, Mutations.setOperation(lens, newValue));
+        }
+
+        public <A, B> void set(Ref<A> ref, Mutations.LensProvider<A, B> provider, B newValue) {
+            set(ref, provider.lens(), newValue);
+        }
+
+        public <A, B> void mod(Ref<A> ref, Lens<A, B> lens, UnaryOperator<B> f) {
+            update(ref, Mutations.modOperation(lens, f));
+        }
+
+        public <A, B> void mod(Ref<A> ref, Mutations.LensProvider<A, B> provider, UnaryOperator<B> f) {
+            mod(ref, provider.lens(), f);
+        }
+
+        public <A> void apply(Ref<A> ref, Mutations<A> mutations) {
+            update(ref, mutations::apply);
+        }
+
+        private boolean commit() {
+            // Read-only transactions were validated read by read
+            if (writes.isEmpty()) {
+                return true;
+            }
+            List<Ref<?>> locked = new ArrayList<>(writes.keySet());
+            locked.sort(Comparator.comparingLong(ref -> ref.id));
+            int acquired = 0;
+            try {
+                for (Ref<?> ref : locked) {
+                    if (!ref.lock.compareAndSet(null, this)) {
+                        return false;
+                    }
+                    acquired++;
+                }
+                long writeVersion = CLOCK.incrementAndGet();
+                if (writeVersion != readVersion + 1 && !validateReads()) {
+                    return false;
+                }
+                for (Ref<?> ref : locked) {
+                    install(ref, writeVersion);
+                }
+                return true;
+            } finally {
+                for (int i = 0; i < acquired; i++) {
+                    locked.get(i).lock.set(null);
+                }
+            }
+        }
+
+        private boolean validateReads() {
+            for (Map.Entry<Ref<?>, Long> read : reads.entrySet()) {
+                Ref<?> ref = read.getKey();
+                Transaction owner = ref.lock.get();
+                if ((owner != null && owner != this) || ref.box.version() != read.getValue()) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        @SuppressWarnings("unchecked")
+        private <A> void install(Ref<A> ref, long version) {
+            ref.box = new Box<>(version, (A) writes.get(ref));
+        }
+    }
+
+    private static final class ConflictException extends RuntimeException {
+
+        private static final long serialVersionUID = 1L;
+
+        static final ConflictException INSTANCE = new ConflictException();
+
+        private ConflictException() {
+            super(null, null, false, false);
+        }
+    }
+}
@@ -0,0 +1,140 @@
+package lib;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Change listeners registered on {@link LensPath}s of a record type.
+ *
+ * <p>Subscribed paths are kept in a trie whose nodes are path steps, so paths with a common
+ * prefix share their nodes. {@link #publish} walks the trie once with the old and the new
+ * value side by side and stops descending wherever the two are the same: records, lists and
+ * maps are compared by identity only, and leaf values such as strings and numbers by
+ * {@code equals}. An update through lenses rebuilds only the records on the updated path and
+ * keeps every other subtree by reference, so the walk visits the changed paths and their direct
+ * siblings only, however many listeners are registered elsewhere. A listener fires when the
+ * value at its path is a different record, list or map, or an unequal leaf, after the update;
+ * a leaf read again through a rebuilt record, such as a re-boxed {@code int}, does not fire it.
+ *
+ * <p>Subscribing and closing are serialized; closing the last subscription below a node
+ * removes the node, so per-key subscriptions leave no dead branches for {@link #publish} to walk.
+ *
+ * @param <A> the root record type
+ */
+public final class Subscriptions<A extends Record> {
+
+    private final Class<A> type;
+    private final Node root = new Node();
+
+    public Subscriptions(Class<A> type) {
+        this.type = type;
+    }
+
+    public <B> Subscription subscribe(String path, Listener<? super B> listener) {
+        return subscribe(LensPath.<A, B>parse(type, path), listener);
+    }
+
+    @SuppressWarnings("unchecked")
+    public <B> Subscription subscribe(LensPath<A, B> path, Listener<? super B> listener) {
+        LensPath.Step[] steps = path.steps();
+        Node[] nodes = new Node[steps.length + 1];
+        // A fresh entry per call, so subscribing the same listener twice yields two subscriptions
+        Listener<Object> entry = ((Listener<Object>) listener)::changed;
+        synchronized (root) {
+            nodes[0] = root;
+            for (int i = 0; i < steps.length; i++) {
+                nodes[i + 1] = nodes[i].children.computeIfAbsent(steps[i], s -> new Node());
+            }
+            nodes[steps.length].listeners.add(entry);
+        }
+        return () -> unsubscribe(steps, nodes, entry);
+    }
+
+    private void unsubscribe(LensPath.Step[] steps, Node[] nodes, Listener<Object> entry) {
+        synchronized (root) {
+            if (!nodes[steps.length].listeners.remove(entry)) {
+                return;
+            }
+            for (int i = steps.length; i > 0 && nodes[i].isEmpty(); i--) {
+                nodes[i - 1].children.remove(steps[i - 1], nodes[i]);
+            }
+        }
+    }
+
+    /**
+     * Notify the listeners of every subscribed path whose value differs between the two roots.
+     */
+    public void publish(A oldValue, A newValue) {
+        visit(root, oldValue, newValue);
+    }
+
+    /**
+     * Apply mutations and publish the resulting changes.
+     */
+    public A apply(A value, Mutations<A> mutations) {
+        A result = mutations.apply(value);
+        publish(value, result);
+        return result;
+    }
+
+    private static void visit(Node node, Object oldValue, Object newValue) {
+        if (same(oldValue, newValue)) {
+            return;
+        }
+        for (Listener<Object> listener : node.listeners) {
+            listener.changed(oldValue, newValue);
+        }
+        for (Map.Entry<LensPath.Step, Node> child : node.children.entrySet()) {
+            LensPath.Step step = child.getKey();
+            visit(child.getValue(), step.read(oldValue), step.read(newValue));
+        }
+    }
+
+    /**
+     * Whether a path holds the same value before and after an update: records, lists and maps
+     * (also inside optionals) by identity, leaves by {@code equals}.
+     */
+    static boolean same(Object oldValue, Object newValue) {
+        if (oldValue == newValue) {
+            return true;
+        }
+        if (isStructure(oldValue) || isStructure(newValue)) {
+            return false;
+        }
+        return Objects.equals(oldValue, newValue);
+    }
+
+    private static boolean isStructure(Object value) {
+        if (value instanceof Optional<?> optional) {
+            return optional.isPresent() && isStructure(optional.get());
+        }
+        return value instanceof Record || value instanceof List<?> || value instanceof Map<?, ?>;
+    }
+
+    @FunctionalInterface
+    public interface Listener<B> {
+        void changed(B oldValue, B newValue);
+    }
+
+    /**
+     * Handle to a registered listener; closing it unregisters the listener.
+     */
+    @FunctionalInterface
+    public interface Subscription extends AutoCloseable {
+        @Override
+        void close();
+    }
+
+    private static final class Node {
+        final Map<LensPath.Step, Node> children = new ConcurrentHashMap<>();
+        final CopyOnWriteArrayList<Listener<Object>> listeners = new CopyOnWriteArrayList<>();
+
+        boolean isEmpty() {
+            return listeners.isEmpty() && children.isEmpty();
+        }
+    }
+}
@@ -0,0 +1,221 @@
+package lib;
+
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Flow;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * A {@link Flow.Publisher} of the versions of one entity, with subscribers scoped to lens paths.
+ *
+ * <p>Each subscriber receives a {@link Change} whenever the value at its path is replaced,
+ * found through a {@link Subscriptions} trie so that unrelated updates cost nothing. A
+ * subscriber holds at most one pending change: when it falls behind, a newer change is merged
+ * into the pending one, keeping its old value and taking the newer new value, and a change
+ * that returns to the old value (the same record, list or map, or an equal leaf) is dropped
+ * altogether. Slow subscribers therefore see fewer,
+ * larger steps that always end at the latest value, and memory per subscriber stays constant
+ * however fast versions are submitted.
+ *
+ * <p>Signals to each subscriber are delivered in order on the given executor, one at a time,
+ * and only as far as the subscriber has requested. Versions are submitted one at a time.
+ *
+ * @param <A> the entity type
+ */
+public final class VersionPublisher<A extends Record> implements Flow.Publisher<VersionPublisher.Change<A>>, AutoCloseable {
+
+    private final Class<A> type;
+    private final Subscriptions<A> subscriptions;
+    private final Executor executor;
+    private final Set<PathSubscription<?>> active = ConcurrentHashMap.newKeySet();
+    private volatile boolean closed;
+    private A current;
+
+    public VersionPublisher(Class<A> type, A initial) {
+        this(type, initial, ForkJoinPool.commonPool());
+    }
+
+    public VersionPublisher(Class<A> type, A initial, Executor executor) {
+        this.type = type;
+        this.subscriptions = new Subscriptions<>(type);
+        this.executor = executor;
+        this.current = Objects.requireNonNull(initial, "initial");
+    }
+
+    public synchronized A current() {
+        return current;
+    }
+
+    /**
+     * Publish a new version to the subscribers of every path whose value it replaces.
+     */
+    public synchronized void submit(A newValue) {
+        Objects.requireNonNull(newValue, "newValue");
+        if (closed) {
+            throw new IllegalStateException("Publisher is closed");
+        }
+        A oldValue = current;
+        current = newValue;
+        subscriptions.publish(oldValue, newValue);
+    }
+
+    public synchronized A apply(Mutations<A> mutations) {
+        submit(mutations.apply(current));
+        return current;
+    }
+
+    /**
+     * Subscribe to every version of the whole entity.
+     */
+    @Override
+    public void subscribe(Flow.Subscriber<? super Change<A>> subscriber) {
+        subscribe(LensPath.root(type), subscriber);
+    }
+
+    public <B> void subscribe(String path, Flow.Subscriber<? super Change<B>> subscriber) {
+        subscribe(LensPath.<A, B>parse(type, path), subscriber);
+    }
+
+    public <B> void subscribe(LensPath<A, B> path, Flow.Subscriber<? super Change<B>> subscriber) {
+        Objects.requireNonNull(subscriber, "subscriber");
+        PathSubscription<B> subscription = new PathSubscription<>(subscriber);
+        subscriber.onSubscribe(subscription);
+        // Registered after onSubscribe so that no change can overtake it
+        subscription.registration = subscriptions.subscribe(path, subscription::offer);
+        active.add(subscription);
+        if (subscription.cancelled) {
+            subscription.cancel();
+        } else if (subscription.failure != null) {
+            subscription.unregister();
+        } else if (closed) {
+            subscription.signal();
+        }
+    }
+
+    /**
+     * Complete every subscriber once its pending change is delivered; later submissions fail.
+     */
+    @Override
+    public void close() {
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+        }
+        for (PathSubscription<?> subscription : active) {
+            subscription.signal();
+        }
+    }
+
+    /**
+     * One step of the value at a path: either a single version, or several coalesced ones.
+     */
+    public record Change<B>(B oldValue, B newValue) {}
+
+    private final class PathSubscription<B> implements Flow.Subscription {
+
+        private final Flow.Subscriber<? super Change<B>> subscriber;
+        private final AtomicReference<Change<B>> pending = new AtomicReference<>();
+        private final AtomicLong demand = new AtomicLong();
+        // Drain work counter: only the caller that moves it from zero runs the drain
+        private final AtomicInteger wip = new AtomicInteger();
+        private volatile boolean cancelled;
+        // Set by an invalid request and delivered by the drain, so onError stays serialized with onNext
+        private volatile Throwable failure;
+        private boolean done;
+        volatile Subscriptions.Subscription registration;
+
+        PathSubscription(Flow.Subscriber<? super Change<B>> subscriber) {
+            this.subscriber = subscriber;
+        }
+
+        void offer(B oldValue, B newValue) {
+            pending.accumulateAndGet(new Change<>(oldValue, newValue), PathSubscription::merge);
+            signal();
+        }
+
+        private static <B> Change<B> merge(Change<B> older, Change<B> newer) {
+            if (older == null) {
+                return newer;
+            }
+            return Subscriptions.same(older.oldValue(), newer.newValue()) ? null : new Change<>(older.oldValue(), newer.newValue());
+        }
+
+        @Override
+        public void request(long n) {
+            if (n <= 0) {
+                if (failure == null) {
+                    failure = new IllegalArgumentException("Non-positive request: " + n);
+                }
+                unregister();
+                pending.set(null);
+                signal();
+                return;
+            }
+            demand.accumulateAndGet(n, (current, added) -> current + added < 0 ? Long.MAX_VALUE : current + added);
+            signal();
+        }
+
+        @Override
+        public void cancel() {
+            cancelled = true;
+            unregister();
+            pending.set(null);
+        }
+
+        private void unregister() {
+            active.remove(this);
+            Subscriptions.Subscription r = registration;
+            if (r != null) {
+                r.close();
+            }
+        }
+
+        void signal() {
+            if (wip.getAndIncrement() == 0) {
+                executor.execute(this::drain);
+            }
+        }
+
+        private void drain() {
+            int missed = 1;
+            while (true) {
+                while (!cancelled && !done && failure == null && demand.get() > 0) {
+                    Change<B> change = pending.getAndSet(null);
+                    if (change == null) {
+                        break;
+                    }
+                    if (demand.get() != Long.MAX_VALUE) {
+                        demand.decrementAndGet();
+                    }
+                    try {
+                        subscriber.onNext(change);
+                    } catch (Throwable t) {
+                        cancel();
+                        subscriber.onError(t);
+                    }
+                }
+                Throwable error = failure;
+                if (!cancelled && !done && error != null) {
+                    done = true;
+                    subscriber.onError(error);
+                }
+                if (!cancelled && !done && closed && pending.get() == null) {
+                    done = true;
+                    unregister();
+                    subscriber.onComplete();
+                }
+                missed = wip.addAndGet(-missed);
+                if (missed == 0) {
+                    return;
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,12 @@
+package model;
+
+import java.util.NavigableMap;
+
+public record FeatureVector(
+    String id,
+    int[] counts,
+    long[] timestamps,
+    double[] weights,
+    NavigableMap<Long, Double> readings
+) {
+}
@@ -0,0 +1,91 @@
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.nio.ByteBuffer;
+import java.util.Map;
+import java.util.TreeMap;
+import lib.Codecs;
+import lib.Mutations;
+import model.FeatureVector;
+import model.FeatureVectorCodec;
+import model.FeatureVectorLens;
+
+public class ArrayLensTest {
+
+    private final FeatureVector vector = new FeatureVector(
+        "features",
+        new int[] {1, 2, 3, 4},
+        new long[] {100L, 200L},
+        new double[] {0.5, 1.5, 2.5},
+        new TreeMap<>(Map.of(1L, 0.1, 2L, 0.2))
+    );
+
+    // ELEMENT TESTS
+
+    @Test
+    void testSetElementCopiesArray() {
+        FeatureVector updated = FeatureVectorLens.counts().set(vector, 2, 30);
+
+        assertArrayEquals(new int[] {1, 2, 30, 4}, updated.counts());
+        assertArrayEquals(new int[] {1, 2, 3, 4}, vector.counts());
+        assertSame(vector.weights(), updated.weights());
+        assertEquals(30, FeatureVectorLens.counts().get(updated, 2));
+    }
+
+    @Test
+    void testSetSameElementIsNoOp() {
+        assertSame(vector, FeatureVectorLens.counts().set(vector, 0, 1));
+        assertSame(vector, FeatureVectorLens.weights().set(vector, 1, 1.5));
+    }
+
+    @Test
+    void testSetOutOfBoundsThrows() {
+        assertThrows(IndexOutOfBoundsException.class, () -> FeatureVectorLens.timestamps().set(vector, 2, 1L));
+    }
+
+    // BULK TESTS
+
+    @Test
+    void testModAll() {
+        FeatureVector updated = FeatureVectorLens.weights().modAll(vector, w -> w * 2);
+
+        assertArrayEquals(new double[] {1.0, 3.0, 5.0}, updated.weights());
+        assertArrayEquals(new double[] {0.5, 1.5, 2.5}, vector.weights());
+    }
+
+    @Test
+    void testRangeUpdates() {
+        FeatureVector ranged = FeatureVectorLens.counts().setRange(vector, 1, new int[] {20, 30});
+        assertArrayEquals(new int[] {1, 20, 30, 4}, ranged.counts());
+
+        FeatureVector modded = FeatureVectorLens.timestamps().modRange(vector, 1, 2, t -> t + 1);
+        assertArrayEquals(new long[] {100L, 201L}, modded.timestamps());
+
+        assertThrows(IndexOutOfBoundsException.class, () -> FeatureVectorLens.counts().setRange(vector, 3, new int[] {0, 0}));
+    }
+
+    @Test
+    void testWholeArrayThroughMutations() {
+        FeatureVector updated = Mutations.<FeatureVector>forType()
+            .set(FeatureVectorLens.id(), "renamed")
+            .set(FeatureVectorLens.timestamps(), new long[] {7L})
+            .apply(vector);
+
+        assertEquals("renamed", updated.id());
+        assertArrayEquals(new long[] {7L}, updated.timestamps());
+    }
+
+    // CODEC TESTS
+
+    @Test
+    void testCodecRoundTrip() {
+        ByteBuffer encoded = Codecs.encode(FeatureVectorCodec.INSTANCE, vector);
+        FeatureVector decoded = Codecs.decode(FeatureVectorCodec.INSTANCE, encoded);
+
+        assertEquals("features", decoded.id());
+        assertArrayEquals(vector.counts(), decoded.counts());
+        assertArrayEquals(vector.timestamps(), decoded.timestamps());
+        assertArrayEquals(vector.weights(), decoded.weights());
+        assertEquals(vector.readings(), decoded.readings());
+    }
+}
@@ -0,0 +1,50 @@
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import model.DomainEntity;
+import model.DomainEntityCodec;
+
+/**
+ * Throughput of the generated DomainEntityCodec. Run from the test classpath:
+ * {@code java -cp target/classes:target/test-classes CodecBenchmark [iterations]}
+ */
+public class CodecBenchmark {
+
+    public static void main(String[] args) {
+        int iterations = args.length > 0 ? Integer.parseInt(args[0]) : 2_000_000;
+        List<DomainEntity> entities = new ArrayList<>();
+        for (int i = 0; i < 1024; i++) {
+            entities.add(CodecTest.sampleEntity(i));
+        }
+        ByteBuffer buffer = ByteBuffer.allocateDirect(1 << 16);
+
+        for (int round = 0; round < 5; round++) {
+            long bytes = 0;
+            long start = System.nanoTime();
+            for (int i = 0; i < iterations; i++) {
+                buffer.clear();
+                DomainEntityCodec.INSTANCE.write(buffer, entities.get(i & 1023));
+                bytes += buffer.position();
+            }
+            long encodeNanos = System.nanoTime() - start;
+
+            long checksum = 0;
+            start = System.nanoTime();
+            for (int i = 0; i < iterations; i++) {
+                buffer.clear();
+                DomainEntityCodec.INSTANCE.write(buffer, entities.get(i & 1023));
+                buffer.flip();
+                checksum += DomainEntityCodec.INSTANCE.read(buffer).stringValue().length();
+            }
+            long roundTripNanos = System.nanoTime() - start;
+
+            System.out.printf("round %d: encode %.1f ns/op (%.0f MB/s), encode+decode %.1f ns/op, %d bytes/entity [%d]%n",
+                round,
+                (double) encodeNanos / iterations,
+                bytes * 1e3 / encodeNanos,
+                (double) roundTripNanos / iterations,
+                bytes / iterations,
+                checksum);
+        }
+    }
+}
@@ -0,0 +1,99 @@
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import model.DomainEntity;
+import model.DomainEntityCodec;
+import model.DomainEntityLens;
+import model.MoreNestedCodec;
+import model.NestedCodec;
+import model.MoreNested;
+import model.Nested;
+import model.RecursiveNested;
+import model.RecursiveNestedCodec;
+import lib.Codecs;
+import lib.EncodedLens;
+
+public class CodecTest {
+
+    static DomainEntity sampleEntity(int i) {
+        Nested nested = new Nested("nested" + i, new MoreNested("moreNested" + i));
+        return new DomainEntity(
+            "entity-" + i,
+            Optional.of("optional"),
+            List.of("a", "b", "c"),
+            Map.of("str1", "value1", "str2", "value2"),
+            nested,
+            Optional.of(new Nested("optionalNested", new MoreNested("optionalMoreNested"))),
+            List.of(nested, new Nested("listItem", new MoreNested("listMoreNested"))),
+            Map.of("key1", nested, "key2", new Nested("mapItem", new MoreNested("mapMoreNested"))),
+            new RecursiveNested("root", Optional.of(new RecursiveNested("child", Optional.empty())))
+        );
+    }
+
+    @Test
+    void testRoundTrip() {
+        DomainEntity entity = sampleEntity(1);
+        ByteBuffer encoded = Codecs.encode(DomainEntityCodec.INSTANCE, entity);
+
+        assertEquals(entity, Codecs.decode(DomainEntityCodec.INSTANCE, encoded));
+        assertFalse(encoded.hasRemaining());
+    }
+
+    @Test
+    void testRoundTripOfEmptyComponents() {
+        DomainEntity entity = new DomainEntity(
+            "", Optional.empty(), List.of(), Map.of(),
+            new Nested("", new MoreNested("")),
+            Optional.empty(), List.of(), Map.of(),
+            new RecursiveNested("", Optional.empty())
+        );
+
+        assertEquals(entity, Codecs.decode(DomainEntityCodec.INSTANCE, Codecs.encode(DomainEntityCodec.INSTANCE, entity)));
+    }
+
+    @Test
+    void testNestedRecordsAreSizePrefixed() {
+        RecursiveNested recursive = new RecursiveNested("root", Optional.of(new RecursiveNested("child", Optional.empty())));
+        ByteBuffer encoded = Codecs.encode(RecursiveNestedCodec.INSTANCE, recursive);
+
+        // "root" as a length byte and 4 bytes, the present flag, then the size of the child
+        assertEquals(1, encoded.get(5));
+        assertEquals(encoded.limit() - 10, encoded.getInt(6));
+    }
+
+    // ENCODED LENS TESTS
+
+    private static final EncodedLens<DomainEntity, String> MORE_NESTED_VALUE =
+        DomainEntityCodec.nested().andThen(NestedCodec.moreNested()).andThen(MoreNestedCodec.moreNestedValue());
+
+    @Test
+    void testEncodedLensReadsWithoutDecodingTheRecord() {
+        DomainEntity entity = sampleEntity(7);
+        ByteBuffer encoded = Codecs.encodeDirect(DomainEntityCodec.INSTANCE, entity);
+
+        assertEquals("moreNested7", MORE_NESTED_VALUE.get(encoded));
+        assertEquals(entity.nestedMap(), DomainEntityCodec.nestedMap().get(encoded));
+        assertEquals(entity.recursiveNested(), DomainEntityCodec.recursiveNested().get(encoded));
+    }
+
+    @Test
+    void testEncodedLensSetSplicesTheChangedBytes() {
+        DomainEntity entity = sampleEntity(7);
+        ByteBuffer encoded = Codecs.encodeDirect(DomainEntityCodec.INSTANCE, entity);
+
+        ByteBuffer updated = MORE_NESTED_VALUE.set(encoded, "a much longer replacement value");
+        DomainEntity expected = DomainEntityLens.set(entity, DomainEntityLens.nested().moreNested().moreNestedValue(), "a much longer replacement value");
+        assertEquals(expected, Codecs.decode(DomainEntityCodec.INSTANCE, updated.duplicate()));
+        assertEquals(entity, Codecs.decode(DomainEntityCodec.INSTANCE, encoded.duplicate())); // Original unchanged
+
+        ByteBuffer shrunk = DomainEntityCodec.stringList().set(updated, List.of());
+        assertEquals(List.of(), Codecs.decode(DomainEntityCodec.INSTANCE, shrunk.duplicate()).stringList());
+        assertEquals("a much longer replacement value", MORE_NESTED_VALUE.get(shrunk));
+
+        assertSame(encoded, MORE_NESTED_VALUE.set(encoded, "moreNested7"));
+    }
+}
@@ -0,0 +1,87 @@
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.stream.IntStream;
+import model.DomainEntity;
+import model.DomainEntityLens;
+import model.MoreNested;
+import model.Nested;
+import model.RecursiveNested;
+import lib.ColumnarList;
+
+public class ColumnarListTest {
+
+    private static List<Nested> nestedList(int size) {
+        return IntStream.range(0, size)
+            .mapToObj(i -> new Nested("item" + i, new MoreNested(i % 2 == 0 ? "even" : "odd")))
+            .toList();
+    }
+
+    private static DomainEntity entity(List<Nested> nestedList) {
+        return new DomainEntity(
+            "hello", Optional.empty(), List.of(), Map.of(),
+            new Nested("nestedValue", new MoreNested("moreNestedValue")),
+            Optional.empty(), nestedList, Map.of(),
+            new RecursiveNested("root", Optional.empty())
+        );
+    }
+
+    @Test
+    void testBehavesLikeTheListItWasBuiltFrom() {
+        List<Nested> plain = nestedList(100);
+        ColumnarList<Nested> columnar = ColumnarList.of(Nested.class, plain);
+
+        assertEquals(plain, columnar);
+        assertEquals(plain.hashCode(), columnar.hashCode());
+        assertEquals(new Nested("item3", new MoreNested("odd")), columnar.get(3));
+        assertEquals(List.of("even", "odd", "even"), columnar.<String>column("moreNested.moreNestedValue").subList(0, 3));
+        assertThrows(IllegalArgumentException.class, () -> columnar.column("moreNested"));
+    }
+
+    @Test
+    void testLensSetKeepsTheListColumnar() {
+        ColumnarList<Nested> columnar = ColumnarList.of(Nested.class, nestedList(10));
+        DomainEntity entity = entity(columnar);
+
+        DomainEntity updated = DomainEntityLens.set(entity, DomainEntityLens.nestedList().get(4).moreNested().moreNestedValue(), "changed");
+
+        assertInstanceOf(ColumnarList.class, updated.nestedList());
+        assertEquals("changed", updated.nestedList().get(4).moreNested().moreNestedValue());
+        assertEquals("item4", updated.nestedList().get(4).nestedValue());
+        assertEquals("even", entity.nestedList().get(4).moreNested().moreNestedValue()); // Original unchanged
+        assertSame(columnar, columnar.with(4, columnar.get(4)));
+    }
+
+    @Test
+    void testLongUpdateChainsStayReadable() {
+        ColumnarList<Nested> first = ColumnarList.of(Nested.class, nestedList(4));
+        ColumnarList<Nested> current = first;
+        for (int i = 0; i < 1000; i++) {
+            current = current.with(i % 4, new Nested("update" + i, new MoreNested("more" + i)));
+        }
+
+        assertEquals(new Nested("update999", new MoreNested("more999")), current.get(3));
+        assertEquals(new Nested("update996", new MoreNested("more996")), current.get(0));
+        assertEquals(nestedList(4), first);
+        assertEquals(List.of("UPDATE996", "UPDATE997"), current.mapColumn("nestedValue", (String s) -> s.toUpperCase()).<String>column("nestedValue").subList(0, 2));
+    }
+
+    @Test
+    void testMapColumnMatchesThePlainListFallback() {
+        List<Nested> plain = nestedList(50);
+        DomainEntity columnarEntity = entity(ColumnarList.of(Nested.class, plain));
+        DomainEntity plainEntity = entity(plain);
+
+        DomainEntity columnarUpdated = DomainEntityLens.nestedList().mapColumn(columnarEntity, "moreNested.moreNestedValue", (String s) -> s.toUpperCase());
+        DomainEntity plainUpdated = DomainEntityLens.nestedList().mapColumn(plainEntity, "moreNested.moreNestedValue", (String s) -> s.toUpperCase());
+
+        assertInstanceOf(ColumnarList.class, columnarUpdated.nestedList());
+        assertEquals(plainUpdated.nestedList(), columnarUpdated.nestedList());
+        assertEquals(new ArrayList<>(List.of("EVEN", "ODD")), DomainEntityLens.nestedList().column(plainUpdated, "moreNested.moreNestedValue").subList(0, 2));
+        assertSame(plainEntity, DomainEntityLens.nestedList().mapColumn(plainEntity, "nestedValue", (String s) -> s));
+    }
+}
@@ -0,0 +1,112 @@
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.BeforeEach;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import lib.ColumnarList;
+import model.DomainEntity;
+import model.DomainEntityLens;
+import model.MoreNested;
+import model.Nested;
+import model.RecursiveNested;
+import lib.Cursor;
+import lib.Lens;
+
+public class CursorTest {
+
+    private DomainEntity testEntity;
+
+    @BeforeEach
+    void setUp() {
+        testEntity = new DomainEntity(
+            "hello",
+            Optional.empty(),
+            List.of("a", "b"),
+            Map.of("str1", "value1"),
+            new Nested("nestedValue", new MoreNested("moreNestedValue")),
+            Optional.empty(),
+            List.of(
+                new Nested("listItem1", new MoreNested("listMoreNested1")),
+                new Nested("listItem2", new MoreNested("listMoreNested2")),
+                new Nested("listItem3", new MoreNested("listMoreNested3"))
+            ),
+            Map.of(
+                "key1", new Nested("mapItem1", new MoreNested("mapMoreNested1")),
+                "key2", new Nested("mapItem2", new MoreNested("mapMoreNested2"))
+            ),
+            new RecursiveNested("root", Optional.empty())
+        );
+    }
+
+    @Test
+    void testManyEditsOnListElementsRebuildOnce() {
+        Lens<Nested, String> nestedValue = Lens.of(Nested::nestedValue, (n, v) -> new Nested(v, n.moreNested()));
+        Lens<MoreNested, String> moreNestedValue = Lens.of(MoreNested::moreNestedValue, (m, v) -> new MoreNested(v));
+
+        Cursor<DomainEntity, Nested> cursor = Cursor.of(testEntity).downIndex(DomainEntityLens.nestedList(), 0);
+        for (int i = 0; i < cursor.siblingCount(); i++) {
+            cursor.sibling(i)
+                .mod(nestedValue, String::toUpperCase)
+                .mod(nestedValue, s -> s + "!");
+            Cursor<DomainEntity, MoreNested> moreNested = cursor.down(Lens.of(Nested::moreNested, (n, m) -> new Nested(n.nestedValue(), m)));
+            moreNested.set(moreNestedValue, "edited" + i);
+            moreNested.up();
+        }
+        DomainEntity updated = cursor.close();
+
+        assertEquals(List.of("LISTITEM1!", "LISTITEM2!", "LISTITEM3!"),
+            updated.nestedList().stream().map(Nested::nestedValue).toList());
+        assertEquals("edited2", updated.nestedList().get(2).moreNested().moreNestedValue());
+        assertSame(testEntity.nestedMap(), updated.nestedMap()); // Untouched components are shared
+        assertEquals("listItem1", testEntity.nestedList().get(0).nestedValue()); // Original unchanged
+    }
+
+    @Test
+    void testListSiblingsStayColumnar() {
+        DomainEntity columnarEntity = DomainEntityLens.nestedList().set(testEntity, ColumnarList.of(Nested.class, testEntity.nestedList()));
+
+        Cursor<DomainEntity, Nested> cursor = Cursor.of(columnarEntity).downIndex(DomainEntityLens.nestedList(), 0);
+        cursor.sibling(1).mod(n -> new Nested(n.nestedValue() + "!", n.moreNested()));
+        cursor.sibling(2).mod(n -> new Nested(n.nestedValue() + "!", n.moreNested()));
+        List<Nested> updated = cursor.close().nestedList();
+
+        assertInstanceOf(ColumnarList.class, updated);
+        assertEquals(List.of("listItem1", "listItem2!", "listItem3!"), updated.stream().map(Nested::nestedValue).toList());
+        assertEquals(testEntity.nestedList().get(2).moreNested(), updated.get(2).moreNested());
+    }
+
+    @Test
+    void testMapSiblings() {
+        Cursor<DomainEntity, Nested> cursor = Cursor.of(testEntity).downKey(DomainEntityLens.nestedMap(), "key1");
+        cursor.replace(new Nested("replaced1", cursor.get().moreNested()));
+        cursor.siblingKey("key2").mod(n -> new Nested(n.nestedValue() + "-2", n.moreNested()));
+
+        DomainEntity updated = cursor.close();
+
+        assertEquals("replaced1", updated.nestedMap().get("key1").nestedValue());
+        assertEquals("mapItem2-2", updated.nestedMap().get("key2").nestedValue());
+        assertEquals("mapItem1", testEntity.nestedMap().get("key1").nestedValue()); // Original unchanged
+    }
+
+    @Test
+    void testUntouchedCursorReturnsSameRoot() {
+        Cursor<DomainEntity, Nested> cursor = Cursor.of(testEntity).downIndex(DomainEntityLens.nestedList(), 1);
+        assertEquals("listItem2", cursor.get().nestedValue());
+        assertSame(testEntity, cursor.close());
+    }
+
+    @Test
+    void testParentIsLockedWhileChildIsOpen() {
+        Cursor<DomainEntity, DomainEntity> root = Cursor.of(testEntity);
+        Cursor<DomainEntity, Nested> child = root.down(DomainEntityLens.nested());
+
+        assertThrows(IllegalStateException.class, () -> root.set(DomainEntityLens.stringValue(), "x"));
+        assertThrows(IllegalStateException.class, () -> child.sibling(1));
+
+        child.up();
+        assertThrows(IllegalStateException.class, child::get);
+        assertEquals("x", root.set(DomainEntityLens.stringValue(), "x").close().stringValue());
+    }
+}
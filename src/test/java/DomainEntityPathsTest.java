@@ -0,0 +1,43 @@
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.Optional;
+import model.DomainEntity;
+import model.DomainEntityLens;
+import model.DomainEntityPaths;
+import model.RecursiveNested;
+
+public class DomainEntityPathsTest {
+
+    private final DomainEntity entity = CodecTest.sampleEntity(1);
+
+    // FLATTENED WITHER TESTS
+
+    @Test
+    void testDeepWitherMatchesLens() {
+        DomainEntity viaPath = DomainEntityPaths.withNestedMoreNestedMoreNestedValue(entity, "deep");
+        DomainEntity viaLens = DomainEntityLens.nested().moreNested().moreNestedValue().set(entity, "deep");
+
+        assertEquals(viaLens, viaPath);
+        assertEquals("deep", viaPath.nested().moreNested().moreNestedValue());
+        assertEquals(entity.nested().nestedValue(), viaPath.nested().nestedValue());
+    }
+
+    @Test
+    void testUntouchedComponentsAreShared() {
+        DomainEntity updated = DomainEntityPaths.withNestedNestedValue(entity, "changed");
+
+        assertSame(entity.nested().moreNested(), updated.nested().moreNested());
+        assertSame(entity.nestedList(), updated.nestedList());
+        assertSame(entity.recursiveNested(), updated.recursiveNested());
+    }
+
+    @Test
+    void testPathEndsAtNonRecordComponent() {
+        Optional<RecursiveNested> child = Optional.of(new RecursiveNested("replaced", Optional.empty()));
+        DomainEntity updated = DomainEntityPaths.withRecursiveNestedChild(entity, child);
+
+        assertEquals(child, updated.recursiveNested().child());
+        assertEquals(entity.recursiveNested().value(), updated.recursiveNested().value());
+    }
+}
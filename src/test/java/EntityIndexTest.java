@@ -0,0 +1,96 @@
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import model.DomainEntity;
+import model.DomainEntityLens;
+import model.MoreNested;
+import model.Nested;
+import model.RecursiveNested;
+import lib.EntityIndex;
+import lib.EntityStore;
+import lib.Fold;
+import lib.LensPath;
+import lib.Mutations;
+
+public class EntityIndexTest {
+
+    private static DomainEntity entity(String value, String moreNestedValue, Map<String, String> stringMap) {
+        return new DomainEntity(
+            value, Optional.empty(), List.of(), stringMap,
+            new Nested("nestedValue", new MoreNested(moreNestedValue)),
+            Optional.empty(), List.of(), Map.of(),
+            new RecursiveNested("root", Optional.empty())
+        );
+    }
+
+    @Test
+    void testHashIndexFollowsUpdates() {
+        EntityStore<String, DomainEntity> store = new EntityStore<>();
+        store.put("a", entity("a", "x", Map.of()));
+        EntityIndex<String, DomainEntity, String> index =
+            store.addIndex(EntityIndex.hash(DomainEntity.class, "nested.moreNested.moreNestedValue"));
+        store.put("b", entity("b", "x", Map.of()));
+        store.put("c", entity("c", "y", Map.of()));
+
+        assertEquals(Set.of("a", "b"), index.get("x"));
+        assertEquals(Set.of("c"), index.get("y"));
+
+        store.set("a", DomainEntityLens.nested().moreNested().moreNestedValue(), "y");
+        store.remove("b");
+
+        assertEquals(Set.of(), index.get("x"));
+        assertEquals(Set.of("a", "c"), index.get("y"));
+        assertEquals(1, index.size());
+    }
+
+    @Test
+    void testUnrelatedUpdatesAreNotExtracted() {
+        int[] extracted = {0};
+        EntityIndex<String, DomainEntity, String> index = EntityIndex.hash(
+            LensPath.parse(DomainEntity.class, "nested.moreNested"),
+            Fold.of((MoreNested moreNested) -> {
+                extracted[0]++;
+                return moreNested.moreNestedValue();
+            }));
+        DomainEntity original = entity("a", "x", Map.of());
+        index.changed("a", null, original);
+        assertEquals(1, extracted[0]);
+
+        DomainEntity updated = Mutations.<DomainEntity>forType()
+            .set(DomainEntityLens.stringValue(), "changed")
+            .set(DomainEntityLens.nested().nestedValue(), "changed")
+            .apply(original);
+        index.changed("a", original, updated);
+
+        // nested was rebuilt, but nested.moreNested kept its instance
+        assertEquals(1, extracted[0]);
+        assertEquals(Set.of("a"), index.get("x"));
+    }
+
+    @Test
+    void testSortedIndexOnMapKeys() {
+        EntityStore<String, DomainEntity> store = new EntityStore<>();
+        EntityIndex<String, DomainEntity, String> index = store.addIndex(EntityIndex.sorted(
+            LensPath.<DomainEntity, Map<String, String>>parse(DomainEntity.class, "stringMap"),
+            Fold.<Map<String, String>, String>each(Map::keySet)));
+        store.put("a", entity("a", "x", Map.of("apple", "1", "banana", "2")));
+        store.put("b", entity("b", "x", Map.of("banana", "3", "cherry", "4")));
+
+        assertEquals(Set.of("a", "b"), index.get("banana"));
+        assertEquals(Set.of("a", "b"), index.range("apple", "cherry"));
+        assertEquals(Set.of("b"), index.atLeast("c"));
+        assertEquals(Set.of("a"), index.below("b"));
+
+        store.mod("a", DomainEntityLens.stringMap(), map -> Map.of("cherry", "5"));
+
+        assertEquals(Set.of(), index.get("apple"));
+        assertEquals(Set.of("b"), index.get("banana"));
+        assertEquals(Set.of("a", "b"), index.get("cherry"));
+        assertThrows(UnsupportedOperationException.class,
+            () -> EntityIndex.hash(DomainEntity.class, "stringValue").range("a", "b"));
+    }
+}
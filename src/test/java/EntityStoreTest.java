@@ -0,0 +1,145 @@
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+import model.DomainEntity;
+import model.DomainEntityLens;
+import model.MoreNested;
+import model.Nested;
+import model.RecursiveNested;
+import lib.EntityStore;
+import lib.MutationExecutor;
+import lib.Mutations;
+
+public class EntityStoreTest {
+
+    private static DomainEntity entity(String value) {
+        return new DomainEntity(
+            value, Optional.empty(), List.of(), Map.of(),
+            new Nested("nestedValue", new MoreNested("moreNestedValue")),
+            Optional.empty(), List.of(), Map.of(),
+            new RecursiveNested("root", Optional.empty())
+        );
+    }
+
+    @Test
+    void testSnapshotIsIsolatedFromLaterWrites() {
+        EntityStore<String, DomainEntity> store = new EntityStore<>();
+        store.put("a", entity("a1"));
+        store.put("b", entity("b1"));
+
+        EntityStore.Snapshot<String, DomainEntity> snapshot = store.snapshot();
+        store.set("a", DomainEntityLens.stringValue(), "a2");
+        store.remove("b");
+        store.put("c", entity("c1"));
+
+        assertEquals("a1", snapshot.get("a", DomainEntityLens.stringValue()));
+        assertEquals("b1", snapshot.get("b").stringValue());
+        assertNull(snapshot.get("c"));
+
+        Map<String, String> seen = new HashMap<>();
+        snapshot.forEach((key, value) -> seen.put(key, value.stringValue()));
+        assertEquals(Map.of("a", "a1", "b", "b1"), seen);
+
+        assertEquals("a2", store.get("a").stringValue());
+        assertNull(store.get("b"));
+    }
+
+    @Test
+    void testRemovedKeyStaysVisibleToOlderSnapshots() {
+        EntityStore<String, DomainEntity> store = new EntityStore<>();
+        store.put("a", entity("a1"));
+        EntityStore.Snapshot<String, DomainEntity> before = store.snapshot();
+
+        store.remove("a");
+        store.put("b", entity("b1"));
+        EntityStore.Snapshot<String, DomainEntity> after = store.snapshot();
+        store.put("c", entity("c1"));
+
+        assertEquals("a1", before.get("a").stringValue());
+        assertNull(after.get("a"));
+        assertNull(store.get("a"));
+        store.put("a", entity("a2"));
+        assertNull(after.get("a"));
+        assertEquals("a2", store.get("a").stringValue());
+    }
+
+    @Test
+    void testRetentionIsBounded() {
+        EntityStore<String, DomainEntity> store = new EntityStore<>(2);
+        store.put("a", entity("v0"));
+        EntityStore.Snapshot<String, DomainEntity> old = store.snapshot();
+
+        store.set("a", DomainEntityLens.stringValue(), "v1");
+        assertEquals("v0", old.get("a").stringValue());
+
+        store.set("a", DomainEntityLens.stringValue(), "v2");
+        assertThrows(IllegalStateException.class, () -> old.get("a"));
+    }
+
+    @Test
+    void testNoOpWritesDoNotCreateVersions() {
+        EntityStore<String, DomainEntity> store = new EntityStore<>();
+        store.put("a", entity("a"));
+        long version = store.version();
+
+        store.set("a", DomainEntityLens.stringValue(), "a");
+
+        assertEquals(version, store.version());
+        assertThrows(NoSuchElementException.class, () -> store.set("missing", DomainEntityLens.stringValue(), "x"));
+    }
+
+    @Test
+    void testConcurrentWritersOnManyKeys() throws InterruptedException {
+        EntityStore<Integer, DomainEntity> store = new EntityStore<>();
+        for (int key = 0; key < 8; key++) {
+            store.put(key, entity("0"));
+        }
+        ExecutorService pool = Executors.newFixedThreadPool(4);
+        for (int i = 0; i < 800; i++) {
+            int key = i % 8;
+            pool.execute(() -> store.mod(key, DomainEntityLens.stringValue(), s -> Integer.toString(Integer.parseInt(s) + 1)));
+        }
+        pool.shutdown();
+        assertTrue(pool.awaitTermination(10, TimeUnit.SECONDS));
+
+        for (int key = 0; key < 8; key++) {
+            assertEquals("100", store.get(key).stringValue());
+        }
+        assertEquals(808, store.version());
+    }
+
+    @Test
+    void testMutationExecutorFusesUpdatesPerEntity() {
+        EntityStore<Integer, DomainEntity> store = new EntityStore<>();
+        for (int key = 0; key < 10; key++) {
+            store.put(key, entity(""));
+        }
+        long before = store.version();
+        List<MutationExecutor.BatchReport<Integer>> reports = new ArrayList<>();
+
+        try (MutationExecutor<Integer, DomainEntity> executor = new MutationExecutor<>(store, 100, 4, reports::add)) {
+            long applied = executor.execute(IntStream.range(0, 1000).mapToObj(i -> new MutationExecutor.Request<>(
+                i % 10,
+                Mutations.<DomainEntity>forType().mod(DomainEntityLens.stringValue(), s -> s + "x"))));
+            assertEquals(1000, applied);
+        }
+
+        assertEquals(10, reports.size());
+        assertEquals(10, reports.get(0).entities());
+        assertTrue(reports.stream().allMatch(report -> report.failures().isEmpty()));
+        for (int key = 0; key < 10; key++) {
+            assertEquals("x".repeat(100), store.get(key).stringValue());
+        }
+        assertEquals(before + 100, store.version()); // One version per entity per batch
+    }
+}
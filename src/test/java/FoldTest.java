@@ -0,0 +1,75 @@
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import model.DomainEntity;
+import model.DomainEntityLens;
+import model.MoreNested;
+import model.Nested;
+import model.RecursiveNested;
+import lib.Fold;
+
+public class FoldTest {
+
+    private static final Fold<DomainEntity, String> ALL_MORE_NESTED_VALUES =
+        Fold.<DomainEntity, Nested>concat(DomainEntityLens.nestedList().each(), DomainEntityLens.nestedMap().values())
+            .andThen(Nested::moreNested)
+            .andThen(MoreNested::moreNestedValue);
+
+    private static DomainEntity entity(int listSize) {
+        List<Nested> list = IntStream.range(0, listSize)
+            .mapToObj(i -> new Nested("item" + i, new MoreNested("list" + i)))
+            .toList();
+        Map<String, Nested> map = new TreeMap<>(Map.of(
+            "key1", new Nested("mapItem1", new MoreNested("map1")),
+            "key2", new Nested("mapItem2", new MoreNested("map2"))));
+        return new DomainEntity(
+            "hello", Optional.empty(), List.of(), Map.of(),
+            new Nested("nestedValue", new MoreNested("moreNestedValue")),
+            Optional.empty(), list, map,
+            new RecursiveNested("root", Optional.of(new RecursiveNested("child", Optional.empty())))
+        );
+    }
+
+    @Test
+    void testVisitsNestedListAndMapElementsInOrder() {
+        DomainEntity entity = entity(3);
+
+        List<String> visited = new ArrayList<>();
+        ALL_MORE_NESTED_VALUES.forEach(entity, visited::add);
+
+        assertEquals(List.of("list0", "list1", "list2", "map1", "map2"), visited);
+        assertEquals(visited, ALL_MORE_NESTED_VALUES.stream(entity).toList());
+        assertEquals(5, ALL_MORE_NESTED_VALUES.count(entity));
+        assertEquals(23, ALL_MORE_NESTED_VALUES.reduce(entity, 0, (sum, value) -> sum + value.length()));
+    }
+
+    @Test
+    void testOptionalFold() {
+        Fold<DomainEntity, String> childValue = Fold.of(DomainEntity::recursiveNested)
+            .andThen(Fold.optional(RecursiveNested::child))
+            .andThen(RecursiveNested::value);
+
+        assertEquals(List.of("child"), childValue.stream(entity(0)).toList());
+        assertEquals(0, Fold.of(DomainEntity::recursiveNested).andThen(Fold.optional(RecursiveNested::child))
+            .andThen(Fold.optional(RecursiveNested::child)).count(entity(0)));
+    }
+
+    @Test
+    void testParallelStreamMatchesSequential() {
+        DomainEntity entity = entity(10_000);
+
+        String sequential = ALL_MORE_NESTED_VALUES.stream(entity).collect(Collectors.joining(","));
+        String parallel = ALL_MORE_NESTED_VALUES.stream(entity, true).collect(Collectors.joining(","));
+
+        assertEquals(sequential, parallel);
+        assertEquals(10_002, ALL_MORE_NESTED_VALUES.stream(entity, true).count());
+        assertNotNull(ALL_MORE_NESTED_VALUES.spliterator(entity).trySplit());
+    }
+}
@@ -0,0 +1,129 @@
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.junit.jupiter.api.io.TempDir;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+import javax.tools.JavaCompiler;
+import javax.tools.ToolProvider;
+import generator.RecordCodeGenerator;
+import lib.Lens;
+import model.DomainEntity;
+import model.DomainEntityLens;
+import model.FeatureVector;
+
+public class GeneratorTest {
+
+    // LAMBDA-FREE TESTS
+
+    @Test
+    void testLambdaFreeOutputCompilesAndWorks(@TempDir Path dir) throws Exception {
+        Path sources = dir.resolve("sources");
+        Path classes = dir.resolve("classes");
+        RecordCodeGenerator generator = new RecordCodeGenerator("model", sources, true);
+        generator.generateForMainRecord(DomainEntity.class);
+        generator.generateForMainRecord(FeatureVector.class);
+
+        List<String> arguments = new ArrayList<>(List.of("-d", classes.toString(), "-cp", System.getProperty("java.class.path")));
+        try (Stream<Path> files = Files.list(sources)) {
+            files.map(Path::toString).forEach(arguments::add);
+        }
+        String lens = Files.readString(sources.resolve("DomainEntityLens.java"));
+        assertFalse(lens.contains("->"));
+        assertFalse(lens.contains("::"));
+
+        JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+        assertEquals(0, compiler.run(null, null, null, arguments.toArray(String[]::new)));
+        assertEquals(List.of(), lensClassesWithInvokeDynamic(classes.resolve("model")));
+
+        try (URLClassLoader loader = new GeneratedFirstLoader(classes)) {
+            Class<?> lensClass = loader.loadClass("model.DomainEntityLens");
+            assertSame(loader, lensClass.getClassLoader());
+            @SuppressWarnings("unchecked")
+            Lens<DomainEntity, String> stringValue = (Lens<DomainEntity, String>) lensClass.getMethod("stringValue").invoke(null);
+
+            DomainEntity entity = CodecTest.sampleEntity(1);
+            assertEquals("changed", stringValue.set(entity, "changed").stringValue());
+            assertEquals(entity.stringValue(), stringValue.get(entity));
+        }
+    }
+
+    // Only the startup profile compiles the lambda-free lenses into the build itself
+    @Test
+    @EnabledIfSystemProperty(named = "javalens.lambdaFree", matches = "true")
+    void testStartupBuildCompiledLambdaFreeLenses() throws Exception {
+        Path classes = Path.of(DomainEntityLens.class.getProtectionDomain().getCodeSource().getLocation().toURI());
+
+        assertEquals(List.of(), lensClassesWithInvokeDynamic(classes.resolve("model")));
+    }
+
+    private static List<String> lensClassesWithInvokeDynamic(Path packageDir) throws IOException {
+        List<String> offending = new ArrayList<>();
+        try (Stream<Path> files = Files.list(packageDir)) {
+            for (Path file : files.filter(f -> f.getFileName().toString().matches("\\w+Lens(\\$.*)?\\.class")).toList()) {
+                if (invokeDynamicEntries(Files.readAllBytes(file)) > 0) {
+                    offending.add(file.getFileName().toString());
+                }
+            }
+        }
+        return offending;
+    }
+
+    // Number of CONSTANT_InvokeDynamic entries in the constant pool of a class file
+    private static int invokeDynamicEntries(byte[] classFile) throws IOException {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(classFile));
+        in.skipBytes(8); // magic and version
+        int count = in.readUnsignedShort();
+        int entries = 0;
+        for (int i = 1; i < count; i++) {
+            int tag = in.readUnsignedByte();
+            switch (tag) {
+                case 1 -> in.skipBytes(in.readUnsignedShort());
+                case 7, 8, 16, 19, 20 -> in.skipBytes(2);
+                case 15 -> in.skipBytes(3);
+                case 3, 4, 9, 10, 11, 12, 17 -> in.skipBytes(4);
+                case 5, 6 -> {
+                    in.skipBytes(8);
+                    i++; // Longs and doubles take two entries
+                }
+                case 18 -> {
+                    in.skipBytes(4);
+                    entries++;
+                }
+                default -> throw new IOException("Unknown constant pool tag " + tag);
+            }
+        }
+        return entries;
+    }
+
+    // Loads the freshly compiled classes ahead of the ones the default build generated
+    private static final class GeneratedFirstLoader extends URLClassLoader {
+
+        private final Path classes;
+
+        GeneratedFirstLoader(Path classes) throws IOException {
+            super(new URL[] { classes.toUri().toURL() }, GeneratorTest.class.getClassLoader());
+            this.classes = classes;
+        }
+
+        @Override
+        protected Class<?> loadClass(String name, boolean resolve) throws ClassNotFoundException {
+            synchronized (getClassLoadingLock(name)) {
+                Class<?> loaded = findLoadedClass(name);
+                if (loaded == null && Files.exists(classes.resolve(name.replace('.', '/') + ".class"))) {
+                    loaded = findClass(name);
+                }
+                return loaded != null ? loaded : super.loadClass(name, resolve);
+            }
+        }
+    }
+}
@@ -0,0 +1,113 @@
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import model.DomainEntity;
+import model.DomainEntityCodec;
+import model.DomainEntityLens;
+import model.MoreNested;
+import model.Nested;
+import model.RecursiveNested;
+import lib.Codecs;
+import lib.Diff;
+import lib.History;
+import lib.LensPath;
+import lib.Mutations;
+
+public class HistoryTest {
+
+    private static DomainEntity entity() {
+        return new DomainEntity(
+            "v0", Optional.empty(), List.of("a"), Map.of("k", "v"),
+            new Nested("nestedValue", new MoreNested("moreNestedValue")),
+            Optional.of(new Nested("optionalValue", new MoreNested("optionalMore"))),
+            List.of(new Nested("item0", new MoreNested("more0"))),
+            Map.of("key1", new Nested("mapItem1", new MoreNested("mapMore1"))),
+            new RecursiveNested("root", Optional.empty())
+        );
+    }
+
+    private static Mutations<DomainEntity> value(String value) {
+        return Mutations.<DomainEntity>forType().set(DomainEntityLens.stringValue(), value);
+    }
+
+    // DIFF TESTS
+
+    @Test
+    void testDiffReportsDeepestChangedPaths() {
+        DomainEntity before = entity();
+        DomainEntity after = Mutations.<DomainEntity>forType()
+            .set(DomainEntityLens.nestedMap().get("key1").moreNested().moreNestedValue(), "changed")
+            .set(DomainEntityLens.optionalNested().nestedValue(), "changed")
+            .mod(DomainEntityLens.stringList(), list -> List.of("a", "b"))
+            .apply(before);
+
+        List<Diff.Change<DomainEntity>> changes = Diff.between(before, after);
+
+        assertEquals(List.of("stringList", "optionalNested.nestedValue", "nestedMap['key1'].moreNested.moreNestedValue"),
+            changes.stream().map(change -> change.path().toString()).toList());
+        assertEquals(new Diff.Change<>(LensPath.parse(DomainEntity.class, "stringList"), List.of("a"), List.of("a", "b")), changes.get(0));
+        assertEquals(after, Diff.apply(before, changes));
+        assertEquals(before, Diff.revert(after, changes));
+        assertTrue(Diff.between(before, before).isEmpty());
+    }
+
+    @Test
+    void testDiffIgnoresEqualLeavesOfDecodedCopy() {
+        DomainEntity before = entity();
+        DomainEntity decoded = Codecs.decode(DomainEntityCodec.INSTANCE, Codecs.encode(DomainEntityCodec.INSTANCE, before));
+        DomainEntity after = Mutations.<DomainEntity>forType()
+            .set(DomainEntityLens.nested().nestedValue(), "changed")
+            .apply(decoded);
+
+        List<Diff.Change<DomainEntity>> changes = Diff.between(before, after);
+
+        assertEquals(List.of("nested.nestedValue"), changes.stream().map(change -> change.path().toString()).toList());
+    }
+
+    // HISTORY TESTS
+
+    @Test
+    void testUndoRedoAndJump() {
+        History<DomainEntity> history = new History<>(entity());
+        history.apply(value("v1"));
+        history.apply(value("v2"));
+
+        assertEquals("v1", history.undo().stringValue());
+        assertEquals("v0", history.undo().stringValue());
+        assertFalse(history.canUndo());
+        assertThrows(IllegalStateException.class, history::undo);
+        assertEquals("v1", history.redo().stringValue());
+        assertEquals("v2", history.jump(2).stringValue());
+
+        // Committing after an undo drops the redo branch
+        history.undo();
+        history.apply(value("other"));
+        assertEquals(2, history.newestVersion());
+        assertFalse(history.canRedo());
+        assertEquals("v1", history.get(1).stringValue());
+    }
+
+    @Test
+    void testOldVersionsAreCompactedAndBounded() {
+        History<DomainEntity> history = new History<>(entity(), 2, 5);
+        for (int i = 1; i <= 7; i++) {
+            history.apply(value("v" + i).set(DomainEntityLens.nestedList().get(0).nestedValue(), "item" + i));
+        }
+
+        assertEquals(3, history.oldestVersion());
+        assertEquals(7, history.newestVersion());
+        for (long v = 3; v <= 7; v++) {
+            DomainEntity version = history.get(v);
+            assertEquals("v" + v, version.stringValue());
+            assertEquals("item" + v, version.nestedList().get(0).nestedValue());
+        }
+        assertThrows(IllegalArgumentException.class, () -> history.jump(2));
+
+        assertEquals("v4", history.jump(4).stringValue());
+        assertEquals("v3", history.undo().stringValue());
+        assertFalse(history.canUndo());
+    }
+}
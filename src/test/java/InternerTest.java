@@ -0,0 +1,68 @@
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import model.DomainEntity;
+import model.DomainEntityLens;
+import model.MoreNested;
+import model.MoreNestedWithers;
+import model.Nested;
+import model.RecursiveNested;
+import lib.Interner;
+
+public class InternerTest {
+
+    @AfterEach
+    void tearDown() {
+        Interner.setEnabled(false);
+    }
+
+    private static DomainEntity entity(String value) {
+        return new DomainEntity(
+            value, Optional.empty(), List.of(), Map.of("a", "1"),
+            new Nested("nestedValue", new MoreNested("moreNestedValue")),
+            Optional.empty(), List.of(), Map.of(),
+            new RecursiveNested("root", Optional.empty())
+        );
+    }
+
+    @Test
+    void testEqualSubtreesShareOneInstance() {
+        Interner.setEnabled(true);
+        DomainEntity first = entity("first");
+        DomainEntity second = entity("second");
+
+        DomainEntity firstUpdated = DomainEntityLens.set(first, DomainEntityLens.nested().moreNested().moreNestedValue(), "shared");
+        DomainEntity secondUpdated = DomainEntityLens.set(second, DomainEntityLens.nested().moreNested().moreNestedValue(), "shared");
+        assertSame(firstUpdated.nested(), secondUpdated.nested());
+
+        Map<String, String> firstMap = DomainEntityLens.set(first, DomainEntityLens.stringMap().key("b"), "2").stringMap();
+        Map<String, String> secondMap = DomainEntityLens.set(second, DomainEntityLens.stringMap().key("b"), "2").stringMap();
+        assertSame(firstMap, secondMap);
+
+        MoreNested moreNested = new MoreNested("x");
+        assertSame(MoreNestedWithers.withMoreNestedValue(moreNested, "y"), MoreNestedWithers.withMoreNestedValue(moreNested, "y"));
+    }
+
+    @Test
+    void testOnlyValuesWithCanonicalChildrenAreShared() {
+        Interner.setEnabled(true);
+        MoreNested canonical = MoreNestedWithers.withMoreNestedValue(new MoreNested("x"), "child");
+        MoreNested copy = new MoreNested("child");
+
+        Nested first = Interner.intern(new Nested("parent", canonical));
+        assertSame(first, Interner.intern(new Nested("parent", canonical)));
+        assertNotSame(first, Interner.intern(new Nested("parent", copy)));
+    }
+
+    @Test
+    void testDisabledByDefault() {
+        MoreNested moreNested = new MoreNested("x");
+
+        assertFalse(Interner.isEnabled());
+        assertNotSame(MoreNestedWithers.withMoreNestedValue(moreNested, "y"), MoreNestedWithers.withMoreNestedValue(moreNested, "y"));
+    }
+}
@@ -0,0 +1,70 @@
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import model.DomainEntity;
+import model.DomainEntityLens;
+import model.MoreNested;
+import model.Nested;
+import model.RecursiveNested;
+import lib.LensAtom;
+import lib.Mutations;
+
+public class LensAtomTest {
+
+    private final DomainEntity testEntity = new DomainEntity(
+        "0",
+        Optional.empty(),
+        List.of(),
+        Map.of(),
+        new Nested("nestedValue", new MoreNested("moreNestedValue")),
+        Optional.empty(),
+        List.of(),
+        Map.of(),
+        new RecursiveNested("root", Optional.empty())
+    );
+
+    @Test
+    void testConcurrentModsAreNotLost() throws InterruptedException {
+        LensAtom<DomainEntity> atom = LensAtom.of(testEntity);
+        ExecutorService pool = Executors.newFixedThreadPool(4);
+        for (int i = 0; i < 1000; i++) {
+            pool.execute(() -> atom.mod(DomainEntityLens.stringValue(), s -> Integer.toString(Integer.parseInt(s) + 1)));
+        }
+        pool.shutdown();
+        assertTrue(pool.awaitTermination(10, TimeUnit.SECONDS));
+
+        assertEquals("1000", atom.get(DomainEntityLens.stringValue()));
+        assertEquals(1000, atom.stats().updates());
+    }
+
+    @Test
+    void testNoOpUpdatesSkipTheCas() {
+        LensAtom<DomainEntity> atom = LensAtom.of(testEntity);
+
+        assertSame(testEntity, atom.set(DomainEntityLens.nested().nestedValue(), "nestedValue"));
+        assertSame(testEntity, atom.apply(Mutations.<DomainEntity>forType()
+            .set(DomainEntityLens.stringValue(), "0")
+            .mod(DomainEntityLens.nested().moreNested().moreNestedValue(), s -> s)));
+
+        assertEquals(new LensAtom.Stats(0, 0, 2), atom.stats());
+    }
+
+    @Test
+    void testApplyMutations() {
+        LensAtom<DomainEntity> atom = LensAtom.of(testEntity);
+
+        DomainEntity updated = atom.apply(Mutations.<DomainEntity>forType()
+            .set(DomainEntityLens.stringValue(), "updated")
+            .mod(DomainEntityLens.nested().nestedValue(), String::toUpperCase));
+
+        assertSame(updated, atom.get());
+        assertEquals("updated", updated.stringValue());
+        assertEquals("NESTEDVALUE", updated.nested().nestedValue());
+    }
+}
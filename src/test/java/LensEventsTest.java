@@ -0,0 +1,58 @@
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.stream.IntStream;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import model.DomainEntity;
+import model.DomainEntityLens;
+import model.MoreNested;
+import model.Nested;
+import model.RecursiveNested;
+import lib.Mutations;
+
+public class LensEventsTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void testMutationAndCopyEventsAreRecorded() throws Exception {
+        DomainEntity entity = new DomainEntity(
+            "hello", Optional.empty(), IntStream.range(0, 1000).mapToObj(i -> "s" + i).toList(), Map.of(),
+            new Nested("nestedValue", new MoreNested("moreNestedValue")),
+            Optional.empty(), List.of(), Map.of(),
+            new RecursiveNested("root", Optional.empty())
+        );
+        Path file = directory.resolve("events.jfr");
+
+        try (Recording recording = new Recording()) {
+            recording.enable("javalens.MutationApply").withThreshold(Duration.ZERO);
+            recording.enable("javalens.CollectionCopy").withThreshold(Duration.ZERO);
+            recording.start();
+            Mutations.<DomainEntity>forType()
+                .set(DomainEntityLens.stringList().get(500), "changed")
+                .set(DomainEntityLens.stringValue(), "hello")
+                .apply(entity);
+            recording.stop();
+            recording.dump(file);
+        }
+
+        List<RecordedEvent> events = RecordingFile.readAllEvents(file);
+        RecordedEvent apply = events.stream().filter(e -> e.getEventType().getName().equals("javalens.MutationApply")).findFirst().orElseThrow();
+        assertEquals(2, apply.getInt("operations"));
+        assertEquals(1, apply.getInt("noOps"));
+        assertEquals(DomainEntity.class.getName(), apply.getClass("entityType").getName());
+
+        RecordedEvent copy = events.stream().filter(e -> e.getEventType().getName().equals("javalens.CollectionCopy")).findFirst().orElseThrow();
+        assertEquals("List", copy.getString("collectionType"));
+        assertEquals(1000, copy.getInt("elements"));
+    }
+}
@@ -0,0 +1,75 @@
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import model.DomainEntity;
+import model.DomainEntityLens;
+import model.MoreNested;
+import model.Nested;
+import model.RecursiveNested;
+import lib.LensMetrics;
+import lib.Mutations;
+
+// Relies on -Djavalens.metrics=true, set for this test's own surefire execution in the pom
+public class LensMetricsTest {
+
+    private static DomainEntity entity() {
+        return new DomainEntity(
+            "hello", Optional.empty(), List.of("a", "b", "c"), Map.of(),
+            new Nested("nestedValue", new MoreNested("moreNestedValue")),
+            Optional.empty(), List.of(), Map.of(),
+            new RecursiveNested("root", Optional.empty())
+        );
+    }
+
+    private static LensMetrics.PathSnapshot path(LensMetrics.Snapshot snapshot, String path) {
+        return snapshot.paths().stream().filter(p -> p.path().equals(path)).findFirst().orElseThrow();
+    }
+
+    @BeforeEach
+    void reset() {
+        LensMetrics.reset();
+    }
+
+    @Test
+    void testCountsPerPath() {
+        assertTrue(LensMetrics.ENABLED);
+        DomainEntity entity = entity();
+
+        DomainEntityLens.nested().moreNested().moreNestedValue().get(entity);
+        DomainEntityLens.nested().moreNested().moreNestedValue().set(entity, "x");
+        DomainEntityLens.nested().moreNested().moreNestedValue().mod(entity, String::toUpperCase);
+        DomainEntityLens.stringList().get(1).set(entity, "changed");
+
+        LensMetrics.Snapshot snapshot = LensMetrics.snapshot();
+        LensMetrics.PathSnapshot leaf = path(snapshot, "DomainEntity.nested.moreNested.moreNestedValue");
+        assertEquals(1, leaf.gets());
+        assertEquals(1, leaf.sets());
+        assertEquals(1, leaf.mods());
+        assertEquals(2, Arrays.stream(leaf.updateLatencyHistogram()).sum());
+        // Only the outermost lens of a composition is counted
+        assertEquals(0, path(snapshot, "DomainEntity.nested").operations());
+
+        LensMetrics.PathSnapshot element = path(snapshot, "DomainEntity.stringList[*]");
+        assertEquals(1, element.sets());
+        assertEquals(1, element.copies());
+        assertEquals(3, element.copiedElements());
+    }
+
+    @Test
+    void testMutationNoOpRate() {
+        Mutations.<DomainEntity>forType()
+            .set(DomainEntityLens.stringValue(), "hello")
+            .set(DomainEntityLens.nested().nestedValue(), "changed")
+            .apply(entity());
+
+        LensMetrics.Snapshot snapshot = LensMetrics.snapshot();
+        assertEquals(2, snapshot.mutationOperations());
+        assertEquals(0.5, snapshot.noOpRate());
+        assertTrue(snapshot.format().contains("DomainEntity.nested.nestedValue"));
+    }
+}
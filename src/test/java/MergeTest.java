@@ -0,0 +1,107 @@
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import model.DomainEntity;
+import model.DomainEntityLens;
+import model.DomainEntityWithers;
+import model.MoreNested;
+import model.Nested;
+import model.RecursiveNested;
+import lib.LensPath;
+import lib.Merge;
+import lib.Mutations;
+
+public class MergeTest {
+
+    private static DomainEntity entity() {
+        return new DomainEntity(
+            "hello", Optional.empty(), List.of("a", "b"), Map.of("k", "v"),
+            new Nested("nestedValue", new MoreNested("moreNestedValue")),
+            Optional.of(new Nested("optionalValue", new MoreNested("optionalMore"))),
+            List.of(new Nested("item0", new MoreNested("more0")), new Nested("item1", new MoreNested("more1"))),
+            Map.of("key1", new Nested("mapItem1", new MoreNested("mapMore1")),
+                   "key2", new Nested("mapItem2", new MoreNested("mapMore2"))),
+            new RecursiveNested("root", Optional.empty())
+        );
+    }
+
+    @Test
+    void testNonOverlappingChangesCombine() {
+        DomainEntity base = entity();
+        DomainEntity ours = Mutations.<DomainEntity>forType()
+            .set(DomainEntityLens.nestedList().get(0).nestedValue(), "ours0")
+            .set(DomainEntityLens.nestedMap().get("key1").nestedValue(), "oursKey1")
+            .set(DomainEntityLens.optionalNested().nestedValue(), "oursOptional")
+            .apply(base);
+        DomainEntity theirs = Mutations.<DomainEntity>forType()
+            .set(DomainEntityLens.nestedList().get(1).nestedValue(), "theirs1")
+            .set(DomainEntityLens.nestedMap().get("key2").moreNested().moreNestedValue(), "theirsKey2")
+            .set(DomainEntityLens.optionalNested().moreNested().moreNestedValue(), "theirsOptional")
+            .mod(DomainEntityLens.stringMap(), map -> Map.of("k", "v", "added", "x"))
+            .apply(base);
+
+        Merge.Result<DomainEntity> result = Merge.threeWay(base, ours, theirs);
+
+        assertTrue(result.isClean());
+        DomainEntity merged = result.merged();
+        assertEquals("ours0", merged.nestedList().get(0).nestedValue());
+        assertEquals("theirs1", merged.nestedList().get(1).nestedValue());
+        assertEquals("oursKey1", merged.nestedMap().get("key1").nestedValue());
+        assertEquals("theirsKey2", merged.nestedMap().get("key2").moreNested().moreNestedValue());
+        assertEquals(new Nested("oursOptional", new MoreNested("theirsOptional")), merged.optionalNested().orElseThrow());
+        assertEquals(Map.of("k", "v", "added", "x"), merged.stringMap());
+
+        // Subtrees neither side touched are kept by reference
+        assertSame(base.nested(), merged.nested());
+        assertSame(base.recursiveNested(), merged.recursiveNested());
+    }
+
+    @Test
+    void testEqualLeavesDecodedSeparatelyDoNotConflict() {
+        DomainEntity base = DomainEntityWithers.withStringMap(entity(), Map.of("k1", "v1", "k2", "v2"));
+        // Equal but distinct strings, as after decoding
+        DomainEntity ours = DomainEntityWithers.withStringMap(base, Map.of(new String("k1"), "ours", new String("k2"), new String("v2")));
+        DomainEntity theirs = DomainEntityWithers.withStringMap(base, Map.of(new String("k1"), new String("v1"), new String("k2"), "theirs"));
+
+        Merge.Result<DomainEntity> result = Merge.threeWay(base, ours, theirs);
+
+        assertTrue(result.isClean(), () -> result.conflicts().toString());
+        assertEquals(Map.of("k1", "ours", "k2", "theirs"), result.merged().stringMap());
+    }
+
+    @Test
+    void testOneSidedChangeReturnsThatSide() {
+        DomainEntity base = entity();
+        DomainEntity ours = Mutations.<DomainEntity>forType().set(DomainEntityLens.stringValue(), "ours").apply(base);
+
+        assertSame(ours, Merge.threeWay(base, ours, base).merged());
+        assertSame(ours, Merge.threeWay(base, base, ours).merged());
+    }
+
+    @Test
+    void testSamePathConflicts() {
+        DomainEntity base = entity();
+        DomainEntity ours = Mutations.<DomainEntity>forType()
+            .set(DomainEntityLens.nestedMap().get("key1").nestedValue(), "ours")
+            .set(DomainEntityLens.stringValue(), "same")
+            .set(DomainEntityLens.nestedList().get(0).nestedValue(), "ours0")
+            .apply(base);
+        DomainEntity theirs = Mutations.<DomainEntity>forType()
+            .set(DomainEntityLens.nestedMap().get("key1").nestedValue(), "theirs")
+            .set(DomainEntityLens.stringValue(), "same")
+            .mod(DomainEntityLens.nestedList(), list -> List.of())
+            .apply(base);
+
+        Merge.Result<DomainEntity> result = Merge.threeWay(base, ours, theirs);
+
+        assertEquals(List.of(
+            new Merge.Conflict<>(LensPath.parse(DomainEntity.class, "nestedList"), base.nestedList(), ours.nestedList(), List.of()),
+            new Merge.Conflict<>(LensPath.parse(DomainEntity.class, "nestedMap['key1'].nestedValue"), "mapItem1", "ours", "theirs")),
+            result.conflicts());
+        assertEquals("ours", result.merged().nestedMap().get("key1").nestedValue());
+        assertEquals("same", result.merged().stringValue());
+    }
+}
@@ -0,0 +1,139 @@
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+import model.DomainEntity;
+import model.DomainEntityLens;
+import model.MoreNested;
+import model.Nested;
+import model.RecursiveNested;
+import lib.EntityStore;
+import lib.MutationExecutor;
+import lib.Mutations;
+
+public class MutationExecutorTest {
+
+    private static DomainEntity entity(String value) {
+        return new DomainEntity(
+            value, Optional.empty(), List.of(), Map.of(),
+            new Nested("nestedValue", new MoreNested("moreNestedValue")),
+            Optional.empty(), List.of(), Map.of(),
+            new RecursiveNested("root", Optional.empty())
+        );
+    }
+
+    private static EntityStore<Integer, DomainEntity> store(int entities) {
+        EntityStore<Integer, DomainEntity> store = new EntityStore<>();
+        for (int key = 0; key < entities; key++) {
+            store.put(key, entity(""));
+        }
+        return store;
+    }
+
+    private static MutationExecutor.Request<Integer, DomainEntity> append(int id, String suffix) {
+        return new MutationExecutor.Request<>(id,
+            Mutations.<DomainEntity>forType().mod(DomainEntityLens.stringValue(), s -> s + suffix));
+    }
+
+    @Test
+    void testFailedEntitiesAreReportedAndLeftUnchanged() {
+        EntityStore<Integer, DomainEntity> store = store(4);
+        List<MutationExecutor.BatchReport<Integer>> reports = new ArrayList<>();
+        MutationExecutor.Request<Integer, DomainEntity> failing = new MutationExecutor.Request<>(2,
+            Mutations.<DomainEntity>forType().mod(DomainEntityLens.stringValue(), s -> {
+                throw new IllegalStateException("boom");
+            }));
+
+        try (MutationExecutor<Integer, DomainEntity> executor = new MutationExecutor<>(store, 10, 4, reports::add)) {
+            executor.execute(Stream.of(append(0, "a"), append(2, "a"), failing, append(2, "b"), append(3, "a")));
+        }
+
+        assertEquals(1, reports.size());
+        Map<Integer, Throwable> failures = reports.get(0).failures();
+        assertEquals(List.of(2), List.copyOf(failures.keySet()));
+        assertInstanceOf(IllegalStateException.class, failures.get(2));
+        assertEquals("", store.get(2).stringValue()); // None of the entity's updates in the batch applied
+        assertEquals("a", store.get(0).stringValue());
+        assertEquals("a", store.get(3).stringValue());
+    }
+
+    @Test
+    void testMaxInFlightBoundsConcurrentGroups() {
+        EntityStore<Integer, DomainEntity> store = store(16);
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger peak = new AtomicInteger();
+        Mutations<DomainEntity> slow = Mutations.<DomainEntity>forType().mod(DomainEntityLens.stringValue(), s -> {
+            peak.accumulateAndGet(running.incrementAndGet(), Math::max);
+            try {
+                Thread.sleep(5);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } finally {
+                running.decrementAndGet();
+            }
+            return s + "x";
+        });
+
+        try (MutationExecutor<Integer, DomainEntity> executor = new MutationExecutor<>(store, 16, 3, report -> {})) {
+            executor.execute(IntStream.range(0, 16).mapToObj(i -> new MutationExecutor.Request<>(i, slow)));
+        }
+
+        assertTrue(peak.get() <= 3, "peak " + peak.get());
+        for (int key = 0; key < 16; key++) {
+            assertEquals("x", store.get(key).stringValue());
+        }
+    }
+
+    @Test
+    void testBatchReportsCountRequestsAndEntities() {
+        EntityStore<Integer, DomainEntity> store = store(3);
+        List<MutationExecutor.BatchReport<Integer>> reports = new ArrayList<>();
+
+        try (MutationExecutor<Integer, DomainEntity> executor = new MutationExecutor<>(store, 5, 2, reports::add)) {
+            assertEquals(12, executor.execute(IntStream.range(0, 12).mapToObj(i -> append(i % 3, "x"))));
+        }
+
+        assertEquals(List.of(5, 5, 2), reports.stream().map(MutationExecutor.BatchReport::requests).toList());
+        assertEquals(List.of(3, 3, 2), reports.stream().map(MutationExecutor.BatchReport::entities).toList());
+        assertTrue(reports.stream().allMatch(report -> report.nanos() > 0 && report.failures().isEmpty()));
+        assertEquals("xxxx", store.get(0).stringValue());
+    }
+
+    @Test
+    void testRejectedGroupReturnsItsPermit() {
+        EntityStore<Integer, DomainEntity> store = store(1);
+        ExecutorService rejectingOnce = new ThreadPoolExecutor(1, 1, 0, TimeUnit.SECONDS, new LinkedBlockingQueue<>()) {
+            private final AtomicBoolean rejected = new AtomicBoolean();
+
+            @Override
+            public void execute(Runnable command) {
+                if (rejected.compareAndSet(false, true)) {
+                    throw new RejectedExecutionException("full");
+                }
+                super.execute(command);
+            }
+        };
+
+        try (MutationExecutor<Integer, DomainEntity> executor = new MutationExecutor<>(store, rejectingOnce, 10, 1, report -> {})) {
+            assertThrows(RejectedExecutionException.class, () -> executor.execute(Stream.of(append(0, "a"))));
+            assertTimeoutPreemptively(Duration.ofSeconds(5), () -> executor.execute(Stream.of(append(0, "b"))));
+        } finally {
+            rejectingOnce.shutdown();
+        }
+
+        assertEquals("b", store.get(0).stringValue());
+    }
+}
@@ -0,0 +1,124 @@
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.stream.Stream;
+import model.DomainEntity;
+import model.DomainEntityLens;
+import model.MoreNested;
+import model.Nested;
+import model.RecursiveNested;
+import lib.Codecs;
+import lib.MutationJournal;
+
+public class MutationJournalTest {
+
+    @TempDir
+    Path directory;
+
+    private static DomainEntity entity(String value) {
+        return new DomainEntity(
+            value, Optional.empty(), List.of(), Map.of(),
+            new Nested("nestedValue", new MoreNested("moreNestedValue")),
+            Optional.empty(), List.of(), Map.of(),
+            new RecursiveNested("root", Optional.empty())
+        );
+    }
+
+    // Journal with stable path ids registered the same way on every open
+    private static final class Journal implements AutoCloseable {
+        final MutationJournal<String, DomainEntity> journal;
+        final MutationJournal.Field<DomainEntity, String> stringValue;
+        final MutationJournal.Field<DomainEntity, String> moreNestedValue;
+        final MutationJournal.Field<DomainEntity, List<String>> stringList;
+
+        Journal(Path directory) throws IOException {
+            journal = new MutationJournal<>(directory, Codecs.STRING, 512);
+            stringValue = journal.register(1, DomainEntityLens.stringValue(), Codecs.STRING);
+            moreNestedValue = journal.register(2, DomainEntityLens.nested().moreNested().moreNestedValue(), Codecs.STRING);
+            stringList = journal.register(3, DomainEntityLens.stringList(), Codecs.list(Codecs.STRING));
+        }
+
+        @Override
+        public void close() {
+            journal.close();
+        }
+    }
+
+    @Test
+    void testReplayAfterReopen() throws IOException {
+        try (Journal j = new Journal(directory)) {
+            for (int i = 0; i < 60; i++) {
+                j.journal.commit(j.journal.batch("key" + (i % 3))
+                    .set(j.stringValue, "v" + i)
+                    .set(j.moreNestedValue, "m" + i));
+            }
+        }
+        // Small segments force several rolls
+        try (Stream<Path> files = Files.list(directory)) {
+            assertTrue(files.count() > 1);
+        }
+
+        // Appends after reopening continue at the tail of the last segment
+        try (Journal j = new Journal(directory)) {
+            j.journal.commit(j.journal.batch("key0").set(j.stringList, List.of("a", "b")));
+        }
+
+        try (Journal j = new Journal(directory)) {
+            Map<String, DomainEntity> state = j.journal.replay(key -> entity("initial"));
+            assertEquals(3, state.size());
+            assertEquals("v57", state.get("key0").stringValue());
+            assertEquals("m57", state.get("key0").nested().moreNested().moreNestedValue());
+            assertEquals(List.of("a", "b"), state.get("key0").stringList());
+            assertEquals("v59", state.get("key2").stringValue());
+            assertTrue(state.get("key2").stringList().isEmpty());
+        }
+    }
+
+    @Test
+    void testAppendsAfterTornRecordAreReplayed() throws IOException {
+        try (Journal j = new Journal(directory)) {
+            for (int i = 0; i < 3; i++) {
+                j.journal.commit(j.journal.batch("key").set(j.stringValue, "v" + i));
+            }
+        }
+        // Damage the body of the second record, leaving its length intact
+        Path segment;
+        try (Stream<Path> files = Files.list(directory)) {
+            segment = files.findFirst().orElseThrow();
+        }
+        byte[] bytes = Files.readAllBytes(segment);
+        int first = ByteBuffer.wrap(bytes).getInt(0);
+        bytes[8 + first + 8] ^= 0x7F;
+        Files.write(segment, bytes);
+
+        try (Journal j = new Journal(directory)) {
+            j.journal.commit(j.journal.batch("other").set(j.stringValue, "after"));
+        }
+
+        try (Journal j = new Journal(directory)) {
+            Map<String, DomainEntity> state = j.journal.replay(key -> entity("initial"));
+            assertEquals("v0", state.get("key").stringValue());
+            assertEquals("after", state.get("other").stringValue());
+        }
+    }
+
+    @Test
+    void testBatchAppliesTheJournaledOperations() throws IOException {
+        try (Journal j = new Journal(directory)) {
+            MutationJournal.Batch<String, DomainEntity> batch = j.journal.batch("key").set(j.stringValue, "updated");
+            DomainEntity original = entity("initial");
+
+            assertEquals("updated", batch.apply(original).stringValue());
+            assertEquals("initial", original.stringValue()); // Original unchanged
+            assertThrows(IllegalArgumentException.class, () -> j.journal.register(1, DomainEntityLens.stringValue(), Codecs.STRING));
+        }
+    }
+}
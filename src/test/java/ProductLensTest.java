@@ -0,0 +1,152 @@
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+import model.DomainEntity;
+import model.DomainEntityLens;
+import model.MoreNested;
+import model.Nested;
+import model.RecursiveNested;
+import lib.Lens;
+import lib.Pair;
+import lib.RecordLens;
+
+public class ProductLensTest {
+
+    private static final AtomicInteger CONSTRUCTIONS = new AtomicInteger();
+
+    private record Counted(String a, String b, String c) {
+        Counted {
+            CONSTRUCTIONS.incrementAndGet();
+        }
+    }
+
+    private record NameAndOptional(String stringValue, Optional<String> optionalString) {}
+
+    private final DomainEntity testEntity = new DomainEntity(
+        "hello",
+        Optional.of("optional"),
+        List.of("a"),
+        Map.of(),
+        new Nested("nestedValue", new MoreNested("moreNestedValue")),
+        Optional.empty(),
+        List.of(),
+        Map.of(),
+        new RecursiveNested("root", Optional.empty())
+    );
+
+    @Test
+    void testZipOfSiblingComponentsRebuildsOnce() {
+        Lens<Counted, Pair<String, String>> ab = Lens.zip(RecordLens.of(Counted.class, "a"), RecordLens.of(Counted.class, "c"));
+        Counted counted = new Counted("a", "b", "c");
+
+        CONSTRUCTIONS.set(0);
+        Counted updated = ab.set(counted, Pair.of("x", "z"));
+        assertEquals(1, CONSTRUCTIONS.get());
+
+        assertEquals(new Counted("x", "b", "z"), updated);
+        assertEquals(Pair.of("x", "z"), ab.get(updated));
+    }
+
+    @Test
+    void testZipOfGeneratedLenses() {
+        Lens<DomainEntity, Pair<String, Optional<String>>> zipped =
+            Lens.zip(DomainEntityLens.stringValue(), DomainEntityLens.optionalString());
+
+        DomainEntity updated = DomainEntityLens.set(testEntity, zipped, Pair.of("new", Optional.empty()));
+
+        assertEquals("new", updated.stringValue());
+        assertTrue(updated.optionalString().isEmpty());
+        assertSame(testEntity.nested(), updated.nested());
+        assertEquals("hello", testEntity.stringValue()); // Original unchanged
+    }
+
+    @Test
+    void testZipBelowSameParent() {
+        Lens<DomainEntity, Pair<String, MoreNested>> zipped =
+            Lens.zip(DomainEntityLens.nested().nestedValue(), DomainEntityLens.nested().moreNested().lens());
+
+        DomainEntity updated = zipped.set(testEntity, Pair.of("n2", new MoreNested("m2")));
+
+        assertEquals(new Nested("n2", new MoreNested("m2")), updated.nested());
+        assertEquals(Pair.of("n2", new MoreNested("m2")), zipped.get(updated));
+    }
+
+    @Test
+    void testZipOfUnrelatedLensesFallsBackToSequentialSets() {
+        Lens<DomainEntity, Pair<String, String>> zipped =
+            Lens.zip(DomainEntityLens.stringValue(), DomainEntityLens.nested().moreNested().moreNestedValue());
+
+        DomainEntity updated = zipped.set(testEntity, Pair.of("s", "m"));
+
+        assertEquals("s", updated.stringValue());
+        assertEquals("m", updated.nested().moreNested().moreNestedValue());
+    }
+
+    @Test
+    void testZipSetToCurrentValuesReturnsSource() {
+        Lens<DomainEntity, Pair<String, MoreNested>> zipped =
+            Lens.zip(DomainEntityLens.nested().nestedValue(), DomainEntityLens.nested().moreNested().lens());
+        Lens<Counted, Pair<String, String>> ac = Lens.zip(RecordLens.of(Counted.class, "a"), RecordLens.of(Counted.class, "c"));
+        Counted counted = new Counted("a", "b", "c");
+
+        assertSame(testEntity, zipped.set(testEntity, zipped.get(testEntity)));
+        CONSTRUCTIONS.set(0);
+        assertSame(counted, ac.mod(counted, pair -> pair));
+        assertEquals(0, CONSTRUCTIONS.get());
+    }
+
+    @Test
+    void testZipKeepsCustomComponentSetters() {
+        Lens<Counted, String> a = Lens.ofComponent(Counted.class, 0, String.class, Counted::a,
+            (counted, value) -> new Counted(value.toUpperCase(), counted.b(), counted.c()));
+        Lens<Counted, String> c = Lens.ofComponent(Counted.class, 2, String.class, Counted::c,
+            (counted, value) -> new Counted(counted.a(), counted.b(), value.toUpperCase()));
+
+        Counted updated = Lens.zip(a, c).set(new Counted("a", "b", "c"), Pair.of("x", "z"));
+
+        assertEquals(new Counted("X", "b", "Z"), updated);
+    }
+
+    @Test
+    void testZipOfOptedInComponentLensesCallsPairWitherOnce() {
+        Lens.PairWither<Counted> pairWither = (counted, first, firstValue, second, secondValue) -> new Counted(
+            first == 0 ? (String) firstValue : counted.a(), counted.b(), second == 2 ? (String) secondValue : counted.c());
+        Lens<Counted, String> a = Lens.ofComponent(Counted.class, 0, String.class, Counted::a,
+            (counted, value) -> new Counted(value, counted.b(), counted.c()), pairWither);
+        Lens<Counted, String> c = Lens.ofComponent(Counted.class, 2, String.class, Counted::c,
+            (counted, value) -> new Counted(counted.a(), counted.b(), value), pairWither);
+        Counted counted = new Counted("a", "b", "c");
+
+        CONSTRUCTIONS.set(0);
+        Counted updated = Lens.zip(a, c).set(counted, Pair.of("x", "z"));
+
+        assertEquals(1, CONSTRUCTIONS.get());
+        assertEquals(new Counted("x", "b", "z"), updated);
+    }
+
+    @Test
+    void testProductIntoUserRecord() {
+        Lens<DomainEntity, NameAndOptional> view = RecordLens.product(DomainEntity.class, NameAndOptional.class);
+
+        assertEquals(new NameAndOptional("hello", Optional.of("optional")), view.get(testEntity));
+
+        DomainEntity updated = view.mod(testEntity, v -> new NameAndOptional(v.stringValue() + "!", Optional.of("o")));
+        assertEquals("hello!", updated.stringValue());
+        assertEquals(Optional.of("o"), updated.optionalString());
+        assertSame(testEntity.nestedList(), updated.nestedList());
+    }
+
+    @Test
+    void testComponentLensChecksIndexAndType() {
+        assertThrows(IllegalArgumentException.class,
+            () -> Lens.ofComponent(Counted.class, 3, String.class, Counted::a, (counted, a) -> counted));
+        assertThrows(IllegalArgumentException.class,
+            () -> Lens.ofComponent(NameAndOptional.class, 1, String.class, NameAndOptional::stringValue, (record, value) -> record));
+        assertThrows(IllegalArgumentException.class,
+            () -> Lens.ofComponent(String.class, 0, String.class, s -> s, (s, value) -> value));
+    }
+}
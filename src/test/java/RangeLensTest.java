@@ -0,0 +1,157 @@
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.stream.IntStream;
+import lib.Codecs;
+import lib.ColumnarList;
+import lib.Diff;
+import lib.Lens;
+import lib.Merge;
+import lib.Mutations;
+import model.DomainEntity;
+import model.DomainEntityLens;
+import model.FeatureVector;
+import model.FeatureVectorLens;
+import model.MoreNested;
+import model.Nested;
+
+public class RangeLensTest {
+
+    private final DomainEntity entity = CodecTest.sampleEntity(1);
+
+    private final FeatureVector vector = new FeatureVector("features", new int[0], new long[0], new double[0],
+        new TreeMap<>(Map.of(10L, 1.0, 20L, 2.0, 30L, 3.0, 40L, 4.0)));
+
+    // LIST SLICE TESTS
+
+    @Test
+    void testSliceReadsView() {
+        List<String> slice = DomainEntityLens.stringList().slice(1, 3).get(entity);
+
+        assertEquals(List.of("b", "c"), slice);
+        assertThrows(UnsupportedOperationException.class, () -> slice.set(0, "x"));
+    }
+
+    @Test
+    void testSliceSetSplices() {
+        Lens<DomainEntity, List<String>> middle = DomainEntityLens.stringList().slice(1, 2);
+
+        assertEquals(List.of("a", "x", "y", "c"), middle.set(entity, List.of("x", "y")).stringList());
+        assertEquals(List.of("a", "c"), middle.set(entity, List.of()).stringList());
+        assertEquals(List.of("a", "b", "c"), entity.stringList());
+        assertThrows(UnsupportedOperationException.class, () -> middle.set(entity, List.of("x")).stringList().set(0, "z"));
+        assertThrows(NullPointerException.class, () -> middle.set(entity, Arrays.asList("x", null)));
+    }
+
+    @Test
+    void testSliceModOverRecords() {
+        DomainEntity updated = Mutations.<DomainEntity>forType()
+            .mod(DomainEntityLens.nestedList().slice(0, 2), nested -> nested.stream()
+                .map(n -> new Nested(n.nestedValue().toUpperCase(), n.moreNested()))
+                .toList())
+            .apply(entity);
+
+        assertEquals("NESTED1", updated.nestedList().get(0).nestedValue());
+        assertEquals("LISTITEM", updated.nestedList().get(1).nestedValue());
+        assertSame(entity, Mutations.<DomainEntity>forType()
+            .mod(DomainEntityLens.nestedList().slice(0, 2), nested -> nested)
+            .apply(entity));
+    }
+
+    @Test
+    void testSliceSetKeepsColumnarList() {
+        List<Nested> plain = IntStream.range(0, 6).mapToObj(i -> new Nested("item" + i, new MoreNested("more" + i))).toList();
+        DomainEntity columnarEntity = DomainEntityLens.nestedList().set(entity, ColumnarList.of(Nested.class, plain));
+        Lens<DomainEntity, List<Nested>> middle = DomainEntityLens.nestedList().slice(2, 4);
+
+        List<Nested> replaced = middle.set(columnarEntity, List.of(new Nested("x", new MoreNested("more2")), plain.get(3))).nestedList();
+        assertInstanceOf(ColumnarList.class, replaced);
+        assertEquals("x", replaced.get(2).nestedValue());
+        assertEquals(plain.subList(3, 6), replaced.subList(3, 6));
+        assertEquals(5, middle.set(columnarEntity, List.of(plain.get(2))).nestedList().size());
+    }
+
+    @Test
+    void testSliceOutOfBoundsThrows() {
+        assertThrows(IndexOutOfBoundsException.class, () -> DomainEntityLens.stringList().slice(2, 5).get(entity));
+    }
+
+    // SORTED MAP RANGE TESTS
+
+    @Test
+    void testRangeReadsView() {
+        NavigableMap<Long, Double> range = FeatureVectorLens.readings().range(20L, 40L).get(vector);
+
+        assertEquals(Map.of(20L, 2.0, 30L, 3.0), range);
+        assertEquals(20L, range.firstKey());
+    }
+
+    @Test
+    void testRangeSetReplacesEntries() {
+        FeatureVector updated = FeatureVectorLens.readings().range(20L, 40L)
+            .set(vector, new TreeMap<>(Map.of(25L, 2.5)));
+
+        assertEquals(List.of(10L, 25L, 40L), List.copyOf(updated.readings().keySet()));
+        assertEquals(4, vector.readings().size());
+        assertThrows(UnsupportedOperationException.class, () -> updated.readings().put(50L, 5.0));
+    }
+
+    @Test
+    void testRangeModWithSameEntriesReturnsSource() {
+        Lens<FeatureVector, NavigableMap<Long, Double>> range = FeatureVectorLens.readings().range(20L, 40L);
+
+        assertSame(vector, range.mod(vector, entries -> entries));
+        assertSame(vector, range.set(vector, new TreeMap<>(range.get(vector))));
+        assertNotSame(vector, range.set(vector, new TreeMap<>(Map.of(20L, 2.0))));
+    }
+
+    @Test
+    void testRangeSetRejectsKeysOutsideRange() {
+        Lens<FeatureVector, NavigableMap<Long, Double>> range = FeatureVectorLens.readings().range(20L, 40L);
+
+        assertThrows(IllegalArgumentException.class, () -> range.set(vector, new TreeMap<>(Map.of(50L, 5.0))));
+    }
+
+    @Test
+    void testSortedKeyKeepsOrder() {
+        FeatureVector updated = FeatureVectorLens.readings().key(15L).set(vector, 1.5);
+
+        assertEquals(List.of(10L, 15L, 20L, 30L, 40L), List.copyOf(updated.readings().keySet()));
+        assertEquals(1.5, FeatureVectorLens.readings().key(15L).get(updated));
+    }
+
+    @Test
+    void testDiffAndMergeKeepSortedMaps() {
+        FeatureVector ours = FeatureVectorLens.readings().key(20L).set(vector, 2.5);
+        FeatureVector theirs = FeatureVectorLens.readings().key(40L).set(vector, 4.5);
+
+        List<Diff.Change<FeatureVector>> changes = Diff.between(vector, ours);
+        FeatureVector reverted = Diff.revert(ours, changes);
+        assertInstanceOf(NavigableMap.class, reverted.readings());
+        assertEquals(vector.readings(), reverted.readings());
+
+        Merge.Result<FeatureVector> merged = Merge.threeWay(vector, ours, theirs);
+        assertTrue(merged.isClean());
+        assertEquals(List.of(2.5, 4.5), List.of(merged.merged().readings().get(20L), merged.merged().readings().get(40L)));
+        assertEquals(10L, merged.merged().readings().firstKey());
+    }
+
+    @Test
+    void testSortedMapCodecWithComparator() {
+        NavigableMap<Long, Double> descending = new TreeMap<>(Comparator.reverseOrder());
+        descending.putAll(vector.readings());
+        var codec = Codecs.sortedMap(Codecs.LONG, Codecs.DOUBLE, Comparator.<Long>reverseOrder());
+
+        NavigableMap<Long, Double> decoded = Codecs.decode(codec, Codecs.encode(codec, descending));
+
+        assertEquals(40L, decoded.firstKey());
+        assertEquals(descending, decoded);
+    }
+}
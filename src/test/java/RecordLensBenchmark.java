@@ -0,0 +1,57 @@
+import java.util.ArrayList;
+import java.util.List;
+import lib.Lens;
+import lib.RecordLens;
+import model.DomainEntity;
+import model.DomainEntityLens;
+
+/**
+ * Get and set through runtime {@link RecordLens} lenses against the generated DomainEntityLens.
+ * Run from the test classpath:
+ * {@code java -cp target/classes:target/test-classes RecordLensBenchmark [iterations]}
+ */
+public class RecordLensBenchmark {
+
+    public static void main(String[] args) {
+        int iterations = args.length > 0 ? Integer.parseInt(args[0]) : 20_000_000;
+        List<DomainEntity> entities = new ArrayList<>();
+        for (int i = 0; i < 1024; i++) {
+            entities.add(CodecTest.sampleEntity(i));
+        }
+        Lens<DomainEntity, String> generated = DomainEntityLens.nested().moreNested().moreNestedValue();
+        Lens<DomainEntity, String> runtime = RecordLens.path(DomainEntity.class, "nested.moreNested.moreNestedValue");
+
+        for (int round = 0; round < 5; round++) {
+            System.out.printf("round %d: generated get %.1f ns/op, set %.1f ns/op; RecordLens get %.1f ns/op, set %.1f ns/op%n",
+                round,
+                get(generated, entities, iterations),
+                set(generated, entities, iterations),
+                get(runtime, entities, iterations),
+                set(runtime, entities, iterations));
+        }
+    }
+
+    private static double get(Lens<DomainEntity, String> lens, List<DomainEntity> entities, int iterations) {
+        long checksum = 0;
+        long start = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            checksum += lens.get(entities.get(i & 1023)).length();
+        }
+        return report(start, iterations, checksum);
+    }
+
+    private static double set(Lens<DomainEntity, String> lens, List<DomainEntity> entities, int iterations) {
+        long checksum = 0;
+        long start = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            checksum += lens.set(entities.get(i & 1023), "updated").nested().moreNested().moreNestedValue().length();
+        }
+        return report(start, iterations, checksum);
+    }
+
+    // The checksum keeps the loop from being optimized away
+    private static double report(long start, int iterations, long checksum) {
+        double nanos = (double) (System.nanoTime() - start) / iterations;
+        return checksum == 42 ? -nanos : nanos;
+    }
+}
@@ -0,0 +1,73 @@
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import model.DomainEntity;
+import model.MoreNested;
+import model.Nested;
+import model.RecursiveNested;
+import lib.Lens;
+import lib.RecordLens;
+
+public class RecordLensTest {
+
+    // Not reachable from DomainEntity, so no generated Withers exist for it
+    private record Point(int x, int y, String label) {}
+
+    @Test
+    void testGetAndSetPrimitiveComponents() {
+        Lens<Point, Integer> x = RecordLens.of(Point.class, "x");
+        Lens<Point, String> label = RecordLens.of(Point.class, "label");
+
+        Point point = new Point(1, 2, "origin");
+        Point moved = x.set(point, 10);
+
+        assertEquals(10, moved.x());
+        assertEquals(2, moved.y());
+        assertEquals("origin", label.get(moved));
+        assertEquals(1, point.x()); // Original unchanged
+    }
+
+    @Test
+    void testComposesWithGeneratedStyleLenses() {
+        Lens<Nested, MoreNested> moreNested = RecordLens.of(Nested.class, "moreNested");
+        Lens<MoreNested, String> value = RecordLens.of(MoreNested.class, "moreNestedValue");
+
+        Nested nested = new Nested("nestedValue", new MoreNested("old"));
+        Nested updated = moreNested.andThen(value).set(nested, "new");
+
+        assertEquals("new", updated.moreNested().moreNestedValue());
+        assertEquals("nestedValue", updated.nestedValue());
+        assertEquals("old", nested.moreNested().moreNestedValue()); // Original unchanged
+    }
+
+    @Test
+    void testGenericComponentsOfDomainEntity() {
+        DomainEntity entity = new DomainEntity(
+            "hello", Optional.empty(), List.of("a"), Map.of(),
+            new Nested("n", new MoreNested("m")), Optional.empty(), List.of(), Map.of(),
+            new RecursiveNested("root", Optional.empty())
+        );
+
+        Lens<DomainEntity, List<String>> stringList = RecordLens.of(DomainEntity.class, "stringList");
+        DomainEntity updated = stringList.mod(entity, list -> List.of("x", "y"));
+
+        assertEquals(List.of("x", "y"), updated.stringList());
+        assertEquals("hello", updated.stringValue());
+        assertSame(entity.nested(), updated.nested()); // Untouched components are shared
+    }
+
+    @Test
+    void testLensesAreCachedPerClass() {
+        assertSame(RecordLens.of(Point.class, "y"), RecordLens.of(Point.class, "y"));
+    }
+
+    @Test
+    void testInvalidUsageThrows() {
+        assertThrows(IllegalArgumentException.class, () -> RecordLens.of(Point.class, "z"));
+        assertThrows(IllegalArgumentException.class, () -> RecordLens.of(Point.class, "label", Integer.class));
+        assertEquals(Integer.class, RecordLens.of(Point.class, "x", Integer.class).get(new Point(7, 0, "")).getClass());
+    }
+}
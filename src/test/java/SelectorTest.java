@@ -0,0 +1,85 @@
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+import model.DomainEntity;
+import model.DomainEntityLens;
+import model.MoreNested;
+import model.Nested;
+import model.RecursiveNested;
+import lib.Selector;
+
+public class SelectorTest {
+
+    private static DomainEntity entity(String value) {
+        return new DomainEntity(
+            value, Optional.empty(), List.of(), Map.of(),
+            new Nested("nestedValue", new MoreNested("moreNestedValue")),
+            Optional.empty(),
+            List.of(new Nested("a", new MoreNested("x")), new Nested("bb", new MoreNested("y"))),
+            Map.of(),
+            new RecursiveNested("root", Optional.empty())
+        );
+    }
+
+    @Test
+    void testRecomputesOnlyWhenAnInputChanges() {
+        AtomicInteger computations = new AtomicInteger();
+        Selector<DomainEntity, Integer> totalLength = Selector.of(DomainEntity::nestedList, list -> {
+            computations.incrementAndGet();
+            return list.stream().mapToInt(n -> n.nestedValue().length()).sum();
+        });
+
+        DomainEntity entity = entity("hello");
+        assertEquals(3, totalLength.get(entity));
+        assertEquals(3, totalLength.get(entity));
+
+        DomainEntity renamed = DomainEntityLens.set(entity, DomainEntityLens.stringValue(), "renamed");
+        assertEquals(3, totalLength.get(renamed)); // nestedList kept its identity
+        assertEquals(1, computations.get());
+
+        DomainEntity changed = DomainEntityLens.set(entity, DomainEntityLens.nestedList().get(0).nestedValue(), "aaaa");
+        assertEquals(6, totalLength.get(changed));
+        assertEquals(2, computations.get());
+        assertEquals(2, totalLength.hits());
+    }
+
+    @Test
+    void testSelectorsCompose() {
+        Selector<DomainEntity, String> label = Selector.of(DomainEntity::stringValue, DomainEntity::nested,
+            (value, nested) -> value + "/" + nested.nestedValue());
+        Selector<DomainEntity, Integer> labelLength = Selector.of(label, String::length);
+
+        DomainEntity entity = entity("hello");
+        assertEquals("hello/nestedValue", label.get(entity));
+        assertEquals(17, labelLength.get(entity));
+        assertEquals(17, labelLength.get(DomainEntityLens.set(entity, DomainEntityLens.nestedList().get(1).nestedValue(), "c")));
+
+        assertEquals(1, labelLength.misses());
+    }
+
+    @Test
+    void testEntitiesKeepTheirOwnSlots() {
+        AtomicInteger computations = new AtomicInteger();
+        Selector<DomainEntity, String> label = Selector.of(DomainEntity::stringValue, DomainEntity::nested,
+            (value, nested) -> {
+                computations.incrementAndGet();
+                return value + "/" + nested.nestedValue();
+            }, 2);
+
+        DomainEntity first = entity("first");
+        DomainEntity second = entity("second");
+        for (int i = 0; i < 3; i++) {
+            assertEquals("first/nestedValue", label.get(first));
+            assertEquals("second/nestedValue", label.get(second));
+        }
+        assertEquals(2, computations.get());
+
+        DomainEntity renested = DomainEntityLens.set(first, DomainEntityLens.nested().nestedValue(), "other");
+        assertEquals("first/other", label.get(renested));
+        assertEquals(3, computations.get());
+    }
+}
@@ -0,0 +1,49 @@
+import java.lang.management.ManagementFactory;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import lib.Mutations;
+import model.DomainEntity;
+import model.DomainEntityLens;
+import model.MoreNested;
+import model.Nested;
+import model.RecursiveNested;
+
+/**
+ * Time from JVM start to the first applied mutation, which includes loading and linking the
+ * generated lens classes. Compare the default build with {@code mvn -Pstartup verify}, which
+ * generates lambda-free lenses and dumps an AppCDS archive of this run:
+ * {@code java -XX:SharedArchiveFile=target/javalens.jsa -cp target/javalens-1.0-SNAPSHOT.jar:target/javalens-1.0-SNAPSHOT-tests.jar StartupBenchmark}
+ */
+public class StartupBenchmark {
+
+    public static void main(String[] args) {
+        long start = System.nanoTime();
+        Nested nested = new Nested("nested", new MoreNested("moreNested"));
+        DomainEntity entity = new DomainEntity(
+            "entity",
+            Optional.of("optional"),
+            List.of("a", "b", "c"),
+            Map.of("str1", "value1"),
+            nested,
+            Optional.of(nested),
+            List.of(nested),
+            Map.of("key1", nested),
+            new RecursiveNested("root", Optional.of(new RecursiveNested("child", Optional.empty())))
+        );
+
+        DomainEntity updated = Mutations.<DomainEntity>forType()
+            .set(DomainEntityLens.stringValue(), "updated")
+            .mod(DomainEntityLens.nested().moreNested().moreNestedValue(), String::toUpperCase)
+            .set(DomainEntityLens.optionalNested().nestedValue(), "optionalUpdated")
+            .set(DomainEntityLens.nestedList().get(0).nestedValue(), "listUpdated")
+            .set(DomainEntityLens.nestedMap().get("key1").moreNested().moreNestedValue(), "mapUpdated")
+            .set(DomainEntityLens.recursiveNested().child().value(), "childUpdated")
+            .apply(entity);
+        long firstApplyNanos = System.nanoTime() - start;
+
+        long uptimeMillis = ManagementFactory.getRuntimeMXBean().getUptime();
+        System.out.printf("first mutation applied %.2f ms after main, %d ms after JVM start (%s)%n",
+                firstApplyNanos / 1e6, uptimeMillis, updated.stringValue());
+    }
+}
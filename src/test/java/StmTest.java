@@ -0,0 +1,95 @@
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import model.DomainEntity;
+import model.DomainEntityLens;
+import model.MoreNested;
+import model.Nested;
+import model.RecursiveNested;
+import lib.Stm;
+
+public class StmTest {
+
+    private static DomainEntity entity(Map<String, Nested> nestedMap, List<Nested> nestedList) {
+        return new DomainEntity(
+            "hello", Optional.empty(), List.of(), Map.of(),
+            new Nested("nestedValue", new MoreNested("moreNestedValue")),
+            Optional.empty(), nestedList, nestedMap,
+            new RecursiveNested("root", Optional.empty())
+        );
+    }
+
+    // Move one Nested from the source's nestedMap to the target's nestedList
+    private static void move(Stm.Transaction tx, Stm.Ref<DomainEntity> source, Stm.Ref<DomainEntity> target, String key) {
+        Nested moved = tx.get(source, DomainEntityLens.nestedMap().lens()).get(key);
+        if (moved == null) {
+            return;
+        }
+        tx.mod(source, DomainEntityLens.nestedMap(), map -> {
+            Map<String, Nested> copy = new HashMap<>(map);
+            copy.remove(key);
+            return Map.copyOf(copy);
+        });
+        tx.mod(target, DomainEntityLens.nestedList(), list -> {
+            List<Nested> copy = new ArrayList<>(list);
+            copy.add(moved);
+            return List.copyOf(copy);
+        });
+    }
+
+    @Test
+    void testMoveBetweenEntities() {
+        Nested item = new Nested("item", new MoreNested("more"));
+        Stm.Ref<DomainEntity> source = Stm.ref(entity(Map.of("key1", item), List.of()));
+        Stm.Ref<DomainEntity> target = Stm.ref(entity(Map.of(), List.of()));
+
+        Stm.run(tx -> move(tx, source, target, "key1"));
+
+        assertTrue(source.get().nestedMap().isEmpty());
+        assertEquals(List.of(item), target.get().nestedList());
+    }
+
+    @Test
+    void testConcurrentMovesKeepEveryItemExactlyOnce() throws InterruptedException {
+        Map<String, Nested> items = new HashMap<>();
+        for (int i = 0; i < 200; i++) {
+            items.put("key" + i, new Nested("item" + i, new MoreNested("more" + i)));
+        }
+        Stm.Ref<DomainEntity> source = Stm.ref(entity(Map.copyOf(items), List.of()));
+        Stm.Ref<DomainEntity> target = Stm.ref(entity(Map.of(), List.of()));
+
+        ExecutorService pool = Executors.newFixedThreadPool(4);
+        for (int i = 0; i < 200; i++) {
+            String key = "key" + i;
+            pool.execute(() -> Stm.run(tx -> move(tx, source, target, key)));
+        }
+        pool.shutdown();
+        assertTrue(pool.awaitTermination(10, TimeUnit.SECONDS));
+
+        assertTrue(source.get().nestedMap().isEmpty());
+        assertEquals(200, target.get().nestedList().size());
+        assertEquals(200, target.get().nestedList().stream().distinct().count());
+    }
+
+    @Test
+    void testReadOnlyTransactionSeesConsistentValues() {
+        Stm.Ref<DomainEntity> first = Stm.ref(entity(Map.of(), List.of()));
+        Stm.Ref<DomainEntity> second = Stm.ref(entity(Map.of(), List.of()));
+
+        Stm.run(tx -> {
+            tx.set(first, DomainEntityLens.stringValue(), "a");
+            tx.set(second, DomainEntityLens.stringValue(), "a");
+        });
+        String both = Stm.atomically(tx -> tx.get(first, DomainEntityLens.stringValue()) + tx.get(second, DomainEntityLens.stringValue()));
+
+        assertEquals("aa", both);
+    }
+}
@@ -0,0 +1,132 @@
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import model.DomainEntity;
+import model.DomainEntityLens;
+import model.MoreNested;
+import model.Nested;
+import model.RecursiveNested;
+import lib.LensPath;
+import lib.Mutations;
+import lib.Subscriptions;
+
+public class SubscriptionsTest {
+
+    private record Inner(int count, String name) {}
+
+    private record Outer(Inner inner, String label) {}
+
+    private static DomainEntity entity() {
+        return new DomainEntity(
+            "hello", Optional.empty(), List.of(), Map.of(),
+            new Nested("nestedValue", new MoreNested("moreNestedValue")),
+            Optional.empty(), List.of(new Nested("listItem", new MoreNested("listMoreNested"))),
+            Map.of("key1", new Nested("mapItem1", new MoreNested("mapMoreNested1")),
+                   "key2", new Nested("mapItem2", new MoreNested("mapMoreNested2"))),
+            new RecursiveNested("root", Optional.of(new RecursiveNested("child", Optional.empty())))
+        );
+    }
+
+    // LENS PATH TESTS
+
+    @Test
+    void testParseAndGet() {
+        DomainEntity entity = entity();
+
+        assertEquals(new MoreNested("mapMoreNested1"), LensPath.parse(DomainEntity.class, "nestedMap['key1'].moreNested").get(entity));
+        assertEquals("child", LensPath.parse(DomainEntity.class, "recursiveNested.child.value").get(entity));
+        assertEquals("listItem", LensPath.parse(DomainEntity.class, "nestedList[0].nestedValue").get(entity));
+        assertNull(LensPath.parse(DomainEntity.class, "recursiveNested.child.child.value").get(entity));
+        assertNull(LensPath.parse(DomainEntity.class, "nestedList[5].nestedValue").get(entity));
+        assertEquals("nestedMap['key1'].moreNested", LensPath.parse(DomainEntity.class, "nestedMap['key1'].moreNested").toString());
+        assertThrows(IllegalArgumentException.class, () -> LensPath.parse(DomainEntity.class, "nested.missing"));
+        assertThrows(IllegalArgumentException.class, () -> LensPath.parse(DomainEntity.class, "stringValue[0]"));
+    }
+
+    @Test
+    void testSet() {
+        LensPath<DomainEntity, String> path = LensPath.parse(DomainEntity.class, "nestedMap['key2'].moreNested.moreNestedValue");
+        DomainEntity updated = path.set(entity(), "updated");
+
+        assertEquals("updated", updated.nestedMap().get("key2").moreNested().moreNestedValue());
+        assertEquals("mapMoreNested2", entity().nestedMap().get("key2").moreNested().moreNestedValue()); // Original unchanged
+    }
+
+    // SUBSCRIPTION TESTS
+
+    @Test
+    void testOnlyChangedPathsFire() {
+        Subscriptions<DomainEntity> subscriptions = new Subscriptions<>(DomainEntity.class);
+        List<String> fired = new ArrayList<>();
+        subscriptions.<MoreNested>subscribe("nestedMap['key1'].moreNested", (o, n) -> fired.add("key1:" + n.moreNestedValue()));
+        subscriptions.<String>subscribe("recursiveNested.child.value", (o, n) -> fired.add("child:" + o + "->" + n));
+        subscriptions.<String>subscribe("stringValue", (o, n) -> fired.add("stringValue:" + n));
+
+        DomainEntity entity = entity();
+        DomainEntity updated = subscriptions.apply(entity, Mutations.<DomainEntity>forType()
+            .set(DomainEntityLens.nestedMap().get("key2").moreNested().moreNestedValue(), "other"));
+        assertEquals(List.of(), fired); // key1 kept its instance
+
+        subscriptions.apply(updated, Mutations.<DomainEntity>forType()
+            .set(DomainEntityLens.nestedMap().get("key1").moreNested().moreNestedValue(), "changed")
+            .set(DomainEntityLens.stringValue(), "hello"));
+        assertEquals(List.of("key1:changed"), fired); // stringValue set to the same value is a no-op
+
+        fired.clear();
+        DomainEntity withChild = entity();
+        subscriptions.publish(withChild, DomainEntityLens.set(withChild, DomainEntityLens.recursiveNested().child().value(), "renamed"));
+        assertEquals(List.of("child:child->renamed"), fired);
+    }
+
+    @Test
+    void testClosedSubscriptionStopsFiring() {
+        Subscriptions<DomainEntity> subscriptions = new Subscriptions<>(DomainEntity.class);
+        List<String> fired = new ArrayList<>();
+        Subscriptions.Subscription subscription = subscriptions.<String>subscribe("stringValue", (o, n) -> fired.add(n));
+
+        DomainEntity entity = entity();
+        subscriptions.publish(entity, DomainEntityLens.set(entity, DomainEntityLens.stringValue(), "a"));
+        subscription.close();
+        subscriptions.publish(entity, DomainEntityLens.set(entity, DomainEntityLens.stringValue(), "b"));
+
+        assertEquals(List.of("a"), fired);
+    }
+
+    @Test
+    void testEqualLeavesDoNotFire() {
+        Subscriptions<Outer> subscriptions = new Subscriptions<>(Outer.class);
+        List<String> fired = new ArrayList<>();
+        subscriptions.<Integer>subscribe("inner.count", (o, n) -> fired.add("count:" + o + "->" + n));
+        subscriptions.<String>subscribe("label", (o, n) -> fired.add("label:" + n));
+
+        Outer outer = new Outer(new Inner(1000, "a"), "label");
+        Outer renamed = LensPath.<Outer, String>parse(Outer.class, "inner.name").set(outer, "b");
+        subscriptions.publish(outer, renamed);
+        subscriptions.publish(renamed, LensPath.<Outer, String>parse(Outer.class, "label").mod(renamed, l -> new String(l)));
+        assertEquals(List.of(), fired); // count is re-boxed and label rebuilt, but both are equal
+
+        subscriptions.publish(outer, LensPath.<Outer, Integer>parse(Outer.class, "inner.count").set(outer, 1001));
+        assertEquals(List.of("count:1000->1001"), fired);
+    }
+
+    @Test
+    void testResubscribingAfterCloseOnSamePath() {
+        Subscriptions<DomainEntity> subscriptions = new Subscriptions<>(DomainEntity.class);
+        List<String> fired = new ArrayList<>();
+        Subscriptions.Subscription first = subscriptions.<String>subscribe("nestedMap['key1'].moreNested.moreNestedValue", (o, n) -> fired.add("first:" + n));
+        Subscriptions.Subscription sibling = subscriptions.<String>subscribe("nestedMap['key1'].nestedValue", (o, n) -> fired.add("sibling:" + n));
+        first.close();
+        first.close();
+        sibling.close();
+        subscriptions.<String>subscribe("nestedMap['key1'].moreNested.moreNestedValue", (o, n) -> fired.add("second:" + n));
+
+        DomainEntity entity = entity();
+        subscriptions.publish(entity, DomainEntityLens.set(entity, DomainEntityLens.nestedMap().get("key1").moreNested().moreNestedValue(), "changed"));
+
+        assertEquals(List.of("second:changed"), fired);
+    }
+}
@@ -0,0 +1,126 @@
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.Flow;
+import java.util.concurrent.atomic.AtomicInteger;
+import model.DomainEntity;
+import model.DomainEntityLens;
+import model.MoreNested;
+import model.Nested;
+import model.RecursiveNested;
+import lib.Mutations;
+import lib.VersionPublisher;
+import lib.VersionPublisher.Change;
+
+public class VersionPublisherTest {
+
+    private static DomainEntity entity() {
+        return new DomainEntity(
+            "v0", Optional.empty(), List.of(), Map.of(),
+            new Nested("nestedValue", new MoreNested("moreNestedValue")),
+            Optional.empty(), List.of(), Map.of(),
+            new RecursiveNested("root", Optional.empty())
+        );
+    }
+
+    // Requests nothing up front, so changes wait until the test asks for them
+    private static final class Recorder<B> implements Flow.Subscriber<Change<B>> {
+        final List<Change<B>> received = new ArrayList<>();
+        Flow.Subscription subscription;
+        boolean completed;
+
+        @Override public void onSubscribe(Flow.Subscription subscription) { this.subscription = subscription; }
+        @Override public void onNext(Change<B> change) { received.add(change); }
+        @Override public void onError(Throwable error) { fail(error); }
+        @Override public void onComplete() { completed = true; }
+    }
+
+    private static DomainEntity withValue(DomainEntity entity, String value) {
+        return Mutations.<DomainEntity>forType().set(DomainEntityLens.stringValue(), value).apply(entity);
+    }
+
+    @Test
+    void testSlowSubscriberGetsCoalescedChange() {
+        VersionPublisher<DomainEntity> publisher = new VersionPublisher<>(DomainEntity.class, entity(), Runnable::run);
+        Recorder<String> values = new Recorder<>();
+        Recorder<Nested> nested = new Recorder<>();
+        publisher.subscribe("stringValue", values);
+        publisher.subscribe("nested", nested);
+        values.subscription.request(1);
+        nested.subscription.request(Long.MAX_VALUE);
+
+        publisher.submit(withValue(publisher.current(), "v1"));
+        publisher.submit(withValue(publisher.current(), "v2"));
+        publisher.submit(withValue(publisher.current(), "v3"));
+
+        assertEquals(List.of(new Change<>("v0", "v1")), values.received);
+
+        values.subscription.request(1);
+
+        assertEquals(List.of(new Change<>("v0", "v1"), new Change<>("v1", "v3")), values.received);
+        // Updates elsewhere never reach a subscriber of nested
+        assertTrue(nested.received.isEmpty());
+    }
+
+    @Test
+    void testChangeBackToPendingOldValueIsDropped() {
+        DomainEntity original = entity();
+        VersionPublisher<DomainEntity> publisher = new VersionPublisher<>(DomainEntity.class, original, Runnable::run);
+        Recorder<DomainEntity> whole = new Recorder<>();
+        publisher.subscribe(whole);
+
+        publisher.submit(withValue(original, "v1"));
+        publisher.submit(original);
+        whole.subscription.request(1);
+
+        assertTrue(whole.received.isEmpty());
+    }
+
+    @Test
+    void testCloseCompletesAfterPendingChange() {
+        VersionPublisher<DomainEntity> publisher = new VersionPublisher<>(DomainEntity.class, entity(), Runnable::run);
+        Recorder<String> values = new Recorder<>();
+        publisher.subscribe("stringValue", values);
+
+        publisher.submit(withValue(publisher.current(), "v1"));
+        publisher.close();
+        assertFalse(values.completed);
+        assertThrows(IllegalStateException.class, () -> publisher.submit(entity()));
+
+        values.subscription.request(1);
+
+        assertEquals(List.of(new Change<>("v0", "v1")), values.received);
+        assertTrue(values.completed);
+    }
+
+    @Test
+    void testNonPositiveRequestFailsThroughTheDrain() {
+        List<Runnable> tasks = new ArrayList<>();
+        VersionPublisher<DomainEntity> publisher = new VersionPublisher<>(DomainEntity.class, entity(), tasks::add);
+        List<Object> signals = new ArrayList<>();
+        AtomicInteger errors = new AtomicInteger();
+        Flow.Subscription[] subscription = new Flow.Subscription[1];
+        publisher.subscribe("stringValue", new Flow.Subscriber<Change<String>>() {
+            @Override public void onSubscribe(Flow.Subscription s) { subscription[0] = s; }
+            @Override public void onNext(Change<String> change) { signals.add(change); }
+            @Override public void onError(Throwable error) { errors.incrementAndGet(); signals.add(error); }
+            @Override public void onComplete() { signals.add("complete"); }
+        });
+
+        subscription[0].request(1);
+        subscription[0].request(0);
+        subscription[0].request(-1);
+        publisher.submit(withValue(publisher.current(), "v1"));
+        publisher.close();
+        assertEquals(1, tasks.size()); // One drain for every signal
+        tasks.remove(0).run();
+
+        assertEquals(1, errors.get());
+        assertEquals(1, signals.size());
+        assertInstanceOf(IllegalArgumentException.class, signals.get(0));
+    }
+}